@@ -0,0 +1,154 @@
+package net.pocrd.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import net.pocrd.core.ApiManager;
+import net.pocrd.define.Cloner;
+import net.pocrd.entity.CommonConfig;
+import net.pocrd.entity.ReturnCodeException;
+import net.pocrd.util.POJOClonerProvider;
+import net.pocrd.util.ParameterParser;
+import net.pocrd.util.RegexValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * HttpApiProvider生成的HttpApiExecuter解析String[]参数并调用接口实现的性能
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ApiExecuterBenchmark {
+    private ApiManager                apiManager;
+    private String[]                  params;
+    private String[]                  paramsWithDefault;
+    private String[]                  invalidParams;
+    private String                    intValue;
+    private String                    longValue;
+    private String                    invalidValue;
+    private String                    decimalValue;
+    private Pattern                   decimalPattern;
+    private RegexValidator            decimalValidator;
+    private String[]                  structuredParams;
+    private BenchmarkApi.Item         defaultItem;
+    private Cloner<BenchmarkApi.Item> itemCloner;
+
+    @Setup
+    public void setup() {
+        CommonConfig.init(new Properties());
+        apiManager = new ApiManager();
+        apiManager.register(ApiManager.parseApi(BenchmarkApi.class, new BenchmarkApi()));
+        params = new String[] { "123456", "9876543210", "true", "3.14159", "benchmark" };
+        paramsWithDefault = new String[] { "123456", "9876543210", null, "3.14159", "benchmark" };
+        invalidParams = new String[] { "123456", "98765x43210", "true", "3.14159", "benchmark" };
+        intValue = params[0];
+        longValue = params[1];
+        invalidValue = invalidParams[1];
+        decimalValue = "-12345.6789";
+        decimalPattern = Pattern.compile("^-?\\d+\\.\\d+$");
+        decimalValidator = RegexValidator.compile("^-?\\d+\\.\\d+$");
+        BenchmarkApi.ItemList list = BenchmarkApi.createItemList(1);
+        structuredParams = new String[] { JSON.toJSONString(list.items.get(0)), JSON.toJSONString(list.items.get(0).tags) };
+        defaultItem = list.items.get(0);
+        itemCloner = POJOClonerProvider.getCloner(BenchmarkApi.Item.class);
+    }
+
+    @Benchmark
+    public Object parsePrimitive() {
+        return apiManager.processRequest("bench.primitive", params);
+    }
+
+    @Benchmark
+    public Object parsePrimitiveWithDefault() {
+        return apiManager.processRequest("bench.primitive", paramsWithDefault);
+    }
+
+    @Benchmark
+    public Object parseStructured() {
+        return apiManager.processRequest("bench.submit", structuredParams);
+    }
+
+    @Benchmark
+    public Object parseStructuredJson() {
+        return JSON.parseObject(structuredParams[0], BenchmarkApi.Item.class);
+    }
+
+    /**
+     * 结构化参数默认值每次使用前的复制, 与parseStructuredJson对比
+     */
+    @Benchmark
+    public Object copyStructuredDefault() {
+        return itemCloner.copy(defaultItem);
+    }
+
+    @Benchmark
+    public Object parsePrimitiveInvalid() {
+        try {
+            return apiManager.processRequest("bench.primitive", invalidParams);
+        } catch (ReturnCodeException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public int parseIntJdk() {
+        return Integer.parseInt(intValue);
+    }
+
+    @Benchmark
+    public int parseIntParser() {
+        return ParameterParser.parseInt(intValue);
+    }
+
+    @Benchmark
+    public long parseLongJdk() {
+        return Long.parseLong(longValue);
+    }
+
+    @Benchmark
+    public long parseLongParser() {
+        return ParameterParser.parseLong(longValue);
+    }
+
+    @Benchmark
+    public Object parseLongInvalidJdk() {
+        try {
+            return Long.parseLong(invalidValue);
+        } catch (NumberFormatException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseLongInvalidParser() {
+        try {
+            return ParameterParser.parseLong(invalidValue);
+        } catch (NumberFormatException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public boolean regexPattern() {
+        return decimalPattern.matcher(decimalValue).matches();
+    }
+
+    @Benchmark
+    public boolean regexValidator() {
+        return decimalValidator.matches(decimalValue);
+    }
+}
@@ -0,0 +1,146 @@
+package net.pocrd.benchmark;
+
+import net.pocrd.annotation.ApiGroup;
+import net.pocrd.annotation.ApiParameter;
+import net.pocrd.annotation.Description;
+import net.pocrd.annotation.HttpApi;
+import net.pocrd.define.SecurityType;
+import net.pocrd.entity.AbstractReturnCode;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试使用的接口定义及返回值实体, 返回值结构参照常见的列表类接口
+ */
+@ApiGroup(name = "bench", minCode = 0, maxCode = 100, codeDefine = BenchmarkApi.RC.class, owner = "benchmark")
+public class BenchmarkApi {
+    public static class RC extends AbstractReturnCode {
+        protected RC(String desc, int code) {
+            super(desc, code);
+        }
+    }
+
+    @Description("商品标签")
+    public static class Tag implements Serializable {
+        @Description("标签编号")
+        public int    id;
+        @Description("标签名称")
+        public String name;
+    }
+
+    @Description("商品")
+    public static class Item implements Serializable {
+        @Description("商品编号")
+        public long         id;
+        @Description("商品名称")
+        public String       name;
+        @Description("商品描述")
+        public String       desc;
+        @Description("价格")
+        public double       price;
+        @Description("是否有货")
+        public boolean      inStock;
+        @Description("销量")
+        public int          sales;
+        @Description("图片地址")
+        public List<String> images;
+        @Description("标签")
+        public List<Tag>    tags;
+    }
+
+    @Description("商品列表")
+    public static class ItemList implements Serializable {
+        @Description("总数")
+        public int        total;
+        @Description("商品")
+        public List<Item> items;
+    }
+
+    /**
+     * 构造包含count个商品的返回值
+     */
+    public static ItemList createItemList(int count) {
+        ItemList list = new ItemList();
+        list.total = count;
+        list.items = new ArrayList<Item>(count);
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.id = 100000000L + i;
+            item.name = "商品 \"" + i + "\"";
+            item.desc = "<p>description of item " + i + "</p>\n";
+            item.price = 99.9 + i;
+            item.inStock = (i & 1) == 0;
+            item.sales = i * 37;
+            item.images = new ArrayList<String>(3);
+            for (int j = 0; j < 3; j++) {
+                item.images.add("http://img.example.com/item/" + i + "/" + j + ".jpg");
+            }
+            item.tags = new ArrayList<Tag>(2);
+            for (int j = 0; j < 2; j++) {
+                Tag tag = new Tag();
+                tag.id = j;
+                tag.name = "tag" + j;
+                item.tags.add(tag);
+            }
+            list.items.add(item);
+        }
+        return list;
+    }
+
+    @HttpApi(name = "bench.primitive", desc = "基础类型参数", security = SecurityType.None, owner = "benchmark")
+    public Tag primitive(
+            @ApiParameter(required = true, name = "i", desc = "int参数")
+            int i,
+            @ApiParameter(required = true, name = "l", desc = "long参数")
+            long l,
+            @ApiParameter(required = false, name = "b", desc = "boolean参数", defaultValue = "false")
+            boolean b,
+            @ApiParameter(required = true, name = "d", desc = "double参数")
+            double d,
+            @ApiParameter(required = true, name = "s", verifyRegex = "^[a-z]+$", desc = "String参数")
+            String s) {
+        Tag tag = new Tag();
+        tag.id = i;
+        tag.name = s;
+        return tag;
+    }
+
+    @HttpApi(name = "bench.submit", desc = "结构化参数", security = SecurityType.None, owner = "benchmark")
+    public Tag submit(
+            @ApiParameter(required = true, name = "item", desc = "商品")
+            Item item,
+            @ApiParameter(required = true, name = "tags", desc = "标签")
+            List<Tag> tags) {
+        Tag tag = new Tag();
+        tag.id = item.sales + tags.size();
+        tag.name = item.name;
+        return tag;
+    }
+
+    @HttpApi(name = "bench.item", desc = "商品详情", security = SecurityType.None, owner = "benchmark", batchMethod = "items")
+    public Item item(
+            @ApiParameter(required = true, name = "id", desc = "商品编号")
+            long id) {
+        return items(new long[] { id })[0];
+    }
+
+    /**
+     * bench.item的批量方法, 合并调用bench.item时只执行一次
+     */
+    public Item[] items(long[] ids) {
+        List<Item> items = createItemList(ids.length).items;
+        for (int i = 0; i < ids.length; i++) {
+            items.get(i).id = ids[i];
+        }
+        return items.toArray(new Item[ids.length]);
+    }
+
+    @HttpApi(name = "bench.list", desc = "列表返回值", security = SecurityType.None, owner = "benchmark")
+    public ItemList list(
+            @ApiParameter(required = true, name = "size", desc = "返回的商品个数")
+            int size) {
+        return createItemList(size);
+    }
+}
@@ -0,0 +1,62 @@
+package net.pocrd.benchmark;
+
+import net.pocrd.core.ApiManager;
+import net.pocrd.core.BaseServlet;
+import net.pocrd.define.CommonParameter;
+import net.pocrd.entity.AbstractReturnCode;
+import net.pocrd.entity.ApiContext;
+import net.pocrd.entity.ApiEntry;
+import net.pocrd.entity.ApiMethodCall;
+import net.pocrd.entity.ApiMethodInfo;
+import net.pocrd.entity.ApiReturnCode;
+import net.pocrd.entity.CallerInfo;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+
+/**
+ * 不做签名校验的BaseServlet实现, 接口调用直接在进程内执行, 用于测量网关自身的处理开销
+ */
+public class BenchmarkServlet extends BaseServlet {
+    private final ApiManager apiManager;
+
+    public BenchmarkServlet(ApiManager apiManager) {
+        super(apiManager);
+        this.apiManager = apiManager;
+    }
+
+    @Override
+    protected Object processCall(String name, String[] params) {
+        return apiManager.processRequest(name, params);
+    }
+
+    @Override
+    protected Object processCall(ApiMethodCall call, String[] params) {
+        return call.entry.executer.execute(params);
+    }
+
+    @Override
+    protected CallerInfo parseCallerInfo(ApiContext context, byte[] token) {
+        return null;
+    }
+
+    @Override
+    protected AbstractReturnCode parseMethodInfo(ApiContext context, HttpServletRequest request) {
+        String[] names = request.getParameter(CommonParameter.method).split(",");
+        context.apiCallInfos = new ArrayList<ApiMethodCall>(names.length);
+        for (String name : names) {
+            ApiEntry entry = apiManager.getApiEntry(name);
+            if (entry == null) {
+                return ApiReturnCode.REQUEST_PARSE_ERROR;
+            }
+            ApiMethodInfo method = entry.info;
+            ApiMethodCall call = new ApiMethodCall(entry);
+            call.parameters = new String[method.parameterInfos.length];
+            for (int i = 0; i < call.parameters.length; i++) {
+                call.parameters[i] = request.getParameter(method.parameterInfos[i].name);
+            }
+            context.apiCallInfos.add(call);
+        }
+        return ApiReturnCode.SUCCESS;
+    }
+}
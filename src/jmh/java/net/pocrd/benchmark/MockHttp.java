@@ -0,0 +1,94 @@
+package net.pocrd.benchmark;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于动态代理的最小化HttpServletRequest/HttpServletResponse, 未实现的方法返回默认值
+ */
+public final class MockHttp {
+    private MockHttp() {
+    }
+
+    public static HttpServletRequest request(final Map<String, String> params, final Map<String, String> headers) {
+        final Map<String, String[]> parameterMap = new HashMap<String, String[]>();
+        for (Map.Entry<String, String> e : params.entrySet()) {
+            parameterMap.put(e.getKey(), new String[] { e.getValue() });
+        }
+        return (HttpServletRequest)Proxy.newProxyInstance(MockHttp.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if ("getParameter".equals(name)) {
+                            return params.get(args[0]);
+                        } else if ("getParameterMap".equals(name)) {
+                            return parameterMap;
+                        } else if ("getParameterNames".equals(name)) {
+                            return Collections.enumeration(params.keySet());
+                        } else if ("getHeader".equals(name)) {
+                            return headers.get(args[0]);
+                        } else if ("getMethod".equals(name)) {
+                            return "GET";
+                        } else if ("getRemoteAddr".equals(name)) {
+                            return "127.0.0.1";
+                        } else if ("getCharacterEncoding".equals(name)) {
+                            return "UTF-8";
+                        } else if ("getProtocol".equals(name)) {
+                            return "HTTP/1.1";
+                        }
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    /**
+     * 返回的response将输出内容写入丢弃型的输出流, 只记录写入的字节数
+     */
+    public static HttpServletResponse response(final CountingOutputStream out) {
+        return (HttpServletResponse)Proxy.newProxyInstance(MockHttp.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("getOutputStream".equals(method.getName())) {
+                            return out;
+                        } else if ("getCharacterEncoding".equals(method.getName())) {
+                            return "UTF-8";
+                        }
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    public static class CountingOutputStream extends ServletOutputStream {
+        public long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package net.pocrd.benchmark;
+
+import net.pocrd.define.ConstField;
+import net.pocrd.entity.CallerInfo;
+import net.pocrd.util.AESTokenHelper;
+import net.pocrd.util.AesHelper;
+import net.pocrd.util.Base64Util;
+import net.pocrd.util.DigestUtil;
+import net.pocrd.util.HMacHelper;
+import net.pocrd.util.Md5Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * token解析、base64编解码以及签名计算的性能, 状态按线程隔离(HMacHelper非线程安全)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SecurityBenchmark {
+    private AESTokenHelper tokenHelper;
+    private String         token;
+    private HMacHelper     hmacHelper;
+    private byte[]         content;
+    private byte[]         raw;
+    private String         encoded;
+    private byte[]         encodedBytes;
+    private byte[]         buffer;
+    private char[]         hex;
+    // 各编码方式的编码结果, 两种实现的编码结果相同
+    private byte[]         encodedDefault;
+    private byte[]         encodedNoWrap;
+    private byte[]         encodedUrlSafe;
+
+    @Setup
+    public void setup() {
+        tokenHelper = new AESTokenHelper(Base64Util.encodeToString(AesHelper.randomKey(256)));
+        CallerInfo caller = new CallerInfo();
+        caller.expire = System.currentTimeMillis() + 3600 * 1000L;
+        caller.key = "0123456789abcdef".getBytes(ConstField.UTF8);
+        caller.securityLevel = 9;
+        caller.deviceId = 22222222222222L;
+        caller.uid = 33333333333333L;
+        caller.appid = 1;
+        token = tokenHelper.generateStringUserToken(caller);
+
+        Random random = new Random(0);
+        raw = new byte[256];
+        random.nextBytes(raw);
+        encoded = Base64Util.encodeToString(raw);
+        encodedBytes = Base64Util.encode(raw);
+        buffer = new byte[encodedBytes.length];
+        encodedDefault = LegacyBase64.encode(raw, LegacyBase64.DEFAULT);
+        encodedNoWrap = LegacyBase64.encode(raw, LegacyBase64.NO_WRAP);
+        encodedUrlSafe = LegacyBase64.encode(raw, LegacyBase64.URL_SAFE);
+        hex = new char[DigestUtil.MAX_DIGEST_LENGTH * 2];
+
+        hmacHelper = new HMacHelper("benchmark-hmac-key");
+        content = new byte[1024];
+        random.nextBytes(content);
+    }
+
+    @Benchmark
+    public CallerInfo parseToken() {
+        return tokenHelper.parseToken(token);
+    }
+
+    @Benchmark
+    public String base64Encode() {
+        return Base64Util.encodeToString(raw);
+    }
+
+    @Benchmark
+    public byte[] base64Decode() {
+        return Base64Util.decode(encoded);
+    }
+
+    /**
+     * 当前实现与替换前的逐字节状态机实现(LegacyBase64)在相同输入上成对对比
+     */
+    @Benchmark
+    public byte[] base64EncodeDefault() {
+        return Base64Util.encode(raw, Base64Util.DEFAULT);
+    }
+
+    @Benchmark
+    public byte[] legacyBase64EncodeDefault() {
+        return LegacyBase64.encode(raw, LegacyBase64.DEFAULT);
+    }
+
+    @Benchmark
+    public byte[] base64DecodeDefault() {
+        return Base64Util.decode(encodedDefault, Base64Util.DEFAULT);
+    }
+
+    @Benchmark
+    public byte[] legacyBase64DecodeDefault() {
+        return LegacyBase64.decode(encodedDefault, LegacyBase64.DEFAULT);
+    }
+
+    @Benchmark
+    public byte[] base64EncodeNoWrap() {
+        return Base64Util.encode(raw, Base64Util.NO_WRAP);
+    }
+
+    @Benchmark
+    public byte[] legacyBase64EncodeNoWrap() {
+        return LegacyBase64.encode(raw, LegacyBase64.NO_WRAP);
+    }
+
+    @Benchmark
+    public byte[] base64DecodeNoWrap() {
+        return Base64Util.decode(encodedNoWrap, Base64Util.NO_WRAP);
+    }
+
+    @Benchmark
+    public byte[] legacyBase64DecodeNoWrap() {
+        return LegacyBase64.decode(encodedNoWrap, LegacyBase64.NO_WRAP);
+    }
+
+    @Benchmark
+    public byte[] base64EncodeUrlSafe() {
+        return Base64Util.encode(raw, Base64Util.URL_SAFE);
+    }
+
+    @Benchmark
+    public byte[] legacyBase64EncodeUrlSafe() {
+        return LegacyBase64.encode(raw, LegacyBase64.URL_SAFE);
+    }
+
+    @Benchmark
+    public byte[] base64DecodeUrlSafe() {
+        return Base64Util.decode(encodedUrlSafe, Base64Util.URL_SAFE);
+    }
+
+    @Benchmark
+    public byte[] legacyBase64DecodeUrlSafe() {
+        return LegacyBase64.decode(encodedUrlSafe, LegacyBase64.URL_SAFE);
+    }
+
+    /**
+     * 编解码到预先分配的缓冲区, 与base64Encode/base64Decode对比分配结果数组的开销
+     */
+    @Benchmark
+    public int base64EncodeToBuffer() {
+        return Base64Util.encode(raw, 0, raw.length, buffer, 0, Base64Util.NO_WRAP);
+    }
+
+    @Benchmark
+    public int base64DecodeToBuffer() {
+        return Base64Util.decode(encodedBytes, 0, encodedBytes.length, buffer, 0, Base64Util.NO_WRAP);
+    }
+
+    @Benchmark
+    public int base64Validate() {
+        return Base64Util.decodedLength(encodedBytes, 0, encodedBytes.length, Base64Util.NO_WRAP);
+    }
+
+    /**
+     * 每次调用时创建MessageDigest实例, 与md5Cached对比缓存实例的效果
+     */
+    @Benchmark
+    public byte[] md5GetInstance() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("MD5").digest(content);
+    }
+
+    @Benchmark
+    public byte[] md5Cached() {
+        return DigestUtil.md5(content);
+    }
+
+    @Benchmark
+    public String md5ToHexString() {
+        return Md5Util.computeToHex(content);
+    }
+
+    @Benchmark
+    public int md5ToHexBuffer() {
+        return DigestUtil.computeToHex(DigestUtil.MD5, content, 0, content.length, hex, 0);
+    }
+
+    @Benchmark
+    public byte[] sha256Cached() {
+        return DigestUtil.sha256(content);
+    }
+
+    @Benchmark
+    public byte[] hmacSign() {
+        return hmacHelper.sign(content);
+    }
+}
@@ -0,0 +1,103 @@
+package net.pocrd.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import net.pocrd.define.Serializer;
+import net.pocrd.document.CallState;
+import net.pocrd.document.Response;
+import net.pocrd.entity.CommonConfig;
+import net.pocrd.responseEntity.KeyValuePair;
+import net.pocrd.util.POJOSerializerProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * POJOSerializerProvider生成的序列化类的性能, fastjson一项作为对照
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializerBenchmark {
+    @Param({"1", "20"})
+    public int size;
+
+    private Response                         response;
+    private BenchmarkApi.ItemList            itemList;
+    private Serializer<Response>             responseSerializer;
+    private Serializer<BenchmarkApi.ItemList> itemListSerializer;
+    private ByteArrayOutputStream            out = new ByteArrayOutputStream(64 * 1024);
+
+    @Setup
+    public void setup() {
+        CommonConfig.init(new Properties());
+        responseSerializer = POJOSerializerProvider.getSerializer(Response.class);
+        itemListSerializer = POJOSerializerProvider.getSerializer(BenchmarkApi.ItemList.class);
+        itemList = BenchmarkApi.createItemList(size);
+        response = new Response();
+        response.systime = System.currentTimeMillis();
+        response.code = 0;
+        response.cid = "benchmark:0a1b2c:1234567";
+        response.stateList = new ArrayList<CallState>();
+        for (int i = 0; i < 3; i++) {
+            CallState state = new CallState();
+            state.code = 0;
+            state.length = 1024 * i;
+            state.msg = "success";
+            response.stateList.add(state);
+        }
+        response.notificationList = new ArrayList<KeyValuePair>();
+        response.notificationList.add(new KeyValuePair("_notify", "message \"with\" quotes"));
+    }
+
+    @Benchmark
+    public int responseToJson() {
+        out.reset();
+        responseSerializer.toJson(response, out, true);
+        return out.size();
+    }
+
+    @Benchmark
+    public int responseToXml() {
+        out.reset();
+        responseSerializer.toXml(response, out, true);
+        return out.size();
+    }
+
+    @Benchmark
+    public int itemListToJson() {
+        out.reset();
+        itemListSerializer.toJson(itemList, out, true);
+        return out.size();
+    }
+
+    @Benchmark
+    public int itemListToXml() {
+        out.reset();
+        itemListSerializer.toXml(itemList, out, true);
+        return out.size();
+    }
+
+    @Benchmark
+    public int itemListToJsonWithFastJson() throws IOException {
+        out.reset();
+        out.write(JSON.toJSONBytes(itemList, Serializer.ApiSerializerFeature.SERIALIZER_FEATURES));
+        return out.size();
+    }
+}
@@ -0,0 +1,102 @@
+package net.pocrd.benchmark;
+
+import net.pocrd.core.ApiManager;
+import net.pocrd.define.CommonParameter;
+import net.pocrd.entity.CommonConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BaseServlet从参数解析到结果输出的端到端处理性能, 接口实现在进程内同步执行
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ServletBenchmark {
+    @Param({"json", "xml"})
+    public String format;
+
+    private BenchmarkServlet                servlet;
+    private HttpServletRequest              singleRequest;
+    private HttpServletRequest              mergedRequest;
+    private HttpServletRequest              batchRequest;
+    private HttpServletResponse             response;
+    private MockHttp.CountingOutputStream   out = new MockHttp.CountingOutputStream();
+
+    @Setup
+    public void setup() {
+        Properties prop = new Properties();
+        prop.setProperty("net.pocrd.dubboAsync", "false");
+        CommonConfig.init(prop);
+        ApiManager apiManager = new ApiManager();
+        apiManager.register(ApiManager.parseApi(BenchmarkApi.class, new BenchmarkApi()));
+        servlet = new BenchmarkServlet(apiManager);
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("host", "api.example.com");
+        headers.put("User-Agent", "benchmark");
+
+        Map<String, String> params = new HashMap<String, String>();
+        params.put(CommonParameter.format, format);
+        params.put(CommonParameter.applicationId, "1");
+        params.put(CommonParameter.deviceId, "22222222222222");
+        params.put(CommonParameter.method, "bench.list");
+        params.put("size", "20");
+        singleRequest = MockHttp.request(params, headers);
+
+        params = new HashMap<String, String>(params);
+        params.put(CommonParameter.method, "bench.list,bench.primitive,bench.list");
+        params.put("i", "123456");
+        params.put("l", "9876543210");
+        params.put("d", "3.14159");
+        params.put("s", "benchmark");
+        mergedRequest = MockHttp.request(params, headers);
+
+        params = new HashMap<String, String>(params);
+        params.put(CommonParameter.method, "bench.item,bench.item,bench.item,bench.item,bench.item,bench.item,bench.item,bench.item");
+        params.put("id", "100000000");
+        batchRequest = MockHttp.request(params, headers);
+        response = MockHttp.response(out);
+    }
+
+    @Benchmark
+    public long singleCall() throws ServletException, IOException {
+        servlet.service(singleRequest, response);
+        return out.count;
+    }
+
+    @Benchmark
+    public long mergedCalls() throws ServletException, IOException {
+        servlet.service(mergedRequest, response);
+        return out.count;
+    }
+
+    /**
+     * 合并调用同一个声明了批量方法的接口, 8次调用合并为一次批量调用
+     */
+    @Benchmark
+    public long batchedCalls() throws ServletException, IOException {
+        servlet.service(batchRequest, response);
+        return out.count;
+    }
+}
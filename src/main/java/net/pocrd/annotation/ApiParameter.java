@@ -42,6 +42,16 @@ public @interface ApiParameter {
      */
     String verifyMsg() default "";
 
+    /**
+     * 整数参数的最小值, 仅对byte/short/int/long类型的参数有效, 超出取值范围时返回参数错误
+     */
+    long min() default Long.MIN_VALUE;
+
+    /**
+     * 整数参数的最大值, 仅对byte/short/int/long类型的参数有效, 超出取值范围时返回参数错误
+     */
+    long max() default Long.MAX_VALUE;
+
     /**
      * 由于安全原因需要在日志系统中忽略的参数
      */
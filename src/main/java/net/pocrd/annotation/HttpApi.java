@@ -69,4 +69,20 @@ public @interface HttpApi {
      * @see SecurityType.Integrated 级别接口是否需要apigw进行签名验证,false:验证由服务提供方完成,true:apigw负责签名验证
      */
     boolean needVerify() default false;
+
+    /**
+     * 是否以流式方式输出返回结果, 适用于返回数据量较大的导出类接口
+     * 单独调用时序列化结果直接写入响应流, 状态信息在返回结果之后输出
+     *
+     * @return
+     */
+    boolean streaming() default false;
+
+    /**
+     * 批量接口的方法名, 该方法与本接口声明在同一个类中, 参数依次为本接口各参数类型的数组, 返回值为本接口返回值类型的数组或List,
+     * 返回结果的第i个元素对应第i组参数. 同一请求中合并调用本接口多次时, 网关将这些调用合并为一次批量方法调用
+     *
+     * @return
+     */
+    String batchMethod() default "";
 }
@@ -0,0 +1,139 @@
+package net.pocrd.core;
+
+import com.alibaba.dubbo.remoting.exchange.ResponseCallback;
+import com.alibaba.dubbo.rpc.protocol.dubbo.FutureAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 跟踪一次请求中各个dubbo异步调用的完成情况，在全部调用返回后执行指定的后续处理
+ */
+final class ApiCallTracker {
+    private static final Logger logger = LoggerFactory.getLogger(ApiCallTracker.class);
+
+    private final AtomicIntegerArray done;
+    /**
+     * 尚未完成的调用数, 初始时额外加1, 避免在所有调用发起完成前触发后续处理
+     */
+    private final AtomicInteger      pending;
+    private final Runnable           onAllDone;
+    /**
+     * 按完成先后顺序记录已返回调用的序号
+     */
+    private final LinkedBlockingQueue<Integer> completed = new LinkedBlockingQueue<Integer>();
+    /**
+     * 后续处理是否已被触发(所有调用返回或请求超时), 保证后续处理只执行一次
+     */
+    private final AtomicBoolean                claimed   = new AtomicBoolean(false);
+
+    /**
+     * @param onAllDone 所有调用返回后执行的处理, 可以为null
+     */
+    ApiCallTracker(int count, Runnable onAllDone) {
+        this.done = new AtomicIntegerArray(count);
+        this.pending = new AtomicInteger(count + 1);
+        this.onAllDone = onAllDone;
+    }
+
+    /**
+     * 监听第index个调用的返回, future为null(接口被mock或短路)时视为已完成
+     */
+    void register(final int index, Future<?> future) {
+        if (future == null) {
+            markDone(index);
+            return;
+        }
+        FutureAdapter<?> fa = (FutureAdapter<?>)future;
+        final ResponseCallback callback = fa.getFuture().getCallback();
+        // future已完成时setCallback会在当前线程中立即执行回调, 后续再次包装本回调时不会重复通知原始回调
+        fa.getFuture().setCallback(new ResponseCallback() {
+            private final AtomicBoolean invoked = new AtomicBoolean(false);
+
+            @Override
+            public void done(Object response) {
+                if (invoked.compareAndSet(false, true)) {
+                    try {
+                        if (callback != null) {
+                            callback.done(response);
+                        }
+                    } finally {
+                        markDone(index);
+                    }
+                }
+            }
+
+            @Override
+            public void caught(Throwable exception) {
+                if (invoked.compareAndSet(false, true)) {
+                    try {
+                        if (callback != null) {
+                            callback.caught(exception);
+                        }
+                    } finally {
+                        markDone(index);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 所有调用均已发起, 此后最后一个返回的调用将触发后续处理
+     */
+    void arm() {
+        countDown();
+    }
+
+    /**
+     * 标记第index个调用已完成, 重复标记将被忽略
+     */
+    void markDone(int index) {
+        if (done.compareAndSet(index, 0, 1)) {
+            completed.offer(index);
+            countDown();
+        }
+    }
+
+    boolean isDone(int index) {
+        return done.get(index) == 1;
+    }
+
+    /**
+     * 等待下一个返回的调用, 返回其序号
+     */
+    int takeCompleted() throws InterruptedException {
+        return completed.take();
+    }
+
+    /**
+     * 在timeout毫秒内等待下一个返回的调用, 超时返回-1
+     */
+    int pollCompleted(long timeout) throws InterruptedException {
+        Integer index = completed.poll(timeout, TimeUnit.MILLISECONDS);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 获取执行后续处理的权利, 用于请求超时时不再等待未返回的调用, 只有第一次调用返回true
+     */
+    boolean claim() {
+        return claimed.compareAndSet(false, true);
+    }
+
+    private void countDown() {
+        if (pending.decrementAndGet() == 0 && onAllDone != null && claim()) {
+            try {
+                onAllDone.run();
+            } catch (Throwable t) {
+                logger.error("api call completion failed.", t);
+            }
+        }
+    }
+}
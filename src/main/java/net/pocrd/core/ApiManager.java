@@ -17,22 +17,36 @@ import org.slf4j.LoggerFactory;
 import sun.reflect.generics.reflectiveObjects.ParameterizedTypeImpl;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * 接口管理器，用于管理api的注册过程 目前使用HashMap作为存储容器是因为当前的ApiManager在应用启动时进行静态初始化，能保证线程 安全的进行数据插入操作。在这之后都是对HashMap的多线程只读访问。
+ * 接口管理器，用于管理api的注册过程。注册过程串行执行，每次注册完成后将所有可调用的接口构造为不可变的查找表并整体替换，
+ * 请求处理过程中对查找表的多线程只读访问不需要加锁，一次查找即可得到接口信息、执行器以及序列化器。
  *
  * @author rendong
  */
 public final class ApiManager {
     private static final Logger logger = LoggerFactory.getLogger(ApiManager.class);
-    private Map<String, HttpApiExecuter> nameToApi = new ConcurrentHashMap<String, HttpApiExecuter>();
+    private Map<String, ApiEntry> entries = new HashMap<String, ApiEntry>();
     private Map<String, ApiMethodInfo> apiInfos = new ConcurrentHashMap<String, ApiMethodInfo>();
+    /**
+     * 当前发布的接口查找表
+     */
+    private volatile ApiTable table = ApiTable.EMPTY;
     private static final String UNDER_SCORE = "_";
     private static final String DUBBO_INSTANCE_PKG_NAME = "com.alibaba.dubbo.common.bytecode";
 
@@ -45,15 +59,19 @@ public final class ApiManager {
 
     /**
      * jarfilename用来定位是哪个jar包出的问题
+     * 各接口的执行器并行生成, 生成失败的接口不会被注册, 不影响同一批次中的其他接口
      */
-    public void register(final String jarfilename, List<ApiMethodInfo> apis) {
+    public synchronized void register(final String jarfilename, List<ApiMethodInfo> apis) {
         if (apis == null) {
             return;
         }
+        long start = System.currentTimeMillis();
+        List<ApiMethodInfo> executables = new ArrayList<ApiMethodInfo>(apis.size());
         try {
+            Set<String> names = new HashSet<String>();
             for (ApiMethodInfo api : apis) {
                 if (CompileConfig.isDebug) {
-                    if (apiInfos.containsKey(api.methodName)) {
+                    if (apiInfos.containsKey(api.methodName) || !names.add(api.methodName)) {
                         throw new RuntimeException("duplicate definision for " + api.methodName);
                     }
                     if (api.state == ApiOpenState.DOCUMENT) {//只需要生成文档的api，不创建代理
@@ -61,29 +79,149 @@ public final class ApiManager {
                     }
                 }
                 if (api.state == ApiOpenState.OPEN || api.state == ApiOpenState.DEPRECATED) {
-                    apiInfos.put(api.methodName, api);
-                    nameToApi.put(api.methodName, HttpApiProvider.getApiExecuter(api.methodName, api));
+                    executables.add(api);
                 }
             }
         } catch (Throwable t) {
             logger.error("register api failed.jar file name:" + jarfilename, t);
             t.printStackTrace();
         }
+        long checked = System.currentTimeMillis();
+        List<Callable<HttpApiExecuter>> tasks = new ArrayList<Callable<HttpApiExecuter>>(executables.size());
+        for (final ApiMethodInfo api : executables) {
+            tasks.add(new Callable<HttpApiExecuter>() {
+                @Override
+                public HttpApiExecuter call() {
+                    return HttpApiProvider.getApiExecuter(api.methodName, api);
+                }
+            });
+        }
+        List<Future<HttpApiExecuter>> executers = invokeAll(tasks);
+        int count = 0;
+        for (int i = 0; i < executables.size(); i++) {
+            ApiMethodInfo api = executables.get(i);
+            try {
+                HttpApiExecuter executer = executers.get(i).get();
+                apiInfos.put(api.methodName, api);
+                entries.put(api.methodName, new ApiEntry(api, executer));
+                count++;
+            } catch (Throwable t) {
+                Throwable cause = t instanceof ExecutionException ? t.getCause() : t;
+                logger.error("register api failed.jar file name:" + jarfilename + " api:" + api.methodName, cause);
+                cause.printStackTrace();
+            }
+        }
+        long generated = System.currentTimeMillis();
+        table = ApiTable.build(entries.values());
+        long published = System.currentTimeMillis();
+        logger.info("register {} apis from {}, check:{}ms generate:{}ms publish:{}ms",
+                new Object[] { count, jarfilename, checked - start, generated - checked, published - generated });
     }
 
     /**
-     * 获取某接口信息
+     * 并行解析多个接口类, 解析过程中同时生成返回值的序列化类, 返回结果按services的遍历顺序排列
+     * 任一接口类解析失败时抛出异常
+     *
+     * @param services 接口类到服务实例的映射
      */
-    public ApiMethodInfo getApiMethodInfo(String name) {
-        ApiMethodInfo methodInfo = apiInfos.get(name);
-        if (CompileConfig.isDebug) {
-            if (methodInfo != null) {//DOCUMENT 不对外暴露
-                if (methodInfo.state == ApiOpenState.DOCUMENT || methodInfo.securityLevel == SecurityType.Document) {
-                    return null;
+    public static List<ApiMethodInfo> parseApi(Map<Class<?>, Object> services) {
+        long start = System.currentTimeMillis();
+        // 返回码先按顺序注册, 接口可能引用其他接口组定义的返回码
+        for (Class<?> clazz : services.keySet()) {
+            ApiGroup groupAnnotation = clazz.getAnnotation(ApiGroup.class);
+            if (groupAnnotation != null) {
+                parseReturnCode(groupAnnotation);
+            }
+        }
+        long coded = System.currentTimeMillis();
+        List<Callable<List<ApiMethodInfo>>> tasks = new ArrayList<Callable<List<ApiMethodInfo>>>(services.size());
+        for (final Map.Entry<Class<?>, Object> service : services.entrySet()) {
+            tasks.add(new Callable<List<ApiMethodInfo>>() {
+                @Override
+                public List<ApiMethodInfo> call() {
+                    return parseApi(service.getKey(), service.getValue());
+                }
+            });
+        }
+        List<ApiMethodInfo> apis = new ArrayList<ApiMethodInfo>();
+        for (Future<List<ApiMethodInfo>> f : invokeAll(tasks)) {
+            try {
+                List<ApiMethodInfo> list = f.get();
+                if (list != null) {
+                    apis.addAll(list);
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
                 }
+                throw new RuntimeException("parse api failed.", cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("parse api interrupted.", e);
+            }
+        }
+        logger.info("parse {} apis from {} classes, code:{}ms parse:{}ms",
+                new Object[] { apis.size(), services.size(), coded - start, System.currentTimeMillis() - coded });
+        return apis;
+    }
+
+    /**
+     * 使用与cpu核数相同的线程执行启动阶段的代码生成任务, 只有一个任务或单核时在当前线程中执行
+     * 生成的类由线程上下文类加载器加载, 工作线程沿用调用线程的上下文类加载器
+     */
+    private static <T> List<Future<T>> invokeAll(List<Callable<T>> tasks) {
+        int parallelism = Math.min(Runtime.getRuntime().availableProcessors(), tasks.size());
+        if (parallelism < 2) {
+            List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+            for (Callable<T> task : tasks) {
+                FutureTask<T> f = new FutureTask<T>(task);
+                f.run();
+                futures.add(f);
+            }
+            return futures;
+        }
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "api-register-" + index.incrementAndGet());
+                t.setDaemon(true);
+                t.setContextClassLoader(classLoader);
+                return t;
+            }
+        });
+        try {
+            return executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("api register interrupted.", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 获取某接口的信息、执行器以及序列化器, 接口不存在或不对外暴露时返回null
+     */
+    public ApiEntry getApiEntry(String name) {
+        ApiEntry entry = table.get(name);
+        if (CompileConfig.isDebug) {
+            if (entry != null && entry.info.securityLevel == SecurityType.Document) {//DOCUMENT 不对外暴露
+                return null;
             }
         }
-        return methodInfo;
+        return entry;
+    }
+
+    /**
+     * 获取某接口信息
+     */
+    public ApiMethodInfo getApiMethodInfo(String name) {
+        ApiEntry entry = getApiEntry(name);
+        return entry == null ? null : entry.info;
     }
 
     /**
@@ -97,7 +235,18 @@ public final class ApiManager {
      * 处理Api请求
      */
     public final Object processRequest(String name, String[] parameters) {
-        return nameToApi.get(name).execute(parameters);
+        return table.get(name).executer.execute(parameters);
+    }
+
+    /**
+     * 以批量方式处理同一接口的多组参数, 返回批量方法的原始返回值, 接口未声明批量方法时抛出UnsupportedOperationException
+     */
+    public final Object processBatchRequest(String name, String[][] parameters) {
+        HttpApiExecuter executer = table.get(name).executer;
+        if (!(executer instanceof BatchHttpApiExecuter)) {
+            throw new UnsupportedOperationException("batch method not defined. " + name);
+        }
+        return ((BatchHttpApiExecuter)executer).executeBatch(parameters);
     }
 
     /**
@@ -111,33 +260,41 @@ public final class ApiManager {
         return false;
     }
 
+    /**
+     * 注册接口组定义的返回码
+     */
+    private static void parseReturnCode(ApiGroup groupAnnotation) {
+        int minCode = groupAnnotation.minCode();
+        int maxCode = groupAnnotation.maxCode();
+        String groupName = groupAnnotation.name();
+        Class<?> returnCodeClass = groupAnnotation.codeDefine();
+        try {
+            for (Field f : returnCodeClass.getDeclaredFields()) {
+                if (isConstField(f) && AbstractReturnCode.class.isAssignableFrom(f.getType())) {
+                    AbstractReturnCode code = (AbstractReturnCode) f.get(null);
+                    if (code.getCode() < minCode || code.getCode() >= maxCode) {
+                        throw new RuntimeException(
+                                "code " + f.getName() + " which value is " + code.getCode() + " not in the scope [" + minCode + "," + maxCode
+                                        + ") in " + groupName);
+                    }
+                    code.setName(f.getName() + UNDER_SCORE + code.getCode());
+                    code.setService(groupName);
+                    ReturnCodeContainer.putReturnCodeSuper2Map(code);
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("parse code failed. " + returnCodeClass.getName() + " in " + groupName, e);
+        }
+    }
+
     public static List<ApiMethodInfo> parseApi(Class<?> clazz, Object serviceInstance) {
         ApiGroup groupAnnotation = clazz.getAnnotation(ApiGroup.class);
         if (groupAnnotation == null) {
             return null;
         }
         try {
-            int minCode = groupAnnotation.minCode();
-            int maxCode = groupAnnotation.maxCode();
             String groupName = groupAnnotation.name();
-            Class<?> returnCodeClass = groupAnnotation.codeDefine();
-            try {
-                for (Field f : returnCodeClass.getDeclaredFields()) {
-                    if (isConstField(f) && AbstractReturnCode.class.isAssignableFrom(f.getType())) {
-                        AbstractReturnCode code = (AbstractReturnCode) f.get(null);
-                        if (code.getCode() < minCode || code.getCode() >= maxCode) {
-                            throw new RuntimeException(
-                                    "code " + f.getName() + " which value is " + code.getCode() + " not in the scope [" + minCode + "," + maxCode
-                                            + ") in " + groupName);
-                        }
-                        code.setName(f.getName() + UNDER_SCORE + code.getCode());
-                        code.setService(groupName);
-                        ReturnCodeContainer.putReturnCodeSuper2Map(code);
-                    }
-                }
-            } catch (Exception e) {
-                throw new RuntimeException("parse code failed. " + returnCodeClass.getName() + " in " + groupName, e);
-            }
+            parseReturnCode(groupAnnotation);
             List<ApiMethodInfo> apis = new LinkedList<ApiMethodInfo>();
             for (Method mInfo : clazz.getMethods()) {
                 HttpApi api = mInfo.getAnnotation(HttpApi.class);
@@ -172,6 +329,7 @@ public final class ApiManager {
                     apiInfo.detail = api.detail();
                     apiInfo.methodName = api.name();
                     apiInfo.owner = api.owner();
+                    apiInfo.streaming = api.streaming();
                     apiInfo.groupOwner = groupAnnotation.owner();
                     DesignedErrorCode errors = mInfo.getAnnotation(DesignedErrorCode.class);
                     if (errors != null && errors.value() != null) {
@@ -205,6 +363,9 @@ public final class ApiManager {
                         }
                     }
                     apiInfo.proxyMethodInfo = mInfo;
+                    if (api.batchMethod().length() > 0) {
+                        apiInfo.batchMethodInfo = parseBatchMethod(clazz, mInfo, api.batchMethod());
+                    }
                     if (!CompileConfig.isDebug) {
                         if (serviceInstance == null) {
                             if (!clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers())) {
@@ -334,6 +495,9 @@ public final class ApiManager {
                                     throw new RuntimeException(
                                             "parse default value failed. " + pInfo.name + "  " + api.name() + "  " + clazz.getName(), e);
                                 }
+                                if (p.min() != Long.MIN_VALUE || p.max() != Long.MAX_VALUE) {
+                                    parseRange(p, apiInfo, pInfo);
+                                }
                                 break;
                             } else if (n.annotationType() == ApiAutowired.class) {
                                 ApiAutowired p = (ApiAutowired) n;
@@ -424,6 +588,28 @@ public final class ApiManager {
         return null;
     }
 
+    /**
+     * 设置整数参数的取值范围, 默认值也需要在取值范围内
+     */
+    private static void parseRange(ApiParameter p, ApiMethodInfo apiInfo, ApiParameterInfo pInfo) {
+        Class<?> type = pInfo.type;
+        if (type != byte.class && type != short.class && type != int.class && type != long.class) {
+            throw new RuntimeException("min/max only supported on byte/short/int/long parameter. method:" + apiInfo.methodName
+                    + "  parameter:" + pInfo.name);
+        }
+        if (p.min() > p.max()) {
+            throw new RuntimeException("min is greater than max. method:" + apiInfo.methodName + "  parameter:" + pInfo.name);
+        }
+        pInfo.min = p.min();
+        pInfo.max = p.max();
+        if (!pInfo.isRequired) {
+            long defaultValue = Long.parseLong(pInfo.defaultValue);
+            if (defaultValue < pInfo.min || defaultValue > pInfo.max) {
+                throw new RuntimeException("default value out of range. method:" + apiInfo.methodName + "  parameter:" + pInfo.name);
+            }
+        }
+    }
+
     /**
      * 默认值是否合法的检查
      * 设置默认值
@@ -501,6 +687,33 @@ public final class ApiManager {
         return serviceInstance.getClass().getName().contains(DUBBO_INSTANCE_PKG_NAME);
     }
 
+    /**
+     * 查找接口声明的批量方法, 批量方法的参数依次为接口各参数类型的数组, 返回值为接口返回值类型的数组或List
+     *
+     * @param clazz      接口所在的类
+     * @param mInfo      接口方法
+     * @param methodName 批量方法名
+     */
+    private static Method parseBatchMethod(Class<?> clazz, Method mInfo, String methodName) {
+        Class<?>[] parameterTypes = mInfo.getParameterTypes();
+        Class<?>[] batchParameterTypes = new Class<?>[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            batchParameterTypes[i] = Array.newInstance(parameterTypes[i], 0).getClass();
+        }
+        Method batchMethod;
+        try {
+            batchMethod = clazz.getMethod(methodName, batchParameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException("batch method not found " + clazz.getName() + " " + methodName, e);
+        }
+        Class<?> returnType = batchMethod.getReturnType();
+        if (!(returnType.isArray() && returnType.getComponentType() == mInfo.getReturnType()) && returnType != List.class) {
+            throw new RuntimeException("batch method must return an array of " + mInfo.getReturnType().getName() + " or a List. " + clazz.getName()
+                    + " " + methodName);
+        }
+        return batchMethod;
+    }
+
     /**
      * 解析返回结果,为每个api设定对应的serializer
      *
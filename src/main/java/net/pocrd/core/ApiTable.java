@@ -0,0 +1,74 @@
+package net.pocrd.core;
+
+import net.pocrd.entity.ApiEntry;
+
+import java.util.Collection;
+
+/**
+ * 不可变的接口查找表, 使用开放寻址的散列表存储, 查找过程不加锁
+ * 表的容量不小于接口数量的两倍, 绝大多数查找只需要一次字符串比较. 接口变更时构造新表整体替换
+ */
+final class ApiTable {
+    static final ApiTable EMPTY = new ApiTable(new ApiEntry[0]);
+
+    private final ApiEntry[] entries;
+    private final int        mask;
+    private final int        size;
+
+    private ApiTable(ApiEntry[] entries) {
+        this.entries = entries;
+        this.mask = entries.length - 1;
+        int count = 0;
+        for (ApiEntry e : entries) {
+            if (e != null) {
+                count++;
+            }
+        }
+        this.size = count;
+    }
+
+    static ApiTable build(Collection<ApiEntry> entries) {
+        int capacity = 2;
+        while (capacity < entries.size() * 2) {
+            capacity <<= 1;
+        }
+        ApiEntry[] table = new ApiEntry[capacity];
+        int mask = capacity - 1;
+        for (ApiEntry entry : entries) {
+            int i = indexFor(entry.name.hashCode(), mask);
+            while (table[i] != null) {
+                if (table[i].name.equals(entry.name)) {
+                    throw new RuntimeException("duplicate api entry " + entry.name);
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = entry;
+        }
+        return new ApiTable(table);
+    }
+
+    private static int indexFor(int h, int mask) {
+        // 混合高位, 避免接口名散列值低位相同时集中冲突
+        h ^= (h >>> 16);
+        return h & mask;
+    }
+
+    ApiEntry get(String name) {
+        if (name == null || size == 0) {
+            return null;
+        }
+        int i = indexFor(name.hashCode(), mask);
+        ApiEntry e;
+        while ((e = entries[i]) != null) {
+            if (e.name == name || e.name.equals(name)) {
+                return e;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+}
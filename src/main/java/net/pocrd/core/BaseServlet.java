@@ -10,7 +10,13 @@ import net.pocrd.document.Response;
 import net.pocrd.dubboext.DubboExtProperty;
 import net.pocrd.entity.*;
 import net.pocrd.responseEntity.KeyValuePair;
+import net.pocrd.util.AesHelper;
+import net.pocrd.util.AesOutputStream;
+import net.pocrd.util.AsymmetricEngine;
 import net.pocrd.util.Base64Util;
+import net.pocrd.util.CompressOutputStream;
+import net.pocrd.util.DeviceKeyCache;
+import net.pocrd.util.DeviceKeyStore;
 import net.pocrd.util.MiscUtil;
 import net.pocrd.util.POJOSerializerProvider;
 import net.pocrd.util.RawString;
@@ -18,6 +24,9 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpHeaders;
 import org.slf4j.*;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServlet;
@@ -25,14 +34,19 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.reflect.Array;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 /**
  * api入口servlet的基础类实现，封装了基本的业务流程和参数解析过程，将签名验证，api解析，序列化输出等工作的具体实现交由子类处理。
@@ -47,6 +61,8 @@ public abstract class BaseServlet extends HttpServlet {
     public static final    String               DEBUG_DUBBOVERSION       = "DUBBO-VERSION";
     //debug 模式下识别http header中dubbo.service.ip参数,将请求路由到指定的dubbo服务上
     public static final    String               DEBUG_DUBBOSERVICE_URL   = "DUBBO-SERVICE-URL";
+    //客户端可通过http header设置本次请求的时间预算(毫秒), 与_tmo参数等效; 时间预算只在网关侧生效, 同步调用时仍会等待dubbo自身的超时
+    public static final    String               HEADER_REQUEST_TIMEOUT   = "X-Request-Timeout";
     protected static final ApiMethodCall[]      EMPTY_METHOD_CALL_ARRAY  = new ApiMethodCall[0];
     private static final   String               HEADER_ORGIN             = "Access-Control-Allow-Origin";
     private static final   String               HEADER_METHOD            = "Access-Control-Allow-Method";
@@ -68,8 +84,12 @@ public abstract class BaseServlet extends HttpServlet {
     private static final   String               JSONARRAY_PREFIX         = "[";
     private static final   String               JSONARRAY_SURFIX         = "]";
     private static final   Serializer<Response> apiResponseSerializer    = POJOSerializerProvider.getSerializer(Response.class);
+    private static final   Pattern              ZERO_QVALUE              = Pattern.compile("0(\\.0*)?");
 
-    private ApiManager apiManager;
+    private          ApiManager     apiManager;
+    private volatile DeviceKeyCache deviceKeyCache;
+    private volatile DeviceKeyStore deviceKeyStore;
+    private volatile boolean        deviceKeyStoreCreated;
 
     public BaseServlet(ApiManager apiManager) {
         this.apiManager = apiManager;
@@ -121,6 +141,14 @@ public abstract class BaseServlet extends HttpServlet {
             }
         }
 
+        // 协商返回结果的压缩方式, 是否压缩在输出时根据返回结果大小确定
+        {
+            if (CommonConfig.getInstance().getCompression()) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                context.contentEncoding = parseAcceptEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            }
+        }
+
         {
             if (context.deviceIdStr != null && context.deviceIdStr.length() > 0) {
                 try {
@@ -141,6 +169,40 @@ public abstract class BaseServlet extends HttpServlet {
         }
     }
 
+    /**
+     * 从Accept-Encoding中选择支持的压缩方式, 优先使用gzip, 忽略q=0的编码; *只表示未被明确拒绝(q=0)的编码
+     */
+    private static String parseAcceptEncoding(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.length() == 0) {
+            return null;
+        }
+        boolean gzip = false, deflate = false, any = false, gzipRefused = false, deflateRefused = false;
+        for (String item : acceptEncoding.split(",")) {
+            String encoding = item;
+            boolean refused = false;
+            int index = item.indexOf(';');
+            if (index >= 0) {
+                encoding = item.substring(0, index);
+                String q = item.substring(index + 1).trim();
+                refused = q.startsWith("q=") && ZERO_QVALUE.matcher(q.substring(2).trim()).matches();
+            }
+            encoding = encoding.trim();
+            if (CompressOutputStream.GZIP.equalsIgnoreCase(encoding)) {
+                gzip |= !refused;
+                gzipRefused |= refused;
+            } else if (CompressOutputStream.DEFLATE.equalsIgnoreCase(encoding)) {
+                deflate |= !refused;
+                deflateRefused |= refused;
+            } else if ("*".equals(encoding)) {
+                any |= !refused;
+            }
+        }
+        if (gzip || (any && !gzipRefused)) {
+            return CompressOutputStream.GZIP;
+        }
+        return deflate || (any && !deflateRefused) ? CompressOutputStream.DEFLATE : null;
+    }
+
     private void setDeviceIDinCookie(ApiContext context, HttpServletResponse response) {
         if (context.appid == 0) {
             return;
@@ -182,10 +244,27 @@ public abstract class BaseServlet extends HttpServlet {
                     apiContext.clearExpiredUserToken = true;
                 }
             }
+            if (parseResult == ApiReturnCode.SUCCESS) {
+                decryptParameters(apiContext);
+                parseStreaming(apiContext, request);
+            }
         } catch (Exception e) {
             logger.error(SERVLET_MARKER, "init request failed.", e);
             fatalError = true;
         }
+        // 异步处理模式下由最后一个返回的dubbo调用触发后续的序列化与输出
+        boolean asyncFailed = false;
+        if (!fatalError && parseResult == ApiReturnCode.SUCCESS
+                && config.getServletAsync() && config.getDubboAsync() && request.isAsyncSupported()) {
+            try {
+                processAsyncRequest(apiContext, request, response);
+                return;
+            } catch (Throwable t) {
+                logger.error(SERVLET_MARKER, "start async request failed.", t);
+                fatalError = true;
+                asyncFailed = true;
+            }
+        }
         try {
             AccessLogger access = AccessLogger.getInstance();
             // 参数解析失败
@@ -200,102 +279,231 @@ public abstract class BaseServlet extends HttpServlet {
                     apiContext.costTime = (int)(System.currentTimeMillis() - apiContext.startTime);
                     access.logRequest();
                 }
-                for (ApiMethodCall call : apiContext.apiCallInfos) {
-                    MDC.put(CommonParameter.method, call.method.methodName);
-                    serializeCallResult(apiContext, call);
-                    // access log
-                    access.logAccess(call.costTime, call.method.methodName, call.getReturnCode(), call.getOriginCode(),
-                            call.resultLen, call.message.toString(), call.serviceLog == null ? "" : call.serviceLog);
-                }
-                MDC.remove(CommonParameter.method);
+                serializeAllCallResult(apiContext);
             }
         } catch (Throwable t) {
             logger.error(SERVLET_MARKER, "api execute error.", t);
             fatalError = true;
         } finally {
             try {
-                // token 解析失败，删除 token 以及标志位
-                if (apiContext.clearUserToken) {
-                    HashMap<String, String> map = CommonConfig.getInstance().getOriginWhiteList();
-                    // 删除 cookie 中的 user token
-                    Cookie tk_cookie = new Cookie(apiContext.appid + CommonParameter.token, "");
-                    tk_cookie.setMaxAge(0);
-                    tk_cookie.setHttpOnly(true);
-                    tk_cookie.setSecure(false);
-                    tk_cookie.setPath("/");
-
-                    // 删除 cookie 中的 user token
-                    Cookie stk_cookie = new Cookie(apiContext.appid + CommonParameter.stoken, "");
-                    stk_cookie.setMaxAge(0);
-                    stk_cookie.setHttpOnly(true);
-                    stk_cookie.setSecure(true);
-                    stk_cookie.setPath("/");
-
-                    // 删除 cookie 中的 登录标志位
-                    Cookie ct_cookie = new Cookie(apiContext.appid + "_ct", "");
-                    ct_cookie.setMaxAge(0);
-                    ct_cookie.setHttpOnly(false);
-                    ct_cookie.setSecure(false);
-                    ct_cookie.setPath("/");
-
-                    // 删除 用户信息
-                    Cookie userInfo_cookie = new Cookie(apiContext.appid + "_uinfo", "");
-                    userInfo_cookie.setMaxAge(0);
-                    userInfo_cookie.setHttpOnly(false);
-                    userInfo_cookie.setSecure(false);
-                    userInfo_cookie.setPath("/");
-                    if (apiContext.host != null && map.containsKey(apiContext.host)) {
-                        String domain = map.get(apiContext.host);
-                        tk_cookie.setDomain(domain);
-                        ct_cookie.setDomain(domain);
-                        userInfo_cookie.setDomain(domain);
-                    }
-                    response.addCookie(tk_cookie);
-                    response.addCookie(stk_cookie);
-                    response.addCookie(ct_cookie);
-                    response.addCookie(userInfo_cookie);
-                } else if (apiContext.clearExpiredUserToken) {
-                    // token 过期，删除标志位，将客户端 token 标记为失效
-                    HashMap<String, String> map = CommonConfig.getInstance().getOriginWhiteList();
-                    // 删除 cookie 标志位
-                    Cookie ct_cookie = new Cookie(apiContext.appid + "_ct", "");
-                    ct_cookie.setMaxAge(0);
-                    ct_cookie.setHttpOnly(false);
-                    ct_cookie.setSecure(false);
-                    ct_cookie.setPath("/");
-                    if (apiContext.host != null && map.containsKey(apiContext.host)) {
-                        ct_cookie.setDomain(map.get(apiContext.host));
-                    }
-                    response.addCookie(ct_cookie);
-                }
-                if (fatalError) {
-                    // 错误请求
-                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad Request");
-                } else if (parseResult != ApiReturnCode.SUCCESS) {
-                    // 访问被拒绝(如签名验证失败)
-                    Exception e = output(apiContext, parseResult, EMPTY_METHOD_CALL_ARRAY, response);
-                    if (e != null) {
-                        logger.error(SERVLET_MARKER, "output failed.", e);
-                    }
-                } else {
-                    Exception e = output(apiContext, ApiReturnCode.SUCCESS,
-                            apiContext.apiCallInfos.toArray(new ApiMethodCall[apiContext.apiCallInfos.size()]), response);
-                    if (e != null) {
-                        logger.error(SERVLET_MARKER, "output failed.", e);
+                writeResponse(apiContext, fatalError, parseResult, response);
+            } finally {
+                // 异步处理启动失败时已开始的异步请求需要结束, 否则容器会一直等待到异步超时
+                if (asyncFailed && request.isAsyncStarted()) {
+                    request.getAsyncContext().complete();
+                }
+            }
+        }
+    }
+
+    /**
+     * 以servlet 3.0异步方式执行请求, 发起所有dubbo调用后立即释放容器线程, 在所有调用返回后由容器线程池完成后续处理
+     * 所有调用发起并注册后才开始异步处理, 此前失败时请求仍以同步方式输出; 当前线程的ApiContext在最后一步才解绑
+     */
+    private void processAsyncRequest(final ApiContext apiContext, final HttpServletRequest request, final HttpServletResponse response) {
+        final Future<?>[] futures = issueAllApiCall(apiContext, request, response);
+        // tracker在arm之前不会触发后续处理, 此时asyncContext已创建
+        final AsyncContext[] holder = new AsyncContext[1];
+        final ApiCallTracker tracker = new ApiCallTracker(futures.length, new Runnable() {
+            @Override
+            public void run() {
+                final AsyncContext asyncContext = holder[0];
+                asyncContext.start(new Runnable() {
+                    @Override
+                    public void run() {
+                        completeAsyncRequest(apiContext, futures, asyncContext, request, response);
                     }
+                });
+            }
+        });
+        for (int i = 0; i < futures.length; i++) {
+            tracker.register(i, futures[i]);
+        }
+        final AsyncContext asyncContext = request.startAsync(request, response);
+        holder[0] = asyncContext;
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                // 请求时间预算耗尽, 未返回的调用将在收集结果时被标记为超时
+                if (tracker.claim()) {
+                    completeAsyncRequest(apiContext, futures, asyncContext, request, response);
                 }
-            } catch (Exception e) {
-                logger.error(SERVLET_MARKER, "output failed.", e);
             }
-            if (apiContext != null) {
-                apiContext.clear();
+
+            @Override
+            public void onComplete(AsyncEvent event) throws IOException {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) throws IOException {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) throws IOException {
             }
+        });
+        // 未设置请求截止时间时, 由 dubbo 调用自身的超时机制保证每个 future 最终都会返回
+        asyncContext.setTimeout(apiContext.deadline == 0 ? 0 : Math.max(apiContext.remainingTime(), 1));
+        ApiContext.detach();
+        try {
+            tracker.arm();
+        } catch (RuntimeException e) {
+            // 恢复绑定后由调用方以同步方式输出
+            ApiContext.release(ApiContext.attach(apiContext));
+            throw e;
         }
+        MDC.clear();
     }
 
+    /**
+     * 所有dubbo调用返回后, 在当前线程上恢复请求上下文并完成序列化与输出
+     */
+    private void completeAsyncRequest(ApiContext apiContext, Future<?>[] futures, AsyncContext asyncContext, HttpServletRequest request,
+            HttpServletResponse response) {
+        ApiContext previous = ApiContext.attach(apiContext);
+        boolean fatalError = false;
+        try {
+            MDC.put(CommonParameter.callId, apiContext.cid);
+            MDC.put(CommonParameter.clientIp, apiContext.clientIP);
+            if (apiContext.deviceIdStr != null) {
+                MDC.put(CommonParameter.deviceId, apiContext.deviceIdStr);
+            }
+            AccessLogger access = AccessLogger.getInstance();
+            try {
+                collectAllApiCall(apiContext, futures, request, response);
+            } finally {
+                apiContext.costTime = (int)(System.currentTimeMillis() - apiContext.startTime);
+                access.logRequest();
+            }
+            serializeAllCallResult(apiContext);
+        } catch (Throwable t) {
+            logger.error(SERVLET_MARKER, "api execute error.", t);
+            fatalError = true;
+        } finally {
+            try {
+                writeResponse(apiContext, fatalError, ApiReturnCode.SUCCESS, response);
+            } finally {
+                asyncContext.complete();
+                ApiContext.attach(previous);
+                ApiContext.release(apiContext);
+            }
+        }
+    }
+
+    /**
+     * 序列化尚未序列化的调用结果并记录访问日志
+     */
+    private void serializeAllCallResult(ApiContext apiContext) throws IOException {
+        // 流式输出时在写入响应流的同时完成序列化, 访问日志在输出完成后记录
+        if (apiContext.streaming) {
+            return;
+        }
+        AccessLogger access = AccessLogger.getInstance();
+        for (int i = 0; i < apiContext.apiCallInfos.size(); i++) {
+            ApiMethodCall call = apiContext.apiCallInfos.get(i);
+            MDC.put(CommonParameter.method, call.method.methodName);
+            if (!call.serialized) {
+                serializeCallResult(apiContext, call, i);
+            }
+            // access log
+            access.logAccess(call.costTime, call.method.methodName, call.getReturnCode(), call.getOriginCode(),
+                    call.resultLen, call.message.toString(), call.serviceLog == null ? "" : call.serviceLog);
+        }
+        MDC.remove(CommonParameter.method);
+    }
+
+    /**
+     * 写入cookie以及返回结果, 并清理请求上下文
+     */
+    private void writeResponse(ApiContext apiContext, boolean fatalError, AbstractReturnCode parseResult, HttpServletResponse response) {
+        try {
+            // token 解析失败，删除 token 以及标志位
+            if (apiContext.clearUserToken) {
+                HashMap<String, String> map = CommonConfig.getInstance().getOriginWhiteList();
+                // 删除 cookie 中的 user token
+                Cookie tk_cookie = new Cookie(apiContext.appid + CommonParameter.token, "");
+                tk_cookie.setMaxAge(0);
+                tk_cookie.setHttpOnly(true);
+                tk_cookie.setSecure(false);
+                tk_cookie.setPath("/");
+
+                // 删除 cookie 中的 user token
+                Cookie stk_cookie = new Cookie(apiContext.appid + CommonParameter.stoken, "");
+                stk_cookie.setMaxAge(0);
+                stk_cookie.setHttpOnly(true);
+                stk_cookie.setSecure(true);
+                stk_cookie.setPath("/");
+
+                // 删除 cookie 中的 登录标志位
+                Cookie ct_cookie = new Cookie(apiContext.appid + "_ct", "");
+                ct_cookie.setMaxAge(0);
+                ct_cookie.setHttpOnly(false);
+                ct_cookie.setSecure(false);
+                ct_cookie.setPath("/");
+
+                // 删除 用户信息
+                Cookie userInfo_cookie = new Cookie(apiContext.appid + "_uinfo", "");
+                userInfo_cookie.setMaxAge(0);
+                userInfo_cookie.setHttpOnly(false);
+                userInfo_cookie.setSecure(false);
+                userInfo_cookie.setPath("/");
+                if (apiContext.host != null && map.containsKey(apiContext.host)) {
+                    String domain = map.get(apiContext.host);
+                    tk_cookie.setDomain(domain);
+                    ct_cookie.setDomain(domain);
+                    userInfo_cookie.setDomain(domain);
+                }
+                response.addCookie(tk_cookie);
+                response.addCookie(stk_cookie);
+                response.addCookie(ct_cookie);
+                response.addCookie(userInfo_cookie);
+            } else if (apiContext.clearExpiredUserToken) {
+                // token 过期，删除标志位，将客户端 token 标记为失效
+                HashMap<String, String> map = CommonConfig.getInstance().getOriginWhiteList();
+                // 删除 cookie 标志位
+                Cookie ct_cookie = new Cookie(apiContext.appid + "_ct", "");
+                ct_cookie.setMaxAge(0);
+                ct_cookie.setHttpOnly(false);
+                ct_cookie.setSecure(false);
+                ct_cookie.setPath("/");
+                if (apiContext.host != null && map.containsKey(apiContext.host)) {
+                    ct_cookie.setDomain(map.get(apiContext.host));
+                }
+                response.addCookie(ct_cookie);
+            }
+            if (fatalError) {
+                // 错误请求
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad Request");
+            } else if (parseResult != ApiReturnCode.SUCCESS) {
+                // 访问被拒绝(如签名验证失败)
+                Exception e = output(apiContext, parseResult, EMPTY_METHOD_CALL_ARRAY, response);
+                if (e != null) {
+                    logger.error(SERVLET_MARKER, "output failed.", e);
+                }
+            } else {
+                Exception e = output(apiContext, ApiReturnCode.SUCCESS,
+                        apiContext.apiCallInfos.toArray(new ApiMethodCall[apiContext.apiCallInfos.size()]), response);
+                if (e != null) {
+                    logger.error(SERVLET_MARKER, "output failed.", e);
+                }
+            }
+        } catch (Exception e) {
+            logger.error(SERVLET_MARKER, "output failed.", e);
+        }
+        if (apiContext != null) {
+            apiContext.clear();
+        }
+    }
+
+    /**
+     * 将调用结果序列化到输出缓冲区, 并记录其在缓冲区中的位置和长度
+     *
+     * @param index 调用在本次请求中的声明顺序, 用于确定json格式下是否需要写入分隔符
+     */
     @SuppressWarnings("unchecked")
-    private void serializeCallResult(ApiContext apiContext, ApiMethodCall call) throws IOException {
+    private void serializeCallResult(ApiContext apiContext, ApiMethodCall call, int index) throws IOException {
         int oldSize = apiContext.outputStream.size();
+        call.byteStart = oldSize;
         try {
             switch (apiContext.format) {
                 case XML:
@@ -308,7 +516,7 @@ public abstract class BaseServlet extends HttpServlet {
                     }
                     break;
                 case JSON:
-                    if (apiContext.serializeCount > 0) {
+                    if (index > 0) {
                         apiContext.outputStream.write(ConstField.JSON_SPLIT);
                     }
                     if (call.result == null) {
@@ -322,7 +530,7 @@ public abstract class BaseServlet extends HttpServlet {
             }
             call.resultLen = apiContext.outputStream.size() - oldSize;
         } catch (Exception e) {
-            //序列化失败,重置输出流（Tips：writeTo函数实现 out.write(this.buffer, 0, this.count)，故重置index即完成重置）
+            //序列化失败,重置输出流（Tips：writeTo只输出size()以内的数据，故重置index即完成重置）
             apiContext.outputStream.setWriteIndex(oldSize);
             //回写空数据节点
             switch (apiContext.format) {
@@ -330,7 +538,7 @@ public abstract class BaseServlet extends HttpServlet {
                     apiContext.outputStream.write(ConstField.XML_EMPTY);
                     break;
                 case JSON:
-                    if (apiContext.serializeCount > 0) {
+                    if (index > 0) {
                         apiContext.outputStream.write(ConstField.JSON_SPLIT);
                     }
                     apiContext.outputStream.write(ConstField.JSON_EMPTY);
@@ -341,6 +549,8 @@ public abstract class BaseServlet extends HttpServlet {
             call.replaceReturnCode(ApiReturnCode.SERIALIZE_FAILED);
             logger.error(SERVLET_MARKER, "serialize object failed.", e);
         } finally {
+            call.byteLength = apiContext.outputStream.size() - oldSize;
+            call.serialized = true;
             apiContext.serializeCount++;
         }
     }
@@ -374,7 +584,7 @@ public abstract class BaseServlet extends HttpServlet {
             context.token = request.getParameter(CommonParameter.token);
             context.otoken = request.getParameter(CommonParameter.oauthToken);
             if (jsonpCallback != null) {
-                if (context.callbackRegex.matcher(jsonpCallback).matches()) {
+                if (ApiContext.callbackRegex.matcher(jsonpCallback).matches()) {
                     context.jsonpCallback = jsonpCallback.getBytes(ConstField.UTF8);
                 } else {
                     logger.error("unsupported callback name : " + jsonpCallback);
@@ -455,6 +665,11 @@ public abstract class BaseServlet extends HttpServlet {
             context.location = request.getParameter(CommonParameter.location);
         }
 
+        // 确定本次请求的截止时间
+        {
+            parseDeadline(context, request);
+        }
+
         // 构造请求字符串用于日志记录
         {
             parseRequestInfo(context, request);
@@ -495,6 +710,28 @@ public abstract class BaseServlet extends HttpServlet {
         }
     }
 
+    /**
+     * 确定本次请求的截止时间, 客户端传入的时间预算不能超过网关配置的默认值
+     */
+    private void parseDeadline(ApiContext context, HttpServletRequest request) {
+        int timeout = CommonConfig.getInstance().getRequestTimeout();
+        String value = request.getParameter(CommonParameter.timeout);
+        if (value == null || value.length() == 0) {
+            value = request.getHeader(HEADER_REQUEST_TIMEOUT);
+        }
+        if (value != null && value.length() > 0) {
+            try {
+                int t = Integer.parseInt(value.trim());
+                if (t > 0 && (timeout == 0 || t < timeout)) {
+                    timeout = t;
+                }
+            } catch (NumberFormatException e) {
+                logger.error(SERVLET_MARKER, "invalid request timeout " + value);
+            }
+        }
+        context.deadline = timeout > 0 ? context.startTime + timeout : 0;
+    }
+
     /**
      * 确定返回值的序列化类型
      */
@@ -515,6 +752,23 @@ public abstract class BaseServlet extends HttpServlet {
         }
     }
 
+    /**
+     * 确定是否以流式方式输出返回结果, 仅支持单独调用且返回结果需要序列化的接口
+     */
+    private void parseStreaming(ApiContext context, HttpServletRequest request) {
+        if (context.apiCallInfos.size() != 1) {
+            return;
+        }
+        ApiMethodInfo method = context.apiCallInfos.get(0).method;
+        if (method.returnType == RawString.class || method.returnType == net.pocrd.responseEntity.RawString.class) {
+            return;
+        }
+        if (context.format != SerializeType.JSON && context.format != SerializeType.XML) {
+            return;
+        }
+        context.streaming = method.streaming || "1".equals(request.getParameter(CommonParameter.streaming));
+    }
+
     /**
      * 解析调用者身份(在验证签名正确前此身份不受信任)
      */
@@ -541,11 +795,116 @@ public abstract class BaseServlet extends HttpServlet {
                     context.caller = parseCallerInfo(context, Base64Util.decode(context.deviceToken));
                 }
             }
+
+            // token中未携带设备密钥时从设备密钥存储中获取
+            CallerInfo caller = context.caller;
+            if (caller != null && caller.deviceId != 0 && (caller.key == null || caller.key.length == 0)) {
+                DeviceKeyStore store = getDeviceKeyStore();
+                if (store != null) {
+                    caller.key = store.get(caller.deviceId);
+                }
+            }
         } catch (Exception e) {
             logger.error(SERVLET_MARKER, "parse token failed.", e);
         }
     }
 
+    /**
+     * 已解析设备公钥的缓存, 首次使用时按配置创建
+     */
+    protected DeviceKeyCache getDeviceKeyCache() {
+        DeviceKeyCache cache = deviceKeyCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = deviceKeyCache;
+                if (cache == null) {
+                    CommonConfig config = CommonConfig.getInstance();
+                    cache = new DeviceKeyCache(config.getDeviceKeyAlgorithm(), config.getDeviceKeyCacheSize());
+                    deviceKeyCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 按deviceId保存设备密钥的堆外存储, 未配置net.pocrd.deviceKeyStoreCapacity时返回null
+     * 子类在设备注册或密钥更新时写入, parseCallerInfo解析出的调用者信息中缺少设备密钥时从中补充
+     */
+    protected DeviceKeyStore getDeviceKeyStore() {
+        if (!deviceKeyStoreCreated) {
+            synchronized (this) {
+                if (!deviceKeyStoreCreated) {
+                    CommonConfig config = CommonConfig.getInstance();
+                    if (config.getDeviceKeyStoreCapacity() > 0) {
+                        deviceKeyStore = new DeviceKeyStore(config.getDeviceKeyStoreCapacity(), config.getDeviceKeyStoreKeyLength(),
+                                config.getDeviceKeyStoreFile());
+                    }
+                    deviceKeyStoreCreated = true;
+                }
+            }
+        }
+        return deviceKeyStore;
+    }
+
+    /**
+     * 使用parseCallerInfo解析出的设备公钥(CallerInfo.key)验证设备签名, 供子类在验证设备签名类安全级别时使用
+     * 公钥的解析结果及已初始化的验证对象被缓存, 同一设备的后续请求不需要再次解析公钥
+     */
+    protected boolean verifyDeviceSignature(ApiContext context, byte[] sign, byte[] content) {
+        if (context.caller == null) {
+            return false;
+        }
+        return getDeviceKeyCache().verify(context.caller.key, sign, content);
+    }
+
+    /**
+     * 获取encryptionOnly接口返回结果的加密密钥, 返回null时不加密输出
+     * 返回结果在序列化的同时通过AesOutputStream分段加密写入response, 不需要在内存中保留完整的明文及密文
+     */
+    protected AesHelper getResponseEncryptKey(ApiContext context) {
+        return null;
+    }
+
+    /**
+     * 获取解密rsaEncrypted参数使用的私钥, 返回null时参数按客户端传入的原值传递给接口
+     */
+    protected AsymmetricEngine getParameterDecryptEngine(ApiContext context) {
+        return null;
+    }
+
+    /**
+     * 在签名验证通过后一次性解密合并请求中所有标记为rsaEncrypted的参数, 参数值为加密后的base64字符串, 解密后替换为原始字符串
+     * 所有参数共用当前线程已初始化的Cipher, 解密失败的参数被置为null, 由接口执行器按参数缺失处理
+     */
+    private void decryptParameters(ApiContext context) {
+        AsymmetricEngine engine = null;
+        for (ApiMethodCall call : context.apiCallInfos) {
+            ApiParameterInfo[] infos = call.method == null ? null : call.method.parameterInfos;
+            String[] parameters = call.parameters;
+            if (infos == null || parameters == null) {
+                continue;
+            }
+            for (int i = 0; i < infos.length && i < parameters.length; i++) {
+                if (!infos[i].isRsaEncrypted || parameters[i] == null || parameters[i].length() == 0) {
+                    continue;
+                }
+                if (engine == null) {
+                    engine = getParameterDecryptEngine(context);
+                    if (engine == null) {
+                        return;
+                    }
+                }
+                try {
+                    parameters[i] = new String(engine.decrypt(Base64Util.decode(parameters[i])), ConstField.UTF8);
+                } catch (Exception e) {
+                    logger.error(SERVLET_MARKER, "decrypt parameter failed. " + call.method.methodName + " " + infos[i].name, e);
+                    parameters[i] = null;
+                }
+            }
+        }
+    }
+
     /**
      * 处理请求
      *
@@ -556,14 +915,188 @@ public abstract class BaseServlet extends HttpServlet {
      */
     protected abstract Object processCall(String name, String[] params);
 
-    private void executeAllApiCall(ApiContext apiContext, HttpServletRequest request, HttpServletResponse response) {
+    /**
+     * 处理请求, 子类可以通过call.entry直接执行接口, 避免按接口名再次查找
+     *
+     * @param call   接口调用信息
+     * @param params 参数列表
+     *
+     * @return 返回结果
+     */
+    protected Object processCall(ApiMethodCall call, String[] params) {
+        return processCall(call.method.methodName, params);
+    }
+
+    /**
+     * 以一次批量方法调用处理同一接口的多个调用
+     *
+     * @param call   发起批量调用的调用信息, call.batch为合并的全部调用
+     * @param params 每个调用的参数列表, 调试模式下与processCall相同, 每个参数列表末尾追加了DUBBO-VERSION及DUBBO-SERVICE-URL
+     *
+     * @return 批量方法的返回结果, 第i个元素对应第i个调用
+     */
+    protected Object processBatchCall(ApiMethodCall call, String[][] params) {
+        return ((BatchHttpApiExecuter)call.entry.executer).executeBatch(params);
+    }
+
+    /**
+     * 将同一请求中对同一个声明了批量方法的接口的多次调用合并, 由其中第一个调用发起一次批量调用
+     * 批量调用只下传发起调用的businessId, 因此只合并businessId相同的调用
+     */
+    private void groupBatchApiCall(ApiContext apiContext) {
+        List<ApiMethodCall> calls = apiContext.apiCallInfos;
+        for (int i = 0; i < calls.size() - 1; i++) {
+            ApiMethodCall call = calls.get(i);
+            if (call.batched || call.entry == null || !(call.entry.executer instanceof BatchHttpApiExecuter) || call.method.staticMockValue != null) {
+                continue;
+            }
+            ArrayList<ApiMethodCall> batch = null;
+            for (int j = i + 1; j < calls.size(); j++) {
+                ApiMethodCall other = calls.get(j);
+                if (!other.batched && other.method == call.method
+                        && (call.businessId == null ? other.businessId == null : call.businessId.equals(other.businessId))) {
+                    if (batch == null) {
+                        batch = new ArrayList<ApiMethodCall>();
+                        batch.add(call);
+                    }
+                    batch.add(other);
+                    other.batched = true;
+                }
+            }
+            if (batch != null) {
+                call.batch = batch.toArray(new ApiMethodCall[batch.size()]);
+            }
+        }
+    }
+
+    /**
+     * 拆分批量调用, 其中的每个调用改为单独执行
+     */
+    private static void splitBatchApiCall(ApiMethodCall call) {
+        for (ApiMethodCall c : call.batch) {
+            c.batched = false;
+        }
+        call.batch = null;
+    }
+
+    /**
+     * 发起批量调用
+     *
+     * @param debugParameters 调试参数, 非调试模式下为null
+     */
+    private Object processBatchCall(ApiMethodCall call, String[] debugParameters) {
+        String[][] params = new String[call.batch.length][];
+        for (int i = 0; i < params.length; i++) {
+            params[i] = debugParameters == null ? call.batch[i].parameters : appendDebugParameters(call.batch[i].parameters, debugParameters);
+        }
+        return processBatchCall(call, params);
+    }
+
+    /**
+     * 调试情况下可以通过header或cookie指定处理该请求的dubbo服务实例, 返回值依次为DUBBO-VERSION及DUBBO-SERVICE-URL, cookie优先
+     */
+    private static String[] getDebugParameters(HttpServletRequest request) {
+        String[] debugParameters = new String[] { request.getHeader(DEBUG_DUBBOVERSION), request.getHeader(DEBUG_DUBBOSERVICE_URL) };
+        Cookie[] cs = request.getCookies();
+        if (cs != null) {
+            for (Cookie c : cs) {
+                if (c.getValue() != null && !c.getValue().isEmpty()) {
+                    if (DEBUG_DUBBOVERSION.equals(c.getName())) {
+                        debugParameters[0] = c.getValue();
+                    } else if (DEBUG_DUBBOSERVICE_URL.equals(c.getName())) {
+                        debugParameters[1] = c.getValue();
+                    }
+                }
+            }
+        }
+        return debugParameters;
+    }
+
+    /**
+     * 在接口参数列表末尾追加调试参数
+     */
+    private static String[] appendDebugParameters(String[] parameters, String[] debugParameters) {
+        int length = parameters == null ? 0 : parameters.length;
+        String[] params = new String[length + debugParameters.length];
+        if (parameters != null) {
+            System.arraycopy(parameters, 0, params, 0, length);
+        }
+        System.arraycopy(debugParameters, 0, params, length, debugParameters.length);
+        return params;
+    }
+
+    /**
+     * 将批量调用的结果按顺序分发给合并的各个调用, 批量调用失败时各调用返回相同的错误
+     */
+    private void dispatchBatchResult(ApiMethodCall call) {
+        ApiMethodCall[] calls = call.batch;
+        if (call.getReturnCode() == ApiReturnCode.SUCCESS.getCode()) {
+            Object result = call.result;
+            int size = result == null ? -1 : result instanceof List ? ((List<?>)result).size() : Array.getLength(result);
+            if (size == calls.length) {
+                for (int i = 0; i < calls.length; i++) {
+                    calls[i].result = call.method.wrapper.wrap(result instanceof List ? ((List<?>)result).get(i) : Array.get(result, i));
+                    calls[i].setReturnCode(ApiReturnCode.SUCCESS);
+                }
+            } else {
+                logger.error(SERVLET_MARKER,
+                        "batch method returned " + size + " results for " + calls.length + " calls. " + call.method.methodName);
+                call.result = null;
+                call.replaceReturnCode(ApiReturnCode.INTERNAL_SERVER_ERROR);
+                // 与发起批量调用的调用返回相同的编码
+                for (int i = 1; i < calls.length; i++) {
+                    calls[i].setReturnCode(ApiReturnCode.INTERNAL_SERVER_ERROR.getCode(), call.getReturnCode(), call.getReturnMessage());
+                }
+            }
+        } else {
+            call.result = null;
+            for (int i = 1; i < calls.length; i++) {
+                calls[i].setReturnCode(call.getOriginCode(), call.getReturnCode(), call.getReturnMessage());
+            }
+        }
+        for (int i = 1; i < calls.length; i++) {
+            calls[i].startTime = call.startTime;
+            calls[i].costTime = call.costTime;
+            calls[i].serviceLog = call.serviceLog;
+        }
+    }
+
+    private void executeAllApiCall(ApiContext apiContext, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Future<?>[] futures = issueAllApiCall(apiContext, request, response);
+        if (futures.length > 1 && CommonConfig.getInstance().getDubboAsync()) {
+            collectAllApiCallInCompletionOrder(apiContext, futures, request, response);
+        } else {
+            collectAllApiCall(apiContext, futures, request, response);
+        }
+    }
+
+    /**
+     * 发起所有api调用, dubbo以异步方式调用时返回每个调用对应的future
+     */
+    private Future<?>[] issueAllApiCall(ApiContext apiContext, HttpServletRequest request, HttpServletResponse response) {
         CommonConfig config = CommonConfig.getInstance();
         Future<?>[] futures = new Future[apiContext.apiCallInfos.size()];
+        if (futures.length > 1) {
+            groupBatchApiCall(apiContext);
+        }
         for (int count = 0; count < futures.length; count++) {
             ApiMethodCall call = apiContext.apiCallInfos.get(count);
+            // 已合并到批量调用中, 由发起批量调用的调用代为执行
+            if (call.batched) {
+                continue;
+            }
             apiContext.currentCall = call;
             MDC.put(CommonParameter.method, call.method.methodName);
             call.startTime = (count == 0) ? apiContext.startTime : System.currentTimeMillis();
+            // 请求时间预算已耗尽, 不再发起后续调用
+            long remaining = apiContext.remainingTime();
+            if (remaining <= 0) {
+                call.setReturnCode(ApiReturnCode.DUBBO_SERVICE_TIMEOUT_ERROR);
+                logger.error(SERVLET_MARKER, "request deadline exceeded before call " + call.method.methodName);
+                continue;
+            }
+            // 下传剩余的时间预算, 仅供服务端自行参考; dubbo不使用该附加参数缩短调用超时, 同步调用时服务端仍按自身配置的超时执行
+            RpcContext.getContext().setAttachment(CommonParameter.timeout, apiContext.deadline == 0 ? null : String.valueOf(remaining));
             // 下传调用ID
             RpcContext.getContext().setAttachment(CommonParameter.callId, apiContext.cid);
             RpcContext.getContext().setAttachment(CommonParameter.clientIp, apiContext.clientIP);
@@ -597,25 +1130,94 @@ public abstract class BaseServlet extends HttpServlet {
                 call.costTime = (int)(System.currentTimeMillis() - call.startTime);
             }
         }
+        return futures;
+    }
+
+    /**
+     * 等待并处理所有api调用的返回结果
+     */
+    private void collectAllApiCall(ApiContext apiContext, Future<?>[] futures, HttpServletRequest request, HttpServletResponse response) {
         for (int count = 0; count < futures.length; count++) {
-            ApiMethodCall call = apiContext.apiCallInfos.get(count);
-            MDC.put(CommonParameter.method, call.method.methodName);
-            // 接口可能被 mock 或被短路
-            if (futures[count] != null) {
-                executeApiCall(call, request, response, futures[count]);
-                call.costTime = (int)(System.currentTimeMillis() - call.startTime);
-            }
-            int display = call.getReturnCode();
-            if (display > 0) {
-                if (call.method.errors == null) {
-                    call.replaceReturnCode(ApiReturnCode.UNKNOWN_ERROR);
+            collectApiCall(apiContext.apiCallInfos.get(count), futures[count], request, response);
+        }
+    }
+
+    /**
+     * 按照返回的先后顺序处理合并调用中的各个api调用, 每个调用返回后立即序列化到输出缓冲区中,
+     * 输出时再按照声明顺序拼接各调用的序列化结果, 避免先声明的慢调用阻塞其他已返回调用的处理
+     */
+    private void collectAllApiCallInCompletionOrder(ApiContext apiContext, Future<?>[] futures, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        ApiCallTracker tracker = new ApiCallTracker(futures.length, null);
+        for (int count = 0; count < futures.length; count++) {
+            tracker.register(count, futures[count]);
+        }
+        tracker.arm();
+        boolean[] collected = new boolean[futures.length];
+        try {
+            for (int n = 0; n < futures.length; n++) {
+                int index;
+                if (apiContext.deadline == 0) {
+                    index = tracker.takeCompleted();
                 } else {
-                    // 异常编码过滤，保证接口只返回其声明过的异常编码给客户端
-                    if (Arrays.binarySearch(call.method.errors, display) < 0) {
-                        call.replaceReturnCode(ApiReturnCode.UNKNOWN_ERROR);
+                    index = tracker.pollCompleted(Math.max(apiContext.remainingTime(), 0));
+                    if (index < 0) {
+                        logger.error(SERVLET_MARKER, "request deadline exceeded, " + (futures.length - n) + " calls pending.");
+                        break;
+                    }
+                }
+                ApiMethodCall call = apiContext.apiCallInfos.get(index);
+                if (call.batched) {
+                    // 批量调用的结果在发起批量调用的调用返回后一并处理
+                    continue;
+                }
+                collected[index] = true;
+                collectApiCall(call, futures[index], request, response);
+                serializeCallResult(apiContext, call, index);
+                if (call.batch != null) {
+                    for (int i = 1; i < call.batch.length; i++) {
+                        int batchIndex = apiContext.apiCallInfos.indexOf(call.batch[i]);
+                        collected[batchIndex] = true;
+                        collectApiCall(call.batch[i], null, request, response);
+                        serializeCallResult(apiContext, call.batch[i], batchIndex);
                     }
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error(SERVLET_MARKER, "wait for api call interrupted.", e);
+        }
+        // 剩余的调用按声明顺序处理, 请求已超时或线程被中断时 future.get 将立即失败并被记录为调用失败
+        for (int count = 0; count < futures.length; count++) {
+            if (!collected[count]) {
+                collectApiCall(apiContext.apiCallInfos.get(count), futures[count], request, response);
+            }
+        }
+    }
+
+    /**
+     * 获取单个api调用的返回结果并过滤未声明的异常编码
+     */
+    private void collectApiCall(ApiMethodCall call, Future<?> future, HttpServletRequest request, HttpServletResponse response) {
+        MDC.put(CommonParameter.method, call.method.methodName);
+        // 接口可能被 mock 或被短路
+        if (future != null) {
+            executeApiCall(call, request, response, future);
+            call.costTime = (int)(System.currentTimeMillis() - call.startTime);
+        }
+        if (call.batch != null) {
+            dispatchBatchResult(call);
+        }
+        int display = call.getReturnCode();
+        if (display > 0) {
+            if (call.method.errors == null) {
+                call.replaceReturnCode(ApiReturnCode.UNKNOWN_ERROR);
+            } else {
+                // 异常编码过滤，保证接口只返回其声明过的异常编码给客户端
+                if (Arrays.binarySearch(call.method.errors, display) < 0) {
+                    call.replaceReturnCode(ApiReturnCode.UNKNOWN_ERROR);
+                }
+            }
         }
     }
 
@@ -649,48 +1251,22 @@ public abstract class BaseServlet extends HttpServlet {
                         }
                     });
                 }
-                // 调试情况下可以通过cookie指定处理该请求的dubbo服务实例
-                if (CompileConfig.isDebug) {
-                    Cookie[] cs = request.getCookies();
-                    String[] parameters = new String[call.parameters == null ? 2 : call.parameters.length + 2];
-                    if (call.parameters != null) {
-                        for (int i = 0; i < call.parameters.length; i++) {
-                            parameters[i] = call.parameters[i];
-                        }
-                    }
-                    parameters[call.parameters.length] = request.getHeader(DEBUG_DUBBOVERSION);
-                    parameters[call.parameters.length + 1] = request.getHeader(DEBUG_DUBBOSERVICE_URL);
-                    if (cs != null) {
-                        for (Cookie c : cs) {
-                            if (DEBUG_DUBBOVERSION.equals(c.getName())) {
-                                if (c.getValue() != null && !c.getValue().isEmpty()) {
-                                    parameters[call.parameters.length] = c.getValue();
-                                }
-                            }
-                            if (DEBUG_DUBBOSERVICE_URL.equals(c.getName())) {
-                                if (c.getValue() != null && !c.getValue().isEmpty()) {
-                                    parameters[call.parameters.length + 1] = c.getValue();
-                                }
-                            }
-                        }
-                    }
-                    if (future == null) {
-                        call.result = processCall(call.method.methodName, parameters);
-                        if (RpcContext.getContext().getFuture() != null) {
-                            return;
-                        }
+                if (future == null) {
+                    // 调试情况下可以通过cookie指定处理该请求的dubbo服务实例
+                    String[] debugParameters = CompileConfig.isDebug ? getDebugParameters(request) : null;
+                    if (call.batch != null) {
+                        call.result = processBatchCall(call, debugParameters);
                     } else {
-                        call.result = call.method.wrapper.wrap(future.get());
+                        call.result = processCall(call, debugParameters == null ? call.parameters
+                                : appendDebugParameters(call.parameters, debugParameters));
                     }
-                } else {
-                    if (future == null) {
-                        call.result = processCall(call.method.methodName, call.parameters);
-                        if (RpcContext.getContext().getFuture() != null) {
-                            return;
-                        }
-                    } else {
-                        call.result = call.method.wrapper.wrap(future.get());
+                    if (RpcContext.getContext().getFuture() != null) {
+                        return;
                     }
+                } else {
+                    // 批量调用的结果在dispatchBatchResult中逐个封装
+                    Object result = getFutureResult(context, future);
+                    call.result = call.batch != null ? result : call.method.wrapper.wrap(result);
                 }
             }
             //dubbo接口能够获取到RpcContext中的notification,非dubbo的接口errorCode不是通过RpcContext传递的。
@@ -786,6 +1362,12 @@ public abstract class BaseServlet extends HttpServlet {
             }
             call.setReturnCode(ApiReturnCode.SUCCESS);
         } catch (ReturnCodeException rce) {//APIGW内部异常传递,RuntimeException
+            if (call.batch != null && future == null && rce.getCode() == ApiReturnCode.PARAMETER_ERROR) {
+                // 参数验证在发起批量调用前完成, 此时批量方法未被调用, 拆分后逐个执行使每个调用返回各自的结果
+                splitBatchApiCall(call);
+                executeApiCall(call, request, response, null);
+                return;
+            }
             call.setReturnCode(rce.getCode());
             if (rce.getCode() == ApiReturnCode.PARAMETER_ERROR) {
                 logger.error(SERVLET_MARKER, "servlet catch an api error. " + rce.getMessage());
@@ -801,7 +1383,7 @@ public abstract class BaseServlet extends HttpServlet {
                 ServiceException se = (ServiceException)t.getCause();
                 logger.error(SERVLET_MARKER, "inner service exception. code:" + se.getCode() + " msg:" + se.getMsg());
                 call.setReturnCode(se.getCode(), se.getDisplayCode(), se.getMsg());
-            } else if (t.getCause() instanceof com.alibaba.dubbo.remoting.TimeoutException) {
+            } else if (t instanceof TimeoutException || t.getCause() instanceof com.alibaba.dubbo.remoting.TimeoutException) {
                 logger.error(SERVLET_MARKER, "dubbo timeout.", t);
                 call.setReturnCode(ApiReturnCode.DUBBO_SERVICE_TIMEOUT_ERROR);
             } else if (t.getCause() instanceof com.alibaba.dubbo.remoting.RemotingException || t instanceof com.alibaba.dubbo.rpc.RpcException) {
@@ -816,6 +1398,21 @@ public abstract class BaseServlet extends HttpServlet {
         }
     }
 
+    /**
+     * 获取异步调用的返回结果, 设置了请求截止时间时最多等待到截止时间
+     */
+    private Object getFutureResult(ApiContext context, Future<?> future) throws Exception {
+        if (context.deadline == 0) {
+            return future.get();
+        }
+        long remaining = context.remainingTime();
+        // dubbo 会将小于等于0的等待时间视为默认超时时间, 这里直接判定超时
+        if (remaining <= 0 && !future.isDone()) {
+            throw new TimeoutException("request deadline exceeded.");
+        }
+        return future.get(Math.max(remaining, 1), TimeUnit.MILLISECONDS);
+    }
+
     /**
      * 从userToken中解析调用者信息
      */
@@ -831,11 +1428,25 @@ public abstract class BaseServlet extends HttpServlet {
      */
     private Exception output(ApiContext apiContext, AbstractReturnCode code, ApiMethodCall[] calls, HttpServletResponse response) {
         Exception outputException = null;
-
+        CompressOutputStream compressor = null;
         try {
-            if (calls.length == 1 && (calls[0].method.returnType == RawString.class
+            OutputStream output = response.getOutputStream();
+            AesOutputStream encryptor = null;
+            AesHelper encryptKey = isEncryptionOnly(calls) ? getResponseEncryptKey(apiContext) : null;
+            if (encryptKey != null) {
+                // 密文不再是gzip/deflate格式, 加密输出时不声明Content-Encoding
+                encryptor = encryptKey.getEncryptStream(output);
+                output = encryptor;
+            } else if (apiContext.contentEncoding != null
+                    && (apiContext.streaming || apiContext.outputStream.size() >= CommonConfig.getInstance().getCompressThreshold())) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, apiContext.contentEncoding);
+                compressor = CompressOutputStream.getInstance(apiContext.contentEncoding, output);
+                output = compressor;
+            }
+            if (apiContext.streaming && calls.length == 1) {
+                outputStreaming(apiContext, code, calls[0], output);
+            } else if (calls.length == 1 && (calls[0].method.returnType == RawString.class
                     || calls[0].method.returnType == net.pocrd.responseEntity.RawString.class)) {// rawString的处理，将dubbo service返回的结果直接输出
-                OutputStream output = response.getOutputStream();
                 if (code == ApiReturnCode.SUCCESS && calls[0].getReturnCode() == ApiReturnCode.SUCCESS.getCode()) {
                     apiContext.outputStream.writeTo(output);
                 } else if (code != ApiReturnCode.SUCCESS) {
@@ -844,35 +1455,13 @@ public abstract class BaseServlet extends HttpServlet {
                     output.write(calls[0].getReturnMessage().getBytes(ConstField.UTF8));
                 }
             } else {
-                Response apiResponse = new Response();
-                apiResponse.systime = System.currentTimeMillis();
-                apiResponse.code = code.getDisplay().getCode();
-                apiResponse.stateList = new ArrayList<CallState>(calls.length);
-                if (apiContext.cid != null) {
-                    apiResponse.cid = apiContext.cid;
-                }
-                for (ApiMethodCall call : calls) {
-                    CallState state = new CallState();
-                    state.code = call.getReturnCode();
-                    state.msg = call.getReturnMessage();
-                    if (CompileConfig.isDebug) {
-                        if (call.getReturnCode() != call.getOriginCode()) {
-                            state.msg = state.msg + ":" + call.getOriginCode();// debug模式将实际errorcode外露到msg中
-                        }
-                    }
-                    // TODO: get message i10n
-                    state.length = call.resultLen;
-                    apiResponse.stateList.add(state);
-                }
-                apiResponse.notificationList = apiContext.getNotifications();
-
-                OutputStream output = response.getOutputStream();
+                Response apiResponse = buildResponse(apiContext, code, calls);
 
                 switch (apiContext.format) {
                     case XML:
                         output.write(ConstField.XML_START);
                         apiResponseSerializer.toXml(apiResponse, output, true);
-                        apiContext.outputStream.writeTo(output);
+                        writeCallResults(apiContext, calls, output);
                         output.write(ConstField.XML_END);
                         break;
                     case JSON:
@@ -883,7 +1472,7 @@ public abstract class BaseServlet extends HttpServlet {
                         output.write(ConstField.JSON_START);
                         apiResponseSerializer.toJson(apiResponse, output, true);
                         output.write(ConstField.JSON_CONTENT);
-                        apiContext.outputStream.writeTo(output);
+                        writeCallResults(apiContext, calls, output);
                         output.write(ConstField.JSON_END);
                         if (apiContext.jsonpCallback != null) {
                             output.write(ConstField.JSONP_END);
@@ -891,9 +1480,182 @@ public abstract class BaseServlet extends HttpServlet {
                         break;
                 }
             }
+            if (compressor != null) {
+                compressor.finish();
+                compressor = null;
+            }
+            if (encryptor != null) {
+                encryptor.finish();
+            }
         } catch (Exception e) {
             outputException = e;
+        } finally {
+            // 输出失败时线程复用的压缩流不再持有响应流
+            if (compressor != null) {
+                compressor.discard();
+            }
         }
         return outputException;
     }
+
+    /**
+     * 请求中包含encryptionOnly接口时整个返回结果都需要加密
+     */
+    private static boolean isEncryptionOnly(ApiMethodCall[] calls) {
+        for (ApiMethodCall call : calls) {
+            if (call.method != null && call.method.encryptionOnly) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 构造返回结果的状态信息
+     */
+    private Response buildResponse(ApiContext apiContext, AbstractReturnCode code, ApiMethodCall[] calls) {
+        Response apiResponse = new Response();
+        apiResponse.systime = System.currentTimeMillis();
+        apiResponse.code = code.getDisplay().getCode();
+        apiResponse.stateList = new ArrayList<CallState>(calls.length);
+        if (apiContext.cid != null) {
+            apiResponse.cid = apiContext.cid;
+        }
+        for (ApiMethodCall call : calls) {
+            CallState state = new CallState();
+            state.code = call.getReturnCode();
+            state.msg = call.getReturnMessage();
+            if (CompileConfig.isDebug) {
+                if (call.getReturnCode() != call.getOriginCode()) {
+                    state.msg = state.msg + ":" + call.getOriginCode();// debug模式将实际errorcode外露到msg中
+                }
+            }
+            // TODO: get message i10n
+            state.length = call.resultLen;
+            apiResponse.stateList.add(state);
+        }
+        apiResponse.notificationList = apiContext.getNotifications();
+        return apiResponse;
+    }
+
+    /**
+     * 以流式方式输出单个调用的返回结果, 先写出固定的前缀并提交响应头(未设置Content-Length时容器以chunked方式传输),
+     * 序列化结果直接写入响应流, 调用状态在返回结果之后输出, 如:{"content":[...],"stat":{...}}
+     * 已有数据写出后序列化失败将无法回退, 此时中断输出, 由客户端按不完整的响应处理
+     */
+    @SuppressWarnings("unchecked")
+    private void outputStreaming(ApiContext apiContext, AbstractReturnCode code, ApiMethodCall call, OutputStream output)
+            throws IOException {
+        CountingOutputStream counter = new CountingOutputStream(output);
+        MDC.put(CommonParameter.method, call.method.methodName);
+        try {
+            switch (apiContext.format) {
+                case XML:
+                    output.write(ConstField.XML_START);
+                    output.flush();
+                    try {
+                        if (call.result == null) {
+                            output.write(ConstField.XML_EMPTY);
+                        } else {
+                            ((Serializer<Object>)call.method.serializer).toXml(call.result, counter, true);
+                        }
+                    } catch (Exception e) {
+                        onStreamingSerializeFailed(call, counter, e);
+                        output.write(ConstField.XML_EMPTY);
+                    }
+                    call.resultLen = counter.count;
+                    apiResponseSerializer.toXml(buildResponse(apiContext, code, new ApiMethodCall[] { call }), output, true);
+                    output.write(ConstField.XML_END);
+                    break;
+                case JSON:
+                    if (apiContext.jsonpCallback != null) {
+                        output.write(apiContext.jsonpCallback);
+                        output.write(ConstField.JSONP_START);
+                    }
+                    output.write(ConstField.JSON_STREAM_START);
+                    output.flush();
+                    try {
+                        if (call.result == null) {
+                            output.write(ConstField.JSON_EMPTY);
+                        } else {
+                            ((Serializer<Object>)call.method.serializer).toJson(call.result, counter, true);
+                        }
+                    } catch (Exception e) {
+                        onStreamingSerializeFailed(call, counter, e);
+                        output.write(ConstField.JSON_EMPTY);
+                    }
+                    call.resultLen = counter.count;
+                    output.write(ConstField.JSON_STREAM_STAT);
+                    apiResponseSerializer.toJson(buildResponse(apiContext, code, new ApiMethodCall[] { call }), output, true);
+                    output.write(ConstField.JSON_STREAM_END);
+                    if (apiContext.jsonpCallback != null) {
+                        output.write(ConstField.JSONP_END);
+                    }
+                    break;
+            }
+            call.serialized = true;
+            apiContext.serializeCount++;
+        } finally {
+            AccessLogger.getInstance().logAccess(call.costTime, call.method.methodName, call.getReturnCode(), call.getOriginCode(),
+                    counter.count, call.message.toString(), call.serviceLog == null ? "" : call.serviceLog);
+            MDC.remove(CommonParameter.method);
+        }
+    }
+
+    /**
+     * 流式输出时序列化失败, 尚未写出数据时改为输出空数据节点, 否则中断输出
+     */
+    private void onStreamingSerializeFailed(ApiMethodCall call, CountingOutputStream counter, Exception e) throws IOException {
+        call.replaceReturnCode(ApiReturnCode.SERIALIZE_FAILED);
+        if (counter.count > 0) {
+            throw new IOException("serialize object failed after " + counter.count + " bytes streamed.", e);
+        }
+        logger.error(SERVLET_MARKER, "serialize object failed.", e);
+    }
+
+    /**
+     * 记录写入字节数的输出流, 用于统计流式输出的返回结果长度
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private       int          count = 0;
+
+        private CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * 按照声明顺序输出各调用的序列化结果, 调用以完成顺序序列化时按各段位置直接从缓冲区写出
+     */
+    private void writeCallResults(ApiContext apiContext, ApiMethodCall[] calls, OutputStream output) throws IOException {
+        int expected = 0;
+        boolean ordered = true;
+        for (ApiMethodCall call : calls) {
+            if (call.byteStart != expected) {
+                ordered = false;
+                break;
+            }
+            expected += call.byteLength;
+        }
+        if (ordered && expected == apiContext.outputStream.size()) {
+            apiContext.outputStream.writeTo(output);
+        } else {
+            for (ApiMethodCall call : calls) {
+                apiContext.outputStream.writeTo(output, call.byteStart, call.byteLength);
+            }
+        }
+    }
 }
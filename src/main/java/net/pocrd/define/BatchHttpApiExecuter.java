@@ -0,0 +1,12 @@
+package net.pocrd.define;
+
+/**
+ * 声明了批量方法的接口的执行器, 未声明批量方法的接口的执行器只实现HttpApiExecuter
+ */
+public interface BatchHttpApiExecuter extends HttpApiExecuter {
+    /**
+     * 以每组参数调用一次接口的方式解析全部参数后调用一次批量方法, 返回批量方法的原始返回值(数组或List),
+     * 任一组参数验证失败时抛出ReturnCodeException, 此时批量方法未被调用
+     */
+    Object executeBatch(String[][] parameters);
+}
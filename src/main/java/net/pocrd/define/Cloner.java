@@ -0,0 +1,11 @@
+package net.pocrd.define;
+
+/**
+ * 实体对象的复制, 由POJOClonerProvider按实体类生成
+ */
+public interface Cloner<T> {
+    /**
+     * 返回与instance内容相同且不共享可变状态的新对象, instance为null时返回null
+     */
+    T copy(T instance);
+}
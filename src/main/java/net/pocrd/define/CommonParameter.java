@@ -91,6 +91,14 @@ public final class CommonParameter {
     @Description("当前站点host")
     public static final String host = "_host";
 
+    @Description("request timeout 客户端愿意等待的最长时间(毫秒), 不能超过网关配置的默认值. 也可以通过http header X-Request-Timeout 传入. "
+            + "仅在网关侧生效: 网关不再发起超出时间预算的调用, 以dubbo异步方式调用时不再等待超出时间预算的返回; "
+            + "剩余时间以_tmo附加参数下传, dubbo本身不据此缩短调用超时, 服务端仍按自身配置的超时执行")
+    public static final String timeout = "_tmo";
+
+    @Description("取值为1时以流式方式输出单个接口的返回结果, 状态信息在返回结果之后输出, 仅对单独调用生效")
+    public static final String streaming = "_stm";
+
     /**
      * 用于内部参数注入的标识符，用于指示在第三方集成的场景下网关向后台传递整个post表单
      */
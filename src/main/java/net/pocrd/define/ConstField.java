@@ -15,6 +15,9 @@ public class ConstField {
     public static final byte[]  JSON_EMPTY           = "{}".getBytes(UTF8);
     public static final byte[]  JSONP_START          = "(".getBytes(UTF8);
     public static final byte[]  JSONP_END            = ");".getBytes(UTF8);
+    public static final byte[]  JSON_STREAM_START    = "{\"content\":[".getBytes(UTF8);
+    public static final byte[]  JSON_STREAM_STAT     = "],\"stat\":".getBytes(UTF8);
+    public static final byte[]  JSON_STREAM_END      = "}".getBytes(UTF8);
     public static final String  ERROR_CODE_EXT       = "net.pocrd.ERROR_CODE_EXT";
     public static final String  SET_COOKIE_TOKEN     = "net.pocrd.SET_COOKIE_TOKEN";
     public static final String  SET_COOKIE_STOKEN    = "net.pocrd.SET_COOKIE_STOKEN";
@@ -1,6 +1,5 @@
 package net.pocrd.define;
 
-import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.serializer.SerializerFeature;
 import net.pocrd.entity.ApiReturnCode;
 import net.pocrd.entity.ReturnCodeException;
@@ -117,7 +116,7 @@ public interface Serializer<T> {
      * note:PojoSerializer不支持动态类型，要让SerializerProvider支持要写很多恶心的代码，还是直接写java代码了
      */
     public static final Serializer<ObjectArrayResp> objectArrayRespSerializer = new Serializer<ObjectArrayResp>() {
-        byte[][] bs = new byte[8][];
+        byte[][] bs = new byte[11][];
 
         {
             bs[0] = "<ObjectArrayResp>".getBytes(ConstField.UTF8);
@@ -128,6 +127,9 @@ public interface Serializer<T> {
             bs[5] = "</ObjectArrayResp>".getBytes(ConstField.UTF8);
             bs[6] = "<![CDATA[".getBytes(ConstField.UTF8);
             bs[7] = "]]>".getBytes(ConstField.UTF8);
+            bs[8] = "{\"value\":[".getBytes(ConstField.UTF8);
+            bs[9] = "]}".getBytes(ConstField.UTF8);
+            bs[10] = "{}".getBytes(ConstField.UTF8);
         }
 
         @Override
@@ -172,7 +174,22 @@ public interface Serializer<T> {
         @Override
         public void toJson(ObjectArrayResp instance, OutputStream out, boolean isRoot) {
             try {
-                out.write(JSON.toJSONBytes(instance, ApiSerializerFeature.SERIALIZER_FEATURES));
+                if (instance == null) {
+                    POJOSerializerProvider.writeJsonValue(out, null);
+                    return;
+                }
+                if (instance.value != null) {
+                    out.write(bs[8]);
+                    for (int i = 0; i < instance.value.length; i++) {
+                        if (i > 0) {
+                            out.write(',');
+                        }
+                        POJOSerializerProvider.writeJsonValue(out, instance.value[i]);
+                    }
+                    out.write(bs[9]);
+                } else {
+                    out.write(bs[10]);
+                }
             } catch (IOException localIOException) {
                 throw new ReturnCodeException(ApiReturnCode.UNKNOWN_ERROR, localIOException);
             }
@@ -1,9 +1,9 @@
 package net.pocrd.entity;
 
-import com.alibaba.dubbo.rpc.protocol.thrift.io.RandomAccessByteArrayOutputStream;
 import net.pocrd.core.LocalException;
 import net.pocrd.define.SerializeType;
 import net.pocrd.responseEntity.KeyValuePair;
+import net.pocrd.util.ChunkedByteArrayOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -14,6 +14,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -38,10 +40,59 @@ public class ApiContext {
         return current;
     }
 
+    /**
+     * 异步请求处理完成后归还的ApiContext, 供解绑后的线程复用
+     */
+    private static final ConcurrentLinkedQueue<ApiContext> pool             = new ConcurrentLinkedQueue<ApiContext>();
+    private static final AtomicInteger                     pooledCount      = new AtomicInteger(0);
+    private static final int                               MAX_POOLED_COUNT = 64;
+
+    /**
+     * 将当前线程的ApiContext与线程解绑, 用于在其他线程中继续处理异步请求
+     * 当前线程改为绑定一个复用的ApiContext, 后续请求仍可使用已分配好的输出缓冲区, 解绑的对象处理完成后通过release归还
+     */
+    public static ApiContext detach() {
+        ApiContext current = getCurrent();
+        ApiContext replacement = pool.poll();
+        if (replacement == null) {
+            replacement = new ApiContext();
+        } else {
+            pooledCount.decrementAndGet();
+        }
+        threadLocal.set(replacement);
+        return current;
+    }
+
+    /**
+     * 归还由detach解绑且已处理完成的ApiContext, 归还前需已调用clear
+     */
+    public static void release(ApiContext context) {
+        if (context != null && context != threadLocal.get()) {
+            if (pooledCount.incrementAndGet() <= MAX_POOLED_COUNT) {
+                pool.offer(context);
+            } else {
+                pooledCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 将ApiContext绑定到当前线程, 返回当前线程之前绑定的ApiContext
+     */
+    public static ApiContext attach(ApiContext context) {
+        ApiContext previous = threadLocal.get();
+        if (context == null) {
+            threadLocal.remove();
+        } else {
+            threadLocal.set(context);
+        }
+        return previous;
+    }
+
     private ApiContext() {
     }
 
-    public final Pattern callbackRegex = Pattern.compile("^[A-Za-z]\\w{5,64}$");
+    public static final Pattern callbackRegex = Pattern.compile("^[A-Za-z]\\w{5,64}$");
 
     /**
      * 调用资源描述
@@ -162,6 +213,18 @@ public class ApiContext {
      */
     public int costTime;
 
+    /**
+     * 本次请求的截止时间(毫秒时间戳), 为0时不限制
+     */
+    public long deadline;
+
+    /**
+     * 距离截止时间的剩余毫秒数, 未设置截止时间时返回Long.MAX_VALUE
+     */
+    public final long remainingTime() {
+        return deadline == 0 ? Long.MAX_VALUE : deadline - System.currentTimeMillis();
+    }
+
     /**
      * 客户端信息
      */
@@ -235,15 +298,25 @@ public class ApiContext {
     public LocalException localException;
 
     /**
-     * 线程相关的序列化数据缓冲池，用于暂存序列化数据
+     * 线程相关的序列化数据缓冲池，用于暂存序列化数据, 清理时只保留有限的数据块
      */
-    public RandomAccessByteArrayOutputStream outputStream = new RandomAccessByteArrayOutputStream(4096);
+    public ChunkedByteArrayOutputStream outputStream = new ChunkedByteArrayOutputStream();
 
     /**
      * jsonp回调信息
      */
     public byte[] jsonpCallback = null;
 
+    /**
+     * 是否以流式方式输出返回结果, 此时序列化结果不经过outputStream直接写入响应流
+     */
+    public boolean streaming = false;
+
+    /**
+     * 与客户端协商确定的返回结果压缩方式(gzip/deflate), null表示不压缩
+     */
+    public String contentEncoding = null;
+
     /**
      * 返回给客户端的额外消息
      */
@@ -307,9 +380,11 @@ public class ApiContext {
         this.clearUserToken = false;
         this.clearExpiredUserToken = false;
         this.clientIP = null;
+        this.contentEncoding = null;
         this.cookies.clear();
         this.costTime = 0;
         this.currentCall = null;
+        this.deadline = 0;
         this.deviceId = 0;
         this.deviceIdStr = null;
         this.deviceToken = null;
@@ -328,6 +403,7 @@ public class ApiContext {
         this.serializeCount = 0;
         this.startTime = 0;
         this.stoken = null;
+        this.streaming = false;
         this.thirdPartyId = 0;
         this.token = null;
         this.uid = null;
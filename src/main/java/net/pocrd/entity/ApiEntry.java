@@ -0,0 +1,36 @@
+package net.pocrd.entity;
+
+import net.pocrd.define.HttpApiExecuter;
+import net.pocrd.define.Serializer;
+
+/**
+ * 已注册接口的查找结果, 一次查找同时得到接口信息, 执行器以及序列化器
+ */
+public final class ApiEntry {
+    /**
+     * 接口名
+     */
+    public final String name;
+
+    /**
+     * 接口信息
+     */
+    public final ApiMethodInfo info;
+
+    /**
+     * 接口执行器
+     */
+    public final HttpApiExecuter executer;
+
+    /**
+     * 返回值序列化器
+     */
+    public final Serializer<?> serializer;
+
+    public ApiEntry(ApiMethodInfo info, HttpApiExecuter executer) {
+        this.name = info.methodName;
+        this.info = info;
+        this.executer = executer;
+        this.serializer = info.serializer;
+    }
+}
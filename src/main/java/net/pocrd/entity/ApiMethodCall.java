@@ -18,11 +18,21 @@ public class ApiMethodCall {
         this.method = method;
     }
 
+    public ApiMethodCall(ApiEntry entry) {
+        this(entry.info);
+        this.entry = entry;
+    }
+
     /**
      * 接口信息
      */
     public ApiMethodInfo method;
 
+    /**
+     * 接口查找结果, 通过ApiManager.getApiEntry解析调用时设置, 执行时不需要再次查找接口
+     */
+    public ApiEntry entry;
+
     /**
      * 客户端上传的业务id
      */
@@ -69,10 +79,20 @@ public class ApiMethodCall {
     private String returnMessage;
 
     /**
-     * 二进制数据起始位置
+     * 二进制数据起始位置, 即序列化结果在ApiContext.outputStream中的偏移量
      */
     public int byteStart;
 
+    /**
+     * 序列化结果在ApiContext.outputStream中占用的字节数, 包含分隔符以及序列化失败时回写的空节点
+     */
+    public int byteLength;
+
+    /**
+     * 调用结果是否已完成序列化
+     */
+    public boolean serialized;
+
     /**
      * dubbo 服务返回需要api进行记录的日志信息
      */
@@ -83,6 +103,16 @@ public class ApiMethodCall {
      */
     public String[] parameters;
 
+    /**
+     * 合并为一次批量调用的全部调用(包含本调用), 仅在其中第一个调用上设置, 由该调用发起批量调用并将结果分发给其他调用
+     */
+    public ApiMethodCall[] batch;
+
+    /**
+     * 是否由其他调用以批量方式代为执行
+     */
+    public boolean batched;
+
     public void setReturnCode(AbstractReturnCode code) {
         if (returnCode == ApiReturnCode.NO_ASSIGN.getCode()) {
             returnCode = code.getDisplay().getCode();
@@ -110,6 +110,11 @@ public class ApiMethodInfo {
      */
     public Method proxyMethodInfo;
 
+    /**
+     * 所代理方法对应的批量方法, 未声明批量方法时为null
+     */
+    public Method batchMethodInfo;
+
     /**
      * 被代理的方法所属的接口,dubbo interface
      */
@@ -147,4 +152,9 @@ public class ApiMethodInfo {
      * Integrated级别接口是否需要网关进行签名验证
      */
     public boolean needVerfiy;
+
+    /**
+     * 单独调用时是否以流式方式输出返回结果
+     */
+    public boolean streaming;
 }
\ No newline at end of file
@@ -31,6 +31,12 @@ public class ApiParameterInfo {
      */
     public String verifyMsg;
 
+    /**
+     * 整数参数的取值范围
+     */
+    public long min = Long.MIN_VALUE;
+    public long max = Long.MAX_VALUE;
+
     /**
      * 是否必须
      */
@@ -28,6 +28,15 @@ public class CommonConfig {
                 instance.setApiInfoXslSite(prop.getProperty("net.pocrd.apiInfoXslSite"));
                 instance.setOriginWhiteList(prop.getProperty("net.pocrd.originWhiteList"));
                 instance.setDubboAsyncString(prop.getProperty("net.pocrd.dubboAsync"));
+                instance.setServletAsyncString(prop.getProperty("net.pocrd.servletAsync"));
+                instance.setRequestTimeoutString(prop.getProperty("net.pocrd.requestTimeout"));
+                instance.setCompressionString(prop.getProperty("net.pocrd.compression"));
+                instance.setCompressThresholdString(prop.getProperty("net.pocrd.compressThreshold"));
+                instance.setDeviceKeyAlgorithm(prop.getProperty("net.pocrd.deviceKeyAlgorithm"));
+                instance.setDeviceKeyCacheSizeString(prop.getProperty("net.pocrd.deviceKeyCacheSize"));
+                instance.setDeviceKeyStoreCapacityString(prop.getProperty("net.pocrd.deviceKeyStoreCapacity"));
+                instance.setDeviceKeyStoreKeyLengthString(prop.getProperty("net.pocrd.deviceKeyStoreKeyLength"));
+                instance.setDeviceKeyStoreFile(prop.getProperty("net.pocrd.deviceKeyStoreFile"));
             }
             try {
                 InetAddress addr = InetAddress.getLocalHost();
@@ -144,6 +153,185 @@ public class CommonConfig {
         this.dubboAsync = async;
     }
 
+    /**
+     * 使用servlet 3.0异步方式处理请求, 仅在dubbo以异步方式调用时生效, 所有dubbo调用返回后再完成序列化输出, 不再占用容器线程等待返回结果
+     */
+    private boolean servletAsync = false;
+
+    public boolean getServletAsync() {
+        return this.servletAsync;
+    }
+
+    private void setServletAsyncString(String async) {
+        this.servletAsync = "true".equalsIgnoreCase(async);
+        if (CompileConfig.isDebug) {
+            logger.info("[CommonConfig.init]net.pocrd.servletAsync:{}", this.servletAsync);
+        }
+    }
+
+    /**
+     * 单次请求(包括合并调用中的所有接口)的默认时间预算, 单位毫秒, 0表示不限制. 客户端只能在此基础上缩短时间预算
+     * 时间预算只在网关侧生效: 预算耗尽后不再发起后续调用, 只有开启dubboAsync时才会提前结束对已发起调用的等待
+     */
+    private int requestTimeout = 0;
+
+    public int getRequestTimeout() {
+        return this.requestTimeout;
+    }
+
+    private void setRequestTimeoutString(String timeout) {
+        if (timeout != null && timeout.length() > 0) {
+            try {
+                this.requestTimeout = Math.max(Integer.parseInt(timeout.trim()), 0);
+            } catch (NumberFormatException e) {
+                logger.error("invalid net.pocrd.requestTimeout " + timeout, e);
+            }
+        }
+        if (CompileConfig.isDebug) {
+            logger.info("[CommonConfig.init]net.pocrd.requestTimeout:{}", this.requestTimeout);
+        }
+    }
+
+    /**
+     * 根据客户端的Accept-Encoding对返回结果进行gzip/deflate压缩
+     */
+    private boolean compression = false;
+
+    public boolean getCompression() {
+        return this.compression;
+    }
+
+    private void setCompressionString(String compression) {
+        this.compression = "true".equalsIgnoreCase(compression);
+        if (CompileConfig.isDebug) {
+            logger.info("[CommonConfig.init]net.pocrd.compression:{}", this.compression);
+        }
+    }
+
+    /**
+     * 返回结果小于该字节数时不进行压缩
+     */
+    private int compressThreshold = 1024;
+
+    public int getCompressThreshold() {
+        return this.compressThreshold;
+    }
+
+    private void setCompressThresholdString(String threshold) {
+        if (threshold != null && threshold.length() > 0) {
+            try {
+                this.compressThreshold = Math.max(Integer.parseInt(threshold.trim()), 0);
+            } catch (NumberFormatException e) {
+                logger.error("invalid net.pocrd.compressThreshold " + threshold, e);
+            }
+        }
+        if (CompileConfig.isDebug) {
+            logger.info("[CommonConfig.init]net.pocrd.compressThreshold:{}", this.compressThreshold);
+        }
+    }
+
+    /**
+     * 设备公钥算法, RSA或EC
+     */
+    private String deviceKeyAlgorithm = "RSA";
+
+    public String getDeviceKeyAlgorithm() {
+        return this.deviceKeyAlgorithm;
+    }
+
+    private void setDeviceKeyAlgorithm(String algorithm) {
+        if (algorithm != null && algorithm.trim().length() > 0) {
+            this.deviceKeyAlgorithm = algorithm.trim();
+        }
+        if (CompileConfig.isDebug) {
+            logger.info("[CommonConfig.init]net.pocrd.deviceKeyAlgorithm:{}", this.deviceKeyAlgorithm);
+        }
+    }
+
+    /**
+     * 缓存的已解析设备公钥数量
+     */
+    private int deviceKeyCacheSize = 10000;
+
+    public int getDeviceKeyCacheSize() {
+        return this.deviceKeyCacheSize;
+    }
+
+    private void setDeviceKeyCacheSizeString(String size) {
+        if (size != null && size.length() > 0) {
+            try {
+                this.deviceKeyCacheSize = Math.max(Integer.parseInt(size.trim()), 1);
+            } catch (NumberFormatException e) {
+                logger.error("invalid net.pocrd.deviceKeyCacheSize " + size, e);
+            }
+        }
+        if (CompileConfig.isDebug) {
+            logger.info("[CommonConfig.init]net.pocrd.deviceKeyCacheSize:{}", this.deviceKeyCacheSize);
+        }
+    }
+
+    /**
+     * 堆外设备密钥存储可保存的设备数量, 0表示不启用
+     */
+    private int deviceKeyStoreCapacity = 0;
+
+    public int getDeviceKeyStoreCapacity() {
+        return this.deviceKeyStoreCapacity;
+    }
+
+    private void setDeviceKeyStoreCapacityString(String capacity) {
+        if (capacity != null && capacity.length() > 0) {
+            try {
+                this.deviceKeyStoreCapacity = Math.max(Integer.parseInt(capacity.trim()), 0);
+            } catch (NumberFormatException e) {
+                logger.error("invalid net.pocrd.deviceKeyStoreCapacity " + capacity, e);
+            }
+        }
+        if (CompileConfig.isDebug) {
+            logger.info("[CommonConfig.init]net.pocrd.deviceKeyStoreCapacity:{}", this.deviceKeyStoreCapacity);
+        }
+    }
+
+    /**
+     * 堆外设备密钥存储中单个密钥的最大长度
+     */
+    private int deviceKeyStoreKeyLength = 512;
+
+    public int getDeviceKeyStoreKeyLength() {
+        return this.deviceKeyStoreKeyLength;
+    }
+
+    private void setDeviceKeyStoreKeyLengthString(String length) {
+        if (length != null && length.length() > 0) {
+            try {
+                this.deviceKeyStoreKeyLength = Math.max(Integer.parseInt(length.trim()), 1);
+            } catch (NumberFormatException e) {
+                logger.error("invalid net.pocrd.deviceKeyStoreKeyLength " + length, e);
+            }
+        }
+        if (CompileConfig.isDebug) {
+            logger.info("[CommonConfig.init]net.pocrd.deviceKeyStoreKeyLength:{}", this.deviceKeyStoreKeyLength);
+        }
+    }
+
+    /**
+     * 堆外设备密钥存储使用的内存映射文件, 未配置时只保存在内存中
+     */
+    private String deviceKeyStoreFile = null;
+
+    public String getDeviceKeyStoreFile() {
+        return this.deviceKeyStoreFile;
+    }
+
+    private void setDeviceKeyStoreFile(String file) {
+        if (file != null && file.trim().length() > 0) {
+            this.deviceKeyStoreFile = file.trim();
+        }
+        if (CompileConfig.isDebug) {
+            logger.info("[CommonConfig.init]net.pocrd.deviceKeyStoreFile:{}", this.deviceKeyStoreFile);
+        }
+    }
+
     public HashMap<String, String> getOriginWhiteList() {
         return originWhiteList;
     }
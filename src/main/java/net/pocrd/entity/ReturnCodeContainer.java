@@ -6,13 +6,13 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by sunji on 2014/7/23.
  */
 public class ReturnCodeContainer {
-    private static HashMap<Integer, AbstractReturnCode> map = new HashMap<Integer, AbstractReturnCode>();
+    private static ConcurrentHashMap<Integer, AbstractReturnCode> map = new ConcurrentHashMap<Integer, AbstractReturnCode>();
 
     static {
         Class returnCodeClass = ApiReturnCode.class;
@@ -62,9 +62,6 @@ public class ReturnCodeContainer {
     }
 
     public static void putReturnCodeSuper2Map(AbstractReturnCode abstractReturnCode) {
-        AbstractReturnCode rc = map.get(abstractReturnCode.getCode());
-        if (rc == null) {
-            map.put(abstractReturnCode.getCode(), abstractReturnCode);
-        }
+        map.putIfAbsent(abstractReturnCode.getCode(), abstractReturnCode);
     }
 }
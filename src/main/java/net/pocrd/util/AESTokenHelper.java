@@ -1,31 +1,78 @@
 package net.pocrd.util;
 
-import net.pocrd.annotation.NotThreadSafe;
-import net.pocrd.define.ConstField;
+import net.pocrd.annotation.ThreadSafe;
 import net.pocrd.entity.CallerInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-
 /**
  * 处理使用AES秘钥加密用户信息而产生的token
  * TODO: 增加token前缀用于客户端可以直接判断该token的适用场景, 由此可以不再有deviceToken, userToken, oauthToken 等区别
  *
  * @author rendong
  */
-@NotThreadSafe
+@ThreadSafe
 public class AESTokenHelper {
-    private static final Logger logger                   = LoggerFactory.getLogger(AESTokenHelper.class);
-    private static final short  DEVICE_TOKEN_VERSION_1_0 = 10;
-    private AesHelper aes;
+    private static final Logger              logger                   = LoggerFactory.getLogger(AESTokenHelper.class);
+    /**
+     * 线程相关的解密缓冲区, 避免解析token时分配明文数组
+     */
+    private static final ThreadLocal<byte[]> buffer                   = new ThreadLocal<byte[]>();
+    /**
+     * 默认缓存的已验证token数量
+     */
+    public static final  int                 DEFAULT_CACHE_SIZE       = 10000;
+    private          AesHelper      aes;
+    private          TokenCache     cache;
+    private volatile short          tokenVersion  = TokenCodec.TOKEN_VERSION_1_0;
+    private volatile boolean        acceptExpired = true;
 
     public AESTokenHelper(String pwd) {
-        aes = new AesHelper(Base64Util.decode(pwd), null);
+        this(new AesHelper(Base64Util.decode(pwd), null), DEFAULT_CACHE_SIZE);
     }
 
     public AESTokenHelper(AesHelper helper) {
+        this(helper, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize 缓存的已验证token数量, 0表示不缓存
+     */
+    public AESTokenHelper(AesHelper helper, int cacheSize) {
         aes = helper;
+        cache = cacheSize > 0 ? new TokenCache(cacheSize) : null;
+    }
+
+    /**
+     * 设置生成token使用的版本, 默认为1.0; 所有解析token的服务都已支持1.1版本后再切换为TokenCodec.TOKEN_VERSION_1_1
+     */
+    public void setTokenVersion(short version) {
+        if (version != TokenCodec.TOKEN_VERSION_1_0 && version != TokenCodec.TOKEN_VERSION_1_1) {
+            throw new IllegalArgumentException("unsupported token version " + version);
+        }
+        tokenVersion = version;
+    }
+
+    /**
+     * 设置是否解析已过期的token, 默认解析, 由调用方根据expire区分token过期与token无效(如BaseServlet返回TOKEN_EXPIRE);
+     * 设置为false时过期的token在解析其余字段前即被拒绝, 与无效token一样返回null
+     */
+    public void setAcceptExpired(boolean accept) {
+        acceptExpired = accept;
+    }
+
+    /**
+     * token缓存命中次数
+     */
+    public long getCacheHitCount() {
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    /**
+     * token缓存未命中次数
+     */
+    public long getCacheMissCount() {
+        return cache == null ? 0 : cache.getMissCount();
     }
 
     /**
@@ -41,94 +88,66 @@ public class AESTokenHelper {
     }
 
     /**
-     * 解析调用者信息
+     * 解析调用者信息, 设置acceptExpired为false时已过期的token返回null, 未过期的token解析结果会被缓存, 每次返回的调用者信息都是独立的副本
      */
     public CallerInfo parseToken(byte[] token) {
-        DataInputStream dis = null;
-        CallerInfo caller = null;
-        try {
-            dis = new DataInputStream(new ByteArrayInputStream(aes.decrypt(token)));
-            short tokenVersion = dis.readShort(); // token version for backward compliance
-            if (tokenVersion != DEVICE_TOKEN_VERSION_1_0) {
-                logger.error("token version mismatch!");
-                return null;
-            }
-            caller = new CallerInfo();
-            caller.expire = dis.readLong();
-            caller.securityLevel = dis.readInt();
-            caller.appid = dis.readInt();
-            caller.deviceId = dis.readLong();
-            caller.uid = dis.readLong();
-            short len = dis.readShort();
-            if (len > 0) {
-                caller.key = new byte[len];
-                if (len != dis.read(caller.key)) {
-                    return null;
-                }
-            }
-            if (dis.available() > 0) {
-                len = dis.readShort();
-                if (len > 0) {
-                    byte[] bs = new byte[len];
-                    if (len != dis.read(bs)) {
-                        return null;
-                    }
-                    caller.oauthid = new String(bs, ConstField.UTF8);
+        CallerInfo caller;
+        if (cache == null) {
+            caller = decodeToken(token);
+        } else {
+            caller = cache.get(token);
+            if (caller == null) {
+                caller = decodeToken(token);
+                if (caller != null) {
+                    cache.put(token, caller);
                 }
             }
-            if (dis.available() > 0) {
+        }
+        return caller;
+    }
+
+    private CallerInfo decodeToken(byte[] token) {
+        try {
+            byte[] plain = getBuffer(token.length);
+            int length = aes.decrypt(token, 0, token.length, plain, 0);
+            // 过期时间位于固定位置, 过期的token不再解析其余字段
+            if (!acceptExpired && TokenCodec.readExpire(plain, 0, length) <= System.currentTimeMillis()) {
                 return null;
             }
+            CallerInfo caller = TokenCodec.decode(plain, 0, length);
+            if (caller == null) {
+                logger.error("token decode failed. version:{} length:{}", TokenCodec.readVersion(plain, 0, length), length);
+            }
+            return caller;
         } catch (Exception e) {
             logger.error("token parse failed.", e);
-        } finally {
-            if (dis != null) {
-                try {
-                    dis.close();
-                } catch (IOException e) {
-                    logger.error("token parse failed.close input stream failed!", e);
-                }
-            }
         }
-        return caller;
+        return null;
+    }
+
+    private static byte[] getBuffer(int size) {
+        byte[] bs = buffer.get();
+        if (bs == null || bs.length < size) {
+            bs = new byte[Math.max(size, 256)];
+            buffer.set(bs);
+        }
+        return bs;
     }
 
     /**
      * 生成用户token
      */
     public byte[] generateUserToken(CallerInfo caller) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream(8);
-        DataOutputStream dos = new DataOutputStream(baos);
-        byte[] token = null;
-        try {
-            dos.writeShort(DEVICE_TOKEN_VERSION_1_0);
-            dos.writeLong(caller.expire);
-            dos.writeInt(caller.securityLevel);
-            dos.writeInt(caller.appid);
-            dos.writeLong(caller.deviceId);
-            dos.writeLong(caller.uid);
-            short len = caller.key == null ? 0 : (short)caller.key.length;
-            dos.writeShort(len);
-            if (caller.key != null) {
-                dos.write(caller.key);
-            }
-            byte[] oauthid = caller.oauthid == null ? null : caller.oauthid.getBytes(ConstField.UTF8);
-            if (oauthid != null) {
-                dos.writeShort(oauthid.length);
-                dos.write(oauthid);
-            }
-            byte[] bs = baos.toByteArray();
-            token = aes.encrypt(bs);
-        } catch (IOException e) {
-            throw new RuntimeException("generator token failed.", e);
-        } finally {
-            try {
-                dos.close();
-            } catch (IOException e) {
-                logger.error("generator token failed.close output stream failed!", e);
-            }
-        }
-        return token;
+        return generateUserToken(caller, tokenVersion);
+    }
+
+    /**
+     * 生成指定版本的用户token
+     */
+    public byte[] generateUserToken(CallerInfo caller, short version) {
+        byte[] plain = getBuffer(TokenCodec.encodedLength(caller, version));
+        int length = TokenCodec.encode(caller, version, plain, 0);
+        return aes.encrypt(plain, 0, length);
     }
 
     /**
@@ -0,0 +1,109 @@
+package net.pocrd.util;
+
+import net.pocrd.annotation.ThreadSafe;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.OutputStream;
+
+/**
+ * 线程安全的AES加解密实现, 每个线程持有已初始化的Cipher对象并重复使用, 避免每次调用时查找provider并初始化
+ * doFinal完成后Cipher会恢复到init后的状态, 因此可以直接用于下一次加解密; 加解密失败时丢弃当前线程的Cipher对象
+ */
+@ThreadSafe
+public class AesEngine {
+    public static final String CBC_PKCS5 = "AES/CBC/PKCS5Padding";
+    public static final String CFB_NOPADDING = "AES/CFB/NoPadding";
+
+    private final SecretKeySpec   keySpec;
+    private final IvParameterSpec iv;
+    private final String          transformation;
+    private final ThreadLocal<Cipher> encryptCipher = new ThreadLocal<Cipher>();
+    private final ThreadLocal<Cipher> decryptCipher = new ThreadLocal<Cipher>();
+    private final ThreadLocal<Cipher> streamCipher  = new ThreadLocal<Cipher>();
+
+    /**
+     * @param aesKey 密钥, 长度不小于16字节
+     * @param iv     初始向量, 长度不小于16字节
+     * @param cfb    true:使用AES/CFB/NoPadding, 密文与明文长度相同; false:使用AES/CBC/PKCS5Padding
+     */
+    public AesEngine(byte[] aesKey, byte[] iv, boolean cfb) {
+        if (aesKey == null || aesKey.length < 16 || iv == null || iv.length < 16) {
+            throw new RuntimeException("错误的初始密钥");
+        }
+        this.keySpec = new SecretKeySpec(aesKey, "AES");
+        this.iv = new IvParameterSpec(iv);
+        this.transformation = cfb ? CFB_NOPADDING : CBC_PKCS5;
+    }
+
+    private Cipher getCipher(ThreadLocal<Cipher> local, int mode) throws Exception {
+        Cipher cipher = local.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation);
+            cipher.init(mode, keySpec, iv);
+            local.set(cipher);
+        }
+        return cipher;
+    }
+
+    public byte[] encrypt(byte[] data) {
+        return encrypt(data, 0, data.length);
+    }
+
+    public byte[] encrypt(byte[] data, int offset, int length) {
+        try {
+            return getCipher(encryptCipher, Cipher.ENCRYPT_MODE).doFinal(data, offset, length);
+        } catch (Exception e) {
+            encryptCipher.remove();
+            throw new RuntimeException(e);
+        }
+    }
+
+    public byte[] decrypt(byte[] secret) {
+        return decrypt(secret, 0, secret.length);
+    }
+
+    public byte[] decrypt(byte[] secret, int offset, int length) {
+        try {
+            return getCipher(decryptCipher, Cipher.DECRYPT_MODE).doFinal(secret, offset, length);
+        } catch (Exception e) {
+            decryptCipher.remove();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 解密到调用方提供的缓冲区中, 缓冲区剩余空间不能小于length
+     *
+     * @return 明文长度
+     */
+    public int decrypt(byte[] secret, int offset, int length, byte[] output, int outputOffset) {
+        try {
+            return getCipher(decryptCipher, Cipher.DECRYPT_MODE).doFinal(secret, offset, length, output, outputOffset);
+        } catch (Exception e) {
+            decryptCipher.remove();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 获取加密输出流, 写入的明文分段加密后写入out, 写入完成后需要调用AesOutputStream.finish
+     * 流式加密使用独立的Cipher对象, 每次获取时重新初始化, 因此未正常结束的加密过程不会影响后续的加解密
+     * 同一线程同时只能使用一个加密输出流
+     */
+    public AesOutputStream getEncryptStream(OutputStream out) {
+        try {
+            Cipher cipher = streamCipher.get();
+            if (cipher == null) {
+                cipher = Cipher.getInstance(transformation);
+                streamCipher.set(cipher);
+            }
+            cipher.init(Cipher.ENCRYPT_MODE, keySpec, iv);
+            return new AesOutputStream(cipher, out);
+        } catch (Exception e) {
+            streamCipher.remove();
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,19 +1,17 @@
 package net.pocrd.util;
 
-import net.pocrd.annotation.NotThreadSafe;
+import net.pocrd.annotation.ThreadSafe;
 
-import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
+import java.io.OutputStream;
 import java.security.SecureRandom;
 
-@NotThreadSafe
+/**
+ * AES加解密, 由AesEngine实现, 可以在多线程间共享
+ */
+@ThreadSafe
 public class AesHelper {
-    private SecretKeySpec   keySpec;
-    private IvParameterSpec iv;
-    // 需要使用无填充时使用，此时会为密钥计算出一个唯一的iv来使用
-    private boolean useCFB = false;
+    private final AesEngine engine;
 
     public AesHelper(byte[] aesKey, byte[] iv) {
         if (aesKey == null || aesKey.length < 16 || (iv != null && iv.length < 16)) {
@@ -22,51 +20,43 @@ public class AesHelper {
         if (iv == null) {
             iv = Md5Util.compute(aesKey);
         }
-        keySpec = new SecretKeySpec(aesKey, "AES");
-        this.iv = new IvParameterSpec(iv);
+        engine = new AesEngine(aesKey, iv, false);
     }
 
+    // 需要使用无填充时使用，此时会为密钥计算出一个唯一的iv来使用
     public AesHelper(byte[] aesKey, boolean cfb) {
         if (aesKey == null || aesKey.length < 16) {
             throw new RuntimeException("错误的初始密钥");
         }
-        useCFB = cfb;
-        keySpec = new SecretKeySpec(aesKey, "AES");
-        this.iv = new IvParameterSpec(Md5Util.compute(aesKey));
+        engine = new AesEngine(aesKey, Md5Util.compute(aesKey), cfb);
     }
 
     public byte[] encrypt(byte[] data) {
-        Cipher cipher = null;
-        try {
-            if (useCFB) {
-                cipher = Cipher.getInstance("AES/CFB/NoPadding");
-                cipher.init(Cipher.ENCRYPT_MODE, keySpec, iv);
-            } else {
-                cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-                cipher.init(Cipher.ENCRYPT_MODE, keySpec, iv);
-            }
+        return engine.encrypt(data);
+    }
 
-            return cipher.doFinal(data);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    public byte[] encrypt(byte[] data, int offset, int length) {
+        return engine.encrypt(data, offset, length);
     }
 
     public byte[] decrypt(byte[] secret) {
-        Cipher cipher = null;
-        try {
-            if (useCFB) {
-                cipher = Cipher.getInstance("AES/CFB/NoPadding");
-                cipher.init(Cipher.DECRYPT_MODE, keySpec, iv);
-            } else {
-                cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-                cipher.init(Cipher.DECRYPT_MODE, keySpec, iv);
-            }
+        return engine.decrypt(secret);
+    }
 
-            return cipher.doFinal(secret);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * 解密到调用方提供的缓冲区中, 缓冲区剩余空间不能小于length
+     *
+     * @return 明文长度
+     */
+    public int decrypt(byte[] secret, int offset, int length, byte[] output, int outputOffset) {
+        return engine.decrypt(secret, offset, length, output, outputOffset);
+    }
+
+    /**
+     * 获取加密输出流, 写入完成后调用finish得到与encrypt相同的密文
+     */
+    public AesOutputStream getEncryptStream(OutputStream out) {
+        return engine.getEncryptStream(out);
     }
 
     public static byte[] randomKey(int size) {
@@ -0,0 +1,91 @@
+package net.pocrd.util;
+
+import javax.crypto.Cipher;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * AES加密输出流, 写入的数据通过Cipher.update分段加密后直接写入下层输出流, 不需要在内存中保留完整的明文及密文
+ * 写入完成后必须调用finish输出最后一个分组, 输出的密文与使用同一密钥对完整明文调用doFinal的结果相同
+ */
+public final class AesOutputStream extends OutputStream {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Cipher       cipher;
+    private final byte[]       buffer;
+    private final byte[]       single = new byte[1];
+    private       OutputStream out;
+
+    /**
+     * @param cipher 已使用ENCRYPT_MODE初始化的Cipher, 在finish之前不能用于其他加密过程
+     * @param out    密文输出流
+     */
+    public AesOutputStream(Cipher cipher, OutputStream out) {
+        this.cipher = cipher;
+        this.out = out;
+        // update输出的密文最多比输入多一个分组
+        this.buffer = new byte[CHUNK_SIZE + cipher.getBlockSize()];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte)b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (out == null) {
+            throw new IOException("stream finished.");
+        }
+        try {
+            while (len > 0) {
+                int size = len > CHUNK_SIZE ? CHUNK_SIZE : len;
+                int n = cipher.update(b, off, size, buffer, 0);
+                if (n > 0) {
+                    out.write(buffer, 0, n);
+                }
+                off += size;
+                len -= size;
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("aes encrypt failed.", e);
+        }
+    }
+
+    /**
+     * 输出剩余的密文, 不关闭下层输出流
+     */
+    public void finish() throws IOException {
+        if (out == null) {
+            return;
+        }
+        try {
+            int n = cipher.doFinal(buffer, 0);
+            if (n > 0) {
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("aes encrypt failed.", e);
+        }
+        out.flush();
+        out = null;
+    }
+
+    /**
+     * 只刷新下层输出流, 不足一个分组的数据仍保留在Cipher中直到finish
+     */
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package net.pocrd.util;
+
+import net.pocrd.annotation.ThreadSafe;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import java.io.ByteArrayOutputStream;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.Signature;
+import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * 线程安全的RSA/ECC加解密及签名实现, 每个线程持有已按密钥初始化的Cipher及Signature对象并重复使用
+ * 避免每次调用时查找provider并初始化; 操作失败时丢弃当前线程的对象
+ * RSA私钥需要包含CRT参数, 私钥运算可以比直接进行模幂运算快数倍
+ */
+@ThreadSafe
+public final class AsymmetricEngine {
+    public static final String RSA = "RSA";
+    public static final String ECC = "EC";
+
+    private static final Logger logger = LoggerFactory.getLogger(AsymmetricEngine.class);
+    private static final String RSA_TRANSFORMATION = "RSA/ECB/PKCS1Padding";
+    private static final String RSA_SIGNATURE      = "SHA1WithRSA";
+    private static final String ECC_TRANSFORMATION = "ECIES";
+    private static final String ECC_SIGNATURE      = "SHA1withECDSA";
+    private static final String ECC_PROVIDER       = "BC";
+    private static final int    ECC_BLOCK_SIZE     = 4096;
+    private static final int    ECC_OVERHEAD       = 45;
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private final PublicKey  publicKey;
+    private final PrivateKey privateKey;
+    private final String     transformation;
+    private final String     signatureAlgorithm;
+    private final String     provider;
+    private final int        encryptBlockSize;
+    private final int        decryptBlockSize;
+
+    private final ThreadLocal<Cipher>    encryptCipher = new ThreadLocal<Cipher>();
+    private final ThreadLocal<Cipher>    decryptCipher = new ThreadLocal<Cipher>();
+    private final ThreadLocal<Signature> signer        = new ThreadLocal<Signature>();
+    private final ThreadLocal<Signature> verifier      = new ThreadLocal<Signature>();
+
+    private AsymmetricEngine(PublicKey publicKey, PrivateKey privateKey, String transformation, String signatureAlgorithm, String provider,
+                             int encryptBlockSize, int decryptBlockSize) {
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+        this.transformation = transformation;
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.provider = provider;
+        this.encryptBlockSize = encryptBlockSize;
+        this.decryptBlockSize = decryptBlockSize;
+    }
+
+    /**
+     * @param algorithm  RSA或ECC
+     * @param publicKey  X509编码的公钥, 为空时不能加密及验证签名
+     * @param privateKey PKCS8编码的私钥, 为空时不能解密及签名
+     */
+    public static AsymmetricEngine getInstance(String algorithm, byte[] publicKey, byte[] privateKey) {
+        if (RSA.equals(algorithm)) {
+            return rsa(publicKey, privateKey);
+        } else if (ECC.equals(algorithm)) {
+            return ecc(publicKey, privateKey);
+        }
+        throw new IllegalArgumentException("unsupported algorithm " + algorithm);
+    }
+
+    /**
+     * @param publicKey  X509编码的公钥, 为空时不能加密及验证签名
+     * @param privateKey PKCS8编码的私钥, 为空时不能解密及签名
+     */
+    public static AsymmetricEngine rsa(byte[] publicKey, byte[] privateKey) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(RSA);
+            PublicKey pub = isEmpty(publicKey) ? null : keyFactory.generatePublic(new X509EncodedKeySpec(publicKey));
+            PrivateKey pri = isEmpty(privateKey) ? null : keyFactory.generatePrivate(new PKCS8EncodedKeySpec(privateKey));
+            if (pri != null && !(pri instanceof RSAPrivateCrtKey)) {
+                logger.warn("rsa private key without crt parameters, private key operations will be slow.");
+            }
+            Key key = pub != null ? pub : pri;
+            int size = key == null ? 0 : ((RSAKey)key).getModulus().bitLength() / 8;
+            return new AsymmetricEngine(pub, pri, RSA_TRANSFORMATION, RSA_SIGNATURE, null, size - 11, size);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param publicKey  X509编码的公钥, 为空时不能加密及验证签名
+     * @param privateKey PKCS8编码的私钥, 为空时不能解密及签名
+     */
+    public static AsymmetricEngine ecc(byte[] publicKey, byte[] privateKey) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(ECC, ECC_PROVIDER);
+            PublicKey pub = isEmpty(publicKey) ? null : keyFactory.generatePublic(new X509EncodedKeySpec(publicKey));
+            PrivateKey pri = isEmpty(privateKey) ? null : keyFactory.generatePrivate(new PKCS8EncodedKeySpec(privateKey));
+            return new AsymmetricEngine(pub, pri, ECC_TRANSFORMATION, ECC_SIGNATURE, ECC_PROVIDER, ECC_BLOCK_SIZE, ECC_BLOCK_SIZE + ECC_OVERHEAD);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 解析X509编码的公钥, 用于只需要验证签名且公钥数量较多的场景, 调用方自行缓存解析结果
+     *
+     * @param algorithm RSA或ECC
+     */
+    public static PublicKey parsePublicKey(String algorithm, byte[] publicKey) {
+        try {
+            if (RSA.equals(algorithm)) {
+                return KeyFactory.getInstance(RSA).generatePublic(new X509EncodedKeySpec(publicKey));
+            } else if (ECC.equals(algorithm)) {
+                return KeyFactory.getInstance(ECC, ECC_PROVIDER).generatePublic(new X509EncodedKeySpec(publicKey));
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        throw new IllegalArgumentException("unsupported algorithm " + algorithm);
+    }
+
+    /**
+     * 创建与getInstance相同签名算法的Signature对象, 尚未按密钥初始化
+     *
+     * @param algorithm RSA或ECC
+     */
+    public static Signature newSignature(String algorithm) {
+        try {
+            if (RSA.equals(algorithm)) {
+                return Signature.getInstance(RSA_SIGNATURE);
+            } else if (ECC.equals(algorithm)) {
+                return Signature.getInstance(ECC_SIGNATURE, ECC_PROVIDER);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        throw new IllegalArgumentException("unsupported algorithm " + algorithm);
+    }
+
+    private static boolean isEmpty(byte[] key) {
+        return key == null || key.length == 0;
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    private Cipher getCipher(ThreadLocal<Cipher> local, int mode, Key key) throws Exception {
+        Cipher cipher = local.get();
+        if (cipher == null) {
+            cipher = provider == null ? Cipher.getInstance(transformation) : Cipher.getInstance(transformation, provider);
+            cipher.init(mode, key);
+            local.set(cipher);
+        }
+        return cipher;
+    }
+
+    private Signature getSignature(ThreadLocal<Signature> local, boolean sign) throws Exception {
+        Signature signature = local.get();
+        if (signature == null) {
+            signature = provider == null ? Signature.getInstance(signatureAlgorithm) : Signature.getInstance(signatureAlgorithm, provider);
+            if (sign) {
+                signature.initSign(privateKey);
+            } else {
+                signature.initVerify(publicKey);
+            }
+            local.set(signature);
+        }
+        return signature;
+    }
+
+    /**
+     * 按块处理数据, 只有一块时直接返回doFinal的结果
+     */
+    private static byte[] process(Cipher cipher, byte[] input, int blockSize, int outputSize) throws Exception {
+        if (input.length == 0) {
+            return input;
+        }
+        if (input.length <= blockSize) {
+            return cipher.doFinal(input);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream((input.length + blockSize - 1) / blockSize * outputSize);
+        for (int i = 0; i < input.length; i += blockSize) {
+            baos.write(cipher.doFinal(input, i, Math.min(blockSize, input.length - i)));
+        }
+        return baos.toByteArray();
+    }
+
+    public byte[] encrypt(byte[] content) {
+        if (publicKey == null) {
+            throw new RuntimeException("public key is null.");
+        }
+        try {
+            return process(getCipher(encryptCipher, Cipher.ENCRYPT_MODE, publicKey), content, encryptBlockSize, decryptBlockSize);
+        } catch (Exception e) {
+            encryptCipher.remove();
+            throw new RuntimeException(e);
+        }
+    }
+
+    public byte[] decrypt(byte[] secret) {
+        if (privateKey == null) {
+            throw new RuntimeException("private key is null.");
+        }
+        try {
+            return process(getCipher(decryptCipher, Cipher.DECRYPT_MODE, privateKey), secret, decryptBlockSize, encryptBlockSize);
+        } catch (Exception e) {
+            decryptCipher.remove();
+            throw new RuntimeException(e);
+        }
+    }
+
+    public byte[] sign(byte[] content) {
+        if (privateKey == null) {
+            throw new RuntimeException("private key is null.");
+        }
+        try {
+            Signature signature = getSignature(signer, true);
+            signature.update(content);
+            return signature.sign();
+        } catch (Exception e) {
+            signer.remove();
+            throw new RuntimeException(e);
+        }
+    }
+
+    public boolean verify(byte[] sign, byte[] content) {
+        if (publicKey == null) {
+            throw new RuntimeException("public key is null.");
+        }
+        try {
+            Signature signature = getSignature(verifier, false);
+            signature.update(content);
+            return signature.verify(sign);
+        } catch (Exception e) {
+            verifier.remove();
+            throw new RuntimeException(e);
+        }
+    }
+}
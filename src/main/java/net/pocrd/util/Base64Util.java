@@ -16,9 +16,9 @@
 
 package net.pocrd.util;
 
-import net.pocrd.define.ConstField;
-
 import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 /**
  * Utilities for encoding and decoding the Base64 representation of binary data. See RFCs <a href="http://www.ietf.org/rfc/rfc2045.txt">2045</a> and
@@ -57,6 +57,22 @@ public class Base64Util {
      */
     public static final int NO_CLOSE = 16;
 
+    /**
+     * Number of 3-byte groups per line when line terminators are emitted (76 characters per line).
+     */
+    private static final int LINE_GROUPS = 19;
+
+    private static final byte ENCODE[] = {'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '/',};
+
+    private static final byte ENCODE_WEBSAFE[] = {'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '-', '_',};
+
+    /**
+     * Strings no longer than this are converted to bytes in a per-thread buffer before decoding.
+     */
+    private static final int MAX_BUFFER_SIZE = 4096;
+
+    private static final ThreadLocal<byte[]> buffer = new ThreadLocal<byte[]>();
+
     // --------------------------------------------------------
     // shared code
     // --------------------------------------------------------
@@ -96,11 +112,32 @@ public class Base64Util {
      * @throws IllegalArgumentException if the input contains incorrect padding
      */
     public static byte[] decode(String str, int flags) {
-        return decode(str.getBytes(ConstField.UTF8), flags);
+        int len = str.length();
+        int exact = fastDecodedLength(str, len);
+        if (exact >= 0) {
+            byte[] output = new byte[exact];
+            if (decodeFast(str, exact, output, decodeAlphabet(flags))) {
+                return output;
+            }
+        }
+        byte[] input = len > MAX_BUFFER_SIZE ? new byte[len] : getBuffer(len);
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            // 非ASCII字符不属于Base64字符集, 按UTF-8编码后的每个字节都会被忽略, 这里统一映射为一个会被忽略的字节
+            input[i] = c < 0x80 ? (byte)c : (byte)0x80;
+        }
+        return decode(input, 0, len, flags);
     }
 
     public static byte[] decode(String str) {
-        return decode(str.getBytes(ConstField.UTF8), Base64Util.NO_WRAP);
+        return decode(str, Base64Util.NO_WRAP);
+    }
+
+    /**
+     * Decode the "URL and filename safe" Base64 string, see {@link #URL_SAFE}.
+     */
+    public static byte[] decodeUrlSafe(String str) {
+        return decode(str, Base64Util.NO_WRAP | Base64Util.URL_SAFE);
     }
 
     /**
@@ -128,6 +165,15 @@ public class Base64Util {
      * @throws IllegalArgumentException if the input contains incorrect padding
      */
     public static byte[] decode(byte[] input, int offset, int len, int flags) {
+        // Common case: only alphabet characters followed by the correct padding, the exact output length is known in advance.
+        int exact = fastDecodedLength(input, offset, len);
+        if (exact >= 0) {
+            byte[] output = new byte[exact];
+            if (decodeFast(input, offset, len, output, 0, decodeAlphabet(flags)) == exact) {
+                return output;
+            }
+        }
+
         // Allocate space for the most data the input could represent.
         // (It could contain less if it contains whitespace, etc.)
         Decoder decoder = new Decoder(flags, new byte[len * 3 / 4]);
@@ -148,6 +194,276 @@ public class Base64Util {
         return temp;
     }
 
+    /**
+     * Decode the Base64-encoded data in input into output without allocating in the common case.
+     * The remaining space of output must not be less than {@link #decodedLength} (or {@link #maxDecodedLength} if unknown).
+     *
+     * @param input        the data to decode
+     * @param offset       the position within the input array at which to start
+     * @param len          the number of bytes of input to decode
+     * @param output       the array to hold the decoded data
+     * @param outputOffset the position within the output array at which to start
+     * @param flags        controls certain features of the decoded output. Pass {@code DEFAULT} to decode standard Base64.
+     *
+     * @return the number of decoded bytes
+     *
+     * @throws IllegalArgumentException if the input contains incorrect padding
+     */
+    public static int decode(byte[] input, int offset, int len, byte[] output, int outputOffset, int flags) {
+        int op = decodeFast(input, offset, len, output, outputOffset, decodeAlphabet(flags));
+        if (op >= 0) {
+            return op;
+        }
+        Decoder decoder = new Decoder(flags, new byte[len * 3 / 4]);
+        if (!decoder.process(input, offset, len, true)) {
+            throw new IllegalArgumentException("bad base-64");
+        }
+        System.arraycopy(decoder.output, 0, output, outputOffset, decoder.op);
+        return decoder.op;
+    }
+
+    /**
+     * Decode the bytes between position and limit of src into dst. The position of src is moved to its limit and the position of dst
+     * is advanced by the number of decoded bytes.
+     *
+     * @return the number of decoded bytes
+     *
+     * @throws IllegalArgumentException if the input contains incorrect padding
+     * @throws BufferOverflowException  if the remaining space of dst is less than {@link #maxDecodedLength}
+     */
+    public static int decode(ByteBuffer src, ByteBuffer dst, int flags) {
+        int len = src.remaining();
+        if (dst.remaining() < maxDecodedLength(len)) {
+            throw new BufferOverflowException();
+        }
+        int op;
+        if (src.hasArray() && dst.hasArray()) {
+            op = decode(src.array(), src.arrayOffset() + src.position(), len, dst.array(), dst.arrayOffset() + dst.position(), flags);
+            src.position(src.limit());
+            dst.position(dst.position() + op);
+        } else {
+            byte[] input = new byte[len];
+            src.get(input);
+            byte[] output = decode(input, 0, len, flags);
+            dst.put(output);
+            op = output.length;
+        }
+        return op;
+    }
+
+    /**
+     * @return the maximum number of bytes that len bytes of Base64 data could decode to.
+     */
+    public static int maxDecodedLength(int len) {
+        return len * 3 / 4;
+    }
+
+    /**
+     * Validate the Base64-encoded data in input without allocating.
+     *
+     * @return the number of bytes the input decodes to, or -1 if the input is not valid Base64.
+     */
+    public static int decodedLength(byte[] input, int offset, int len, int flags) {
+        int exact = fastDecodedLength(input, offset, len);
+        final int[] alphabet = decodeAlphabet(flags);
+        int end = offset + len;
+        int p = offset;
+        if (exact >= 0) {
+            // The padding has already been checked, the characters before it must all be in the alphabet.
+            int dataEnd = offset + (exact / 3 * 4) + (exact % 3 == 0 ? 0 : exact % 3 + 1);
+            while (p < dataEnd && alphabet[input[p] & 0xff] >= 0) {
+                p++;
+            }
+            if (p == dataEnd) {
+                return exact;
+            }
+            p = offset;
+        }
+        // Same transitions as Decoder.process, counting output bytes instead of writing them.
+        int state = 0;
+        int count = 0;
+        while (p < end) {
+            int d = alphabet[input[p++] & 0xff];
+            if (d == Decoder.SKIP) {
+                continue;
+            }
+            switch (state) {
+                case 0:
+                case 1:
+                    if (d < 0) {
+                        return -1;
+                    }
+                    ++state;
+                    break;
+                case 2:
+                    if (d >= 0) {
+                        state = 3;
+                    } else {
+                        count += 1;
+                        state = 4;
+                    }
+                    break;
+                case 3:
+                    if (d >= 0) {
+                        count += 3;
+                        state = 0;
+                    } else {
+                        count += 2;
+                        state = 5;
+                    }
+                    break;
+                case 4:
+                    if (d != Decoder.EQUALS) {
+                        return -1;
+                    }
+                    state = 5;
+                    break;
+                default:
+                    return -1;
+            }
+        }
+        switch (state) {
+            case 1:
+            case 4:
+                return -1;
+            case 2:
+                return count + 1;
+            case 3:
+                return count + 2;
+            default:
+                return count;
+        }
+    }
+
+    private static int[] decodeAlphabet(int flags) {
+        return (flags & URL_SAFE) == 0 ? Decoder.DECODE : Decoder.DECODE_WEBSAFE;
+    }
+
+    /**
+     * Output length of input consisting of alphabet characters followed by at most two '=', assuming the characters before the padding
+     * are all in the alphabet. Return -1 if the length or the padding does not fit that form.
+     */
+    private static int fastDecodedLength(byte[] input, int offset, int len) {
+        int end = offset + len;
+        int pads = 0;
+        while (pads < 2 && end > offset && input[end - 1] == '=') {
+            --end;
+            ++pads;
+        }
+        int n = end - offset;
+        int rem = n & 3;
+        if (pads == 0 ? rem == 1 : rem + pads != 4) {
+            return -1;
+        }
+        return n / 4 * 3 + (rem == 0 ? 0 : rem - 1);
+    }
+
+    /**
+     * Decode input of the form accepted by fastDecodedLength in a single pass, 4 characters to 3 bytes per step.
+     *
+     * @return the number of decoded bytes, or -1 if the input has another form and must go through Decoder.
+     */
+    private static int decodeFast(byte[] input, int offset, int len, byte[] output, int outputOffset, int[] alphabet) {
+        int exact = fastDecodedLength(input, offset, len);
+        if (exact < 0) {
+            return -1;
+        }
+        int rem = exact % 3;
+        int p = offset;
+        int fullEnd = offset + (exact / 3 * 4);
+        int op = outputOffset;
+        // Any non-alphabet character is a small negative number in alphabet, which makes the combined value negative.
+        while (p < fullEnd) {
+            int value = (alphabet[input[p] & 0xff] << 18) | (alphabet[input[p + 1] & 0xff] << 12) | (alphabet[input[p + 2] & 0xff] << 6) | (alphabet[input[p + 3] & 0xff]);
+            if (value < 0) {
+                return -1;
+            }
+            output[op] = (byte)(value >> 16);
+            output[op + 1] = (byte)(value >> 8);
+            output[op + 2] = (byte)value;
+            p += 4;
+            op += 3;
+        }
+        if (rem == 1) {
+            int value = (alphabet[input[p] & 0xff] << 6) | (alphabet[input[p + 1] & 0xff]);
+            if (value < 0) {
+                return -1;
+            }
+            output[op++] = (byte)(value >> 4);
+        } else if (rem == 2) {
+            int value = (alphabet[input[p] & 0xff] << 12) | (alphabet[input[p + 1] & 0xff] << 6) | (alphabet[input[p + 2] & 0xff]);
+            if (value < 0) {
+                return -1;
+            }
+            output[op++] = (byte)(value >> 10);
+            output[op++] = (byte)(value >> 2);
+        }
+        return op - outputOffset;
+    }
+
+    private static int fastDecodedLength(String str, int len) {
+        int end = len;
+        int pads = 0;
+        while (pads < 2 && end > 0 && str.charAt(end - 1) == '=') {
+            --end;
+            ++pads;
+        }
+        int rem = end & 3;
+        if (pads == 0 ? rem == 1 : rem + pads != 4) {
+            return -1;
+        }
+        return end / 4 * 3 + (rem == 0 ? 0 : rem - 1);
+    }
+
+    /**
+     * Same as decodeFast for byte arrays, reading the characters of str directly instead of converting it to bytes first.
+     */
+    private static boolean decodeFast(String str, int exact, byte[] output, int[] alphabet) {
+        int rem = exact % 3;
+        int fullEnd = exact / 3 * 4;
+        int p = 0;
+        int op = 0;
+        while (p < fullEnd) {
+            int value = (decodeChar(str.charAt(p), alphabet) << 18) | (decodeChar(str.charAt(p + 1), alphabet) << 12) | (decodeChar(str.charAt(p + 2), alphabet) << 6) | decodeChar(str.charAt(p + 3), alphabet);
+            if (value < 0) {
+                return false;
+            }
+            output[op] = (byte)(value >> 16);
+            output[op + 1] = (byte)(value >> 8);
+            output[op + 2] = (byte)value;
+            p += 4;
+            op += 3;
+        }
+        if (rem == 1) {
+            int value = (decodeChar(str.charAt(p), alphabet) << 6) | decodeChar(str.charAt(p + 1), alphabet);
+            if (value < 0) {
+                return false;
+            }
+            output[op] = (byte)(value >> 4);
+        } else if (rem == 2) {
+            int value = (decodeChar(str.charAt(p), alphabet) << 12) | (decodeChar(str.charAt(p + 1), alphabet) << 6) | decodeChar(str.charAt(p + 2), alphabet);
+            if (value < 0) {
+                return false;
+            }
+            output[op] = (byte)(value >> 10);
+            output[op + 1] = (byte)(value >> 2);
+        }
+        return true;
+    }
+
+    private static int decodeChar(char c, int[] alphabet) {
+        return c < 0x80 ? alphabet[c] : Decoder.SKIP;
+    }
+
+    private static byte[] getBuffer(int size) {
+        byte[] bs = buffer.get();
+        if (bs == null || bs.length < size) {
+            bs = new byte[Math.max(size, 256)];
+            buffer.set(bs);
+        }
+        return bs;
+    }
+
     /* package */static class Decoder extends Coder {
         /**
          * Lookup table for turning bytes into their position in the Base64 alphabet.
@@ -441,13 +757,27 @@ public class Base64Util {
      * @param flags  controls certain features of the encoded output. Passing {@code DEFAULT} results in output that adheres to RFC 2045.
      */
     public static byte[] encode(byte[] input, int offset, int len, int flags) {
-        Encoder encoder = new Encoder(flags, null);
+        byte[] output = new byte[encodedLength(len, flags)];
+        encode(input, offset, len, output, 0, flags);
+        return output;
+    }
+
+    /**
+     * Encode the "URL and filename safe" Base64 string without padding and line terminators, see {@link #URL_SAFE}.
+     */
+    public static String encodeToUrlSafeString(byte[] input) {
+        return encodeToString(input, Base64Util.NO_WRAP | Base64Util.NO_PADDING | Base64Util.URL_SAFE);
+    }
 
+    /**
+     * @return the exact number of bytes that encoding len bytes of input with the given flags produces.
+     */
+    public static int encodedLength(int len, int flags) {
         // Compute the exact length of the array we will produce.
         int output_len = len / 3 * 4;
 
         // Account for the tail of the data and the padding bytes, if any.
-        if (encoder.do_padding) {
+        if ((flags & NO_PADDING) == 0) {
             if (len % 3 > 0) {
                 output_len += 4;
             }
@@ -465,194 +795,76 @@ public class Base64Util {
         }
 
         // Account for the newlines, if any.
-        if (encoder.do_newline && len > 0) {
-            output_len += (((len - 1) / (3 * Encoder.LINE_GROUPS)) + 1) * (encoder.do_cr ? 2 : 1);
+        if ((flags & NO_WRAP) == 0 && len > 0) {
+            output_len += (((len - 1) / (3 * LINE_GROUPS)) + 1) * ((flags & CRLF) != 0 ? 2 : 1);
         }
-
-        encoder.output = new byte[output_len];
-        encoder.process(input, offset, len, true);
-
-        assert encoder.op == output_len;
-
-        return encoder.output;
+        return output_len;
     }
 
-    /* package */static class Encoder extends Coder {
-        /**
-         * Emit a new line every this many output tuples. Corresponds to a 76-character line length (the maximum allowable according to <a
-         * href="http://www.ietf.org/rfc/rfc2045.txt">RFC 2045</a>).
-         */
-        public static final int LINE_GROUPS = 19;
-
-        /**
-         * Lookup table for turning Base64 alphabet positions (6 bits) into output bytes.
-         */
-        private static final byte ENCODE[] = {'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '/',};
-
-        /**
-         * Lookup table for turning Base64 alphabet positions (6 bits) into output bytes.
-         */
-        private static final byte ENCODE_WEBSAFE[] = {'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '-', '_',};
-
-        final private byte[] tail;
-        /* package */ int tailLen;
-        private int count;
-
-        final public  boolean do_padding;
-        final public  boolean do_newline;
-        final public  boolean do_cr;
-        final private byte[]  alphabet;
-
-        public Encoder(int flags, byte[] output) {
-            this.output = output;
-
-            do_padding = (flags & NO_PADDING) == 0;
-            do_newline = (flags & NO_WRAP) == 0;
-            do_cr = (flags & CRLF) != 0;
-            alphabet = ((flags & URL_SAFE) == 0) ? ENCODE : ENCODE_WEBSAFE;
-
-            tail = new byte[2];
-            tailLen = 0;
-
-            count = do_newline ? LINE_GROUPS : -1;
-        }
-
-        /**
-         * @return an overestimate for the number of bytes {@code len} bytes could encode to.
-         */
-        public int maxOutputSize(int len) {
-            return len * 8 / 5 + 10;
-        }
-
-        public boolean process(byte[] input, int offset, int len, boolean finish) {
-            // Using local variables makes the encoder about 9% faster.
-            final byte[] alphabet = this.alphabet;
-            final byte[] output = this.output;
-            int op = 0;
-            int count = this.count;
-
-            int p = offset;
-            len += offset;
-            int v = -1;
-
-            // First we need to concatenate the tail of the previous call
-            // with any input bytes available now and see if we can empty
-            // the tail.
-
-            switch (tailLen) {
-                case 0:
-                    // There was no tail.
-                    break;
-
-                case 1:
-                    if (p + 2 <= len) {
-                        // A 1-byte tail with at least 2 bytes of
-                        // input available now.
-                        v = ((tail[0] & 0xff) << 16) | ((input[p++] & 0xff) << 8) | (input[p++] & 0xff);
-                        tailLen = 0;
-                    }
-                    ;
-                    break;
-
-                case 2:
-                    if (p + 1 <= len) {
-                        // A 2-byte tail with at least 1 byte of input.
-                        v = ((tail[0] & 0xff) << 16) | ((tail[1] & 0xff) << 8) | (input[p++] & 0xff);
-                        tailLen = 0;
-                    }
-                    break;
-            }
-
-            if (v != -1) {
-                output[op++] = alphabet[(v >> 18) & 0x3f];
-                output[op++] = alphabet[(v >> 12) & 0x3f];
-                output[op++] = alphabet[(v >> 6) & 0x3f];
-                output[op++] = alphabet[v & 0x3f];
-                if (--count == 0) {
-                    if (do_cr) output[op++] = '\r';
-                    output[op++] = '\n';
-                    count = LINE_GROUPS;
-                }
+    /**
+     * Base64-encode the given data into output, 3 bytes to 4 characters per step.
+     * The remaining space of output must not be less than {@link #encodedLength}.
+     *
+     * @param input        the data to encode
+     * @param offset       the position within the input array at which to start
+     * @param len          the number of bytes of input to encode
+     * @param output       the array to hold the encoded data
+     * @param outputOffset the position within the output array at which to start
+     * @param flags        controls certain features of the encoded output. Passing {@code DEFAULT} results in output that adheres to RFC 2045.
+     *
+     * @return the number of encoded bytes
+     */
+    public static int encode(byte[] input, int offset, int len, byte[] output, int outputOffset, int flags) {
+        final byte[] alphabet = ((flags & URL_SAFE) == 0) ? ENCODE : ENCODE_WEBSAFE;
+        final boolean do_padding = (flags & NO_PADDING) == 0;
+        final boolean do_newline = (flags & NO_WRAP) == 0;
+        final boolean do_cr = (flags & CRLF) != 0;
+
+        int p = offset;
+        int end = offset + len;
+        int fullEnd = end - len % 3;
+        int op = outputOffset;
+        int count = LINE_GROUPS;
+
+        // The main loop, turning 3 input bytes into 4 output bytes on each iteration.
+        while (p < fullEnd) {
+            int v = ((input[p] & 0xff) << 16) | ((input[p + 1] & 0xff) << 8) | (input[p + 2] & 0xff);
+            output[op] = alphabet[(v >> 18) & 0x3f];
+            output[op + 1] = alphabet[(v >> 12) & 0x3f];
+            output[op + 2] = alphabet[(v >> 6) & 0x3f];
+            output[op + 3] = alphabet[v & 0x3f];
+            p += 3;
+            op += 4;
+            if (do_newline && --count == 0) {
+                if (do_cr) output[op++] = '\r';
+                output[op++] = '\n';
+                count = LINE_GROUPS;
             }
+        }
 
-            // At this point either there is no tail, or there are fewer
-            // than 3 bytes of input available.
-
-            // The main loop, turning 3 input bytes into 4 output bytes on
-            // each iteration.
-            while (p + 3 <= len) {
-                v = ((input[p] & 0xff) << 16) | ((input[p + 1] & 0xff) << 8) | (input[p + 2] & 0xff);
-                output[op] = alphabet[(v >> 18) & 0x3f];
-                output[op + 1] = alphabet[(v >> 12) & 0x3f];
-                output[op + 2] = alphabet[(v >> 6) & 0x3f];
-                output[op + 3] = alphabet[v & 0x3f];
-                p += 3;
-                op += 4;
-                if (--count == 0) {
-                    if (do_cr) output[op++] = '\r';
-                    output[op++] = '\n';
-                    count = LINE_GROUPS;
-                }
+        // Finish up the tail of the input, there should be at most two bytes.
+        if (p == end - 1) {
+            int v = (input[p] & 0xff) << 4;
+            output[op++] = alphabet[(v >> 6) & 0x3f];
+            output[op++] = alphabet[v & 0x3f];
+            if (do_padding) {
+                output[op++] = '=';
+                output[op++] = '=';
             }
-
-            if (finish) {
-                // Finish up the tail of the input. Note that we need to
-                // consume any bytes in tail before any bytes
-                // remaining in input; there should be at most two bytes
-                // total.
-
-                if (p - tailLen == len - 1) {
-                    int t = 0;
-                    v = ((tailLen > 0 ? tail[t++] : input[p++]) & 0xff) << 4;
-                    tailLen -= t;
-                    output[op++] = alphabet[(v >> 6) & 0x3f];
-                    output[op++] = alphabet[v & 0x3f];
-                    if (do_padding) {
-                        output[op++] = '=';
-                        output[op++] = '=';
-                    }
-                    if (do_newline) {
-                        if (do_cr) output[op++] = '\r';
-                        output[op++] = '\n';
-                    }
-                } else if (p - tailLen == len - 2) {
-                    int t = 0;
-                    v = (((tailLen > 1 ? tail[t++] : input[p++]) & 0xff) << 10) | (((tailLen > 0 ? tail[t++] : input[p++]) & 0xff) << 2);
-                    tailLen -= t;
-                    output[op++] = alphabet[(v >> 12) & 0x3f];
-                    output[op++] = alphabet[(v >> 6) & 0x3f];
-                    output[op++] = alphabet[v & 0x3f];
-                    if (do_padding) {
-                        output[op++] = '=';
-                    }
-                    if (do_newline) {
-                        if (do_cr) output[op++] = '\r';
-                        output[op++] = '\n';
-                    }
-                } else if (do_newline && op > 0 && count != LINE_GROUPS) {
-                    if (do_cr) output[op++] = '\r';
-                    output[op++] = '\n';
-                }
-
-                assert tailLen == 0;
-                assert p == len;
-            } else {
-                // Save the leftovers in tail to be consumed on the next
-                // call to encodeInternal.
-
-                if (p == len - 1) {
-                    tail[tailLen++] = input[p];
-                } else if (p == len - 2) {
-                    tail[tailLen++] = input[p];
-                    tail[tailLen++] = input[p + 1];
-                }
+        } else if (p == end - 2) {
+            int v = ((input[p] & 0xff) << 10) | ((input[p + 1] & 0xff) << 2);
+            output[op++] = alphabet[(v >> 12) & 0x3f];
+            output[op++] = alphabet[(v >> 6) & 0x3f];
+            output[op++] = alphabet[v & 0x3f];
+            if (do_padding) {
+                output[op++] = '=';
             }
-
-            this.op = op;
-            this.count = count;
-
-            return true;
         }
+        if (do_newline && op > outputOffset && (p < end || count != LINE_GROUPS)) {
+            if (do_cr) output[op++] = '\r';
+            output[op++] = '\n';
+        }
+        return op - outputOffset;
     }
 
     private Base64Util() {} // don't instantiate
@@ -0,0 +1,35 @@
+package net.pocrd.util;
+
+import java.util.Arrays;
+
+/**
+ * 以字节数组内容作为key, 哈希值在构造时计算一次
+ * 查找时可以直接包装调用方的数组, 放入缓存时应包装数组的副本
+ */
+public final class ByteArrayKey {
+    private final byte[] bytes;
+    private final int    hash;
+
+    public ByteArrayKey(byte[] bytes) {
+        this.bytes = bytes;
+        int h = Arrays.hashCode(bytes);
+        this.hash = h ^ (h >>> 16);
+    }
+
+    /**
+     * 包装数组的副本, 用于放入缓存
+     */
+    public ByteArrayKey copy() {
+        return new ByteArrayKey(bytes.clone());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ByteArrayKey && hash == ((ByteArrayKey)obj).hash && Arrays.equals(bytes, ((ByteArrayKey)obj).bytes);
+    }
+}
@@ -0,0 +1,155 @@
+package net.pocrd.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 由固定大小数据块组成的输出缓冲区, 扩容时不拷贝已写入的数据, 输出时逐块写出
+ * 数据块在所有实例间共享复用, reset时每个实例只保留有限个数据块, 其余归还共享池,
+ * 避免单次大响应使线程相关的缓冲区长期占用大量内存
+ */
+public class ChunkedByteArrayOutputStream extends OutputStream {
+    /**
+     * 数据块大小
+     */
+    public static final  int                           CHUNK_SIZE        = 4096;
+    /**
+     * 共享池中最多缓存的数据块数量
+     */
+    private static final int                           MAX_POOLED_CHUNKS = 1024;
+    private static final ConcurrentLinkedQueue<byte[]> pool              = new ConcurrentLinkedQueue<byte[]>();
+    private static final AtomicInteger                 pooledCount       = new AtomicInteger(0);
+
+    private final ArrayList<byte[]> chunks = new ArrayList<byte[]>();
+    /**
+     * reset后当前实例保留的数据块数量上限
+     */
+    private final int retainedChunks;
+    /**
+     * 已写入的字节数
+     */
+    private int count = 0;
+
+    public ChunkedByteArrayOutputStream() {
+        this(16);
+    }
+
+    /**
+     * @param retainedChunks reset后保留的数据块数量上限, 至少保留一个
+     */
+    public ChunkedByteArrayOutputStream(int retainedChunks) {
+        this.retainedChunks = retainedChunks < 1 ? 1 : retainedChunks;
+    }
+
+    private static byte[] acquire() {
+        byte[] chunk = pool.poll();
+        if (chunk == null) {
+            return new byte[CHUNK_SIZE];
+        }
+        pooledCount.decrementAndGet();
+        return chunk;
+    }
+
+    private static void release(byte[] chunk) {
+        if (pooledCount.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+            pool.offer(chunk);
+        } else {
+            pooledCount.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        int index = count / CHUNK_SIZE;
+        if (index == chunks.size()) {
+            chunks.add(acquire());
+        }
+        chunks.get(index)[count % CHUNK_SIZE] = (byte)b;
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            int index = count / CHUNK_SIZE;
+            if (index == chunks.size()) {
+                chunks.add(acquire());
+            }
+            int pos = count % CHUNK_SIZE;
+            int n = Math.min(len, CHUNK_SIZE - pos);
+            System.arraycopy(b, off, chunks.get(index), pos, n);
+            off += n;
+            len -= n;
+            count += n;
+        }
+    }
+
+    @Override
+    public void write(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 回退写入位置, 用于丢弃序列化失败时已写入的部分数据
+     */
+    public void setWriteIndex(int index) {
+        if (index < 0 || index > count) {
+            throw new IndexOutOfBoundsException("index:" + index + " size:" + count);
+        }
+        count = index;
+    }
+
+    /**
+     * 清空已写入的数据, 超出保留上限的数据块归还共享池
+     */
+    public void reset() {
+        count = 0;
+        for (int i = chunks.size() - 1; i >= retainedChunks; i--) {
+            release(chunks.remove(i));
+        }
+    }
+
+    /**
+     * 逐块写出全部数据
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        writeTo(out, 0, count);
+    }
+
+    /**
+     * 逐块写出从start开始的len个字节
+     */
+    public void writeTo(OutputStream out, int start, int len) throws IOException {
+        if (start < 0 || len < 0 || start + len > count) {
+            throw new IndexOutOfBoundsException("start:" + start + " len:" + len + " size:" + count);
+        }
+        while (len > 0) {
+            int pos = start % CHUNK_SIZE;
+            int n = Math.min(len, CHUNK_SIZE - pos);
+            out.write(chunks.get(start / CHUNK_SIZE), pos, n);
+            start += n;
+            len -= n;
+        }
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[count];
+        int off = 0;
+        for (int i = 0; off < count; i++) {
+            int n = Math.min(CHUNK_SIZE, count - off);
+            System.arraycopy(chunks.get(i), 0, bytes, off, n);
+            off += n;
+        }
+        return bytes;
+    }
+}
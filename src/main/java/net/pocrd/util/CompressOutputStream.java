@@ -0,0 +1,142 @@
+package net.pocrd.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * gzip/deflate压缩输出流, Deflater及输出缓冲区按线程复用, 避免每次请求重新分配压缩所需的本地内存
+ * 同一线程同时只能使用一个同类型的压缩流, 写入完成后必须调用finish输出剩余的压缩数据
+ */
+public final class CompressOutputStream extends OutputStream {
+    public static final String GZIP    = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private static final ThreadLocal<CompressOutputStream> gzipStream    = new ThreadLocal<CompressOutputStream>() {
+        @Override
+        protected CompressOutputStream initialValue() {
+            return new CompressOutputStream(true);
+        }
+    };
+    private static final ThreadLocal<CompressOutputStream> deflateStream = new ThreadLocal<CompressOutputStream>() {
+        @Override
+        protected CompressOutputStream initialValue() {
+            return new CompressOutputStream(false);
+        }
+    };
+
+    private final boolean      gzip;
+    private final Deflater     deflater;
+    private final CRC32        crc;
+    private final byte[]       buffer = new byte[8192];
+    private final byte[]       single = new byte[1];
+    private       OutputStream out;
+
+    private CompressOutputStream(boolean gzip) {
+        this.gzip = gzip;
+        // gzip格式自行输出文件头及校验信息, deflater只生成原始的压缩数据
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+        this.crc = gzip ? new CRC32() : null;
+    }
+
+    /**
+     * 获取当前线程的压缩流并开始新的压缩过程
+     *
+     * @param encoding gzip或deflate
+     */
+    public static CompressOutputStream getInstance(String encoding, OutputStream out) throws IOException {
+        CompressOutputStream stream;
+        if (GZIP.equals(encoding)) {
+            stream = gzipStream.get();
+        } else if (DEFLATE.equals(encoding)) {
+            stream = deflateStream.get();
+        } else {
+            throw new IllegalArgumentException("unsupported encoding " + encoding);
+        }
+        stream.start(out);
+        return stream;
+    }
+
+    private void start(OutputStream out) throws IOException {
+        this.out = out;
+        deflater.reset();
+        if (gzip) {
+            crc.reset();
+            out.write(GZIP_HEADER);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte)b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return;
+        }
+        if (gzip) {
+            crc.update(b, off, len);
+        }
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            deflate();
+        }
+    }
+
+    /**
+     * 输出剩余的压缩数据, 不关闭下层输出流
+     */
+    public void finish() throws IOException {
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate();
+        }
+        if (gzip) {
+            writeInt((int)crc.getValue());
+            writeInt(deflater.getTotalIn());
+        }
+        out.flush();
+        deflater.reset();
+        out = null;
+    }
+
+    /**
+     * 放弃未完成的压缩过程, 用于输出失败时释放对下层输出流的引用
+     */
+    public void discard() {
+        deflater.reset();
+        out = null;
+    }
+
+    /**
+     * 只刷新下层输出流中已生成的压缩数据, deflater中缓存的数据在finish时输出
+     * (SYNC_FLUSH需要java 7, 项目仍以1.6为目标版本)
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void deflate() throws IOException {
+        int len = deflater.deflate(buffer, 0, buffer.length);
+        if (len > 0) {
+            out.write(buffer, 0, len);
+        }
+    }
+
+    private void writeInt(int i) throws IOException {
+        out.write(i & 0xff);
+        out.write((i >> 8) & 0xff);
+        out.write((i >> 16) & 0xff);
+        out.write((i >> 24) & 0xff);
+    }
+}
@@ -0,0 +1,75 @@
+package net.pocrd.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 按key缓存动态生成的对象, 同一个key只生成一次, 不同key的生成过程可以并行执行
+ * 正在生成的key由FutureTask占位, 其他线程获取同一个key时等待其生成完成
+ */
+public final class ConcurrentBuildCache<K, V> {
+    private final ConcurrentHashMap<K, V>             cache    = new ConcurrentHashMap<K, V>();
+    private final ConcurrentHashMap<K, FutureTask<V>> building = new ConcurrentHashMap<K, FutureTask<V>>();
+
+    /**
+     * 获取已生成的对象, 不存在时返回null
+     */
+    public V get(K key) {
+        return cache.get(key);
+    }
+
+    /**
+     * 获取已生成的对象, 不存在时使用builder生成, 生成失败时抛出builder的异常
+     */
+    public V get(final K key, final Callable<V> builder) {
+        V value = cache.get(key);
+        if (value != null) {
+            return value;
+        }
+        FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                // 其他线程可能在本线程占位前刚好完成生成
+                V v = cache.get(key);
+                if (v == null) {
+                    v = builder.call();
+                    cache.put(key, v);
+                }
+                return v;
+            }
+        });
+        FutureTask<V> existing = building.putIfAbsent(key, task);
+        if (existing == null) {
+            existing = task;
+            try {
+                task.run();
+            } finally {
+                building.remove(key, task);
+            }
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return existing.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException("build failed. " + key, cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package net.pocrd.util;
+
+import net.pocrd.annotation.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.PublicKey;
+import java.security.Signature;
+
+/**
+ * 设备公钥缓存, 以CallerInfo.key中的X509编码公钥为key, 缓存解析后的PublicKey
+ * 公钥解析是验证签名中开销最大的部分; 每个线程只持有一个Signature对象, 验证时按缓存的公钥重新初始化,
+ * 线程相关的对象数量不随设备数量增长
+ */
+@ThreadSafe
+public final class DeviceKeyCache {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceKeyCache.class);
+
+    private final String                            algorithm;
+    private final LruCache<ByteArrayKey, PublicKey> cache;
+    private final ThreadLocal<Signature>            verifier = new ThreadLocal<Signature>();
+
+    /**
+     * @param algorithm AsymmetricEngine.RSA或AsymmetricEngine.ECC
+     * @param maxSize   缓存的最大公钥数量
+     */
+    public DeviceKeyCache(String algorithm, int maxSize) {
+        if (!AsymmetricEngine.RSA.equals(algorithm) && !AsymmetricEngine.ECC.equals(algorithm)) {
+            throw new IllegalArgumentException("unsupported device key algorithm " + algorithm);
+        }
+        this.algorithm = algorithm;
+        this.cache = new LruCache<ByteArrayKey, PublicKey>(maxSize);
+    }
+
+    /**
+     * 获取解析后的公钥, 公钥无法解析时返回null
+     */
+    public PublicKey get(byte[] publicKey) {
+        if (publicKey == null || publicKey.length == 0) {
+            return null;
+        }
+        ByteArrayKey key = new ByteArrayKey(publicKey);
+        PublicKey pub = cache.get(key);
+        if (pub == null) {
+            try {
+                pub = AsymmetricEngine.parsePublicKey(algorithm, publicKey);
+            } catch (Exception e) {
+                logger.warn("parse device public key failed.", e);
+                return null;
+            }
+            cache.put(key.copy(), pub);
+        }
+        return pub;
+    }
+
+    /**
+     * 使用设备公钥验证签名, 公钥无法解析或签名错误时返回false
+     */
+    public boolean verify(byte[] publicKey, byte[] sign, byte[] content) {
+        PublicKey pub = get(publicKey);
+        if (pub == null || sign == null || content == null) {
+            return false;
+        }
+        try {
+            Signature signature = verifier.get();
+            if (signature == null) {
+                signature = AsymmetricEngine.newSignature(algorithm);
+                verifier.set(signature);
+            }
+            signature.initVerify(pub);
+            signature.update(content);
+            return signature.verify(sign);
+        } catch (Exception e) {
+            verifier.remove();
+            logger.warn("verify device signature failed.", e);
+        }
+        return false;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+}
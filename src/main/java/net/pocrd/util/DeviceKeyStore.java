@@ -0,0 +1,389 @@
+package net.pocrd.util;
+
+import net.pocrd.annotation.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.zip.CRC32;
+
+/**
+ * 按deviceId保存设备密钥的堆外存储, 大量设备密钥不再以byte[]对象的形式常驻java堆, 避免增加gc负担
+ * 使用固定大小槽位的开放寻址表(线性探测), 每个槽位保存deviceId, 密钥长度, 校验值及密钥内容
+ * 读操作不加锁, 通过槽位版本号(奇数表示正在写入)检测并重试并发修改; 写操作按deviceId分段加锁
+ * 指定文件时使用内存映射文件保存数据, 进程重启后可以直接加载已有的设备密钥
+ * 删除的槽位只做标记并在写入新设备时复用, 存储空间在创建时一次性分配
+ */
+@ThreadSafe
+public final class DeviceKeyStore {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceKeyStore.class);
+
+    private static final int MAGIC          = 0x444b5331;// DKS1
+    private static final int HEADER_SIZE    = 32;
+    private static final int LENGTH_OFFSET  = 8;
+    private static final int CRC_OFFSET     = 12;
+    private static final int KEY_OFFSET     = 16;
+    private static final int EMPTY          = 0;
+    private static final int REMOVED        = -1;
+    private static final int LOCK_SEGMENTS  = 64;
+
+    private final ByteBuffer         data;
+    private final MappedByteBuffer   mapped;
+    private final AtomicIntegerArray versions;
+    private final Object[]           locks = new Object[LOCK_SEGMENTS];
+    private final AtomicInteger      size  = new AtomicInteger();
+    private final int                capacity;
+    private final int                maxKeyLength;
+    private final int                slotCount;
+    private final int                slotSize;
+    private final ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>();
+
+    /**
+     * 使用堆外内存保存设备密钥
+     *
+     * @param capacity     最多保存的设备数量
+     * @param maxKeyLength 单个密钥的最大长度
+     */
+    public DeviceKeyStore(int capacity, int maxKeyLength) {
+        this(capacity, maxKeyLength, null);
+    }
+
+    /**
+     * @param capacity     最多保存的设备数量
+     * @param maxKeyLength 单个密钥的最大长度
+     * @param file         内存映射文件路径, 为null时使用堆外内存; 文件已存在且容量参数一致时加载其中的设备密钥
+     */
+    public DeviceKeyStore(int capacity, int maxKeyLength, String file) {
+        if (capacity <= 0 || maxKeyLength <= 0) {
+            throw new IllegalArgumentException("invalid capacity " + capacity + " or maxKeyLength " + maxKeyLength);
+        }
+        this.capacity = capacity;
+        this.maxKeyLength = maxKeyLength;
+        // 负载不超过0.75, 保证探测长度较短且总能找到空槽位结束查找
+        int count = Integer.highestOneBit(Math.max((int)Math.min((long)capacity * 4 / 3 + 1, 1 << 30), 2) - 1) << 1;
+        this.slotCount = count;
+        this.slotSize = (KEY_OFFSET + maxKeyLength + 7) & ~7;
+        long total = HEADER_SIZE + (long)slotCount * slotSize;
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("device key store too large. capacity:" + capacity + " maxKeyLength:" + maxKeyLength);
+        }
+        this.versions = new AtomicIntegerArray(slotCount);
+        for (int i = 0; i < LOCK_SEGMENTS; i++) {
+            locks[i] = new Object();
+        }
+        if (file == null) {
+            this.mapped = null;
+            this.data = ByteBuffer.allocateDirect((int)total);
+            writeHeader();
+        } else {
+            this.mapped = map(file, (int)total);
+            this.data = mapped;
+            if (!load()) {
+                for (int i = 0; i < (int)total; i += 8) {
+                    data.putLong(i, 0);
+                }
+                writeHeader();
+                size.set(0);
+            }
+        }
+    }
+
+    private static MappedByteBuffer map(String file, int total) {
+        RandomAccessFile raf = null;
+        try {
+            File f = new File(file);
+            File dir = f.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            raf = new RandomAccessFile(f, "rw");
+            if (raf.length() != total) {
+                raf.setLength(0);
+                raf.setLength(total);
+            }
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, total);
+        } catch (IOException e) {
+            throw new RuntimeException("map device key store failed. " + file, e);
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    logger.error("close device key store file failed. " + file, e);
+                }
+            }
+        }
+    }
+
+    private void writeHeader() {
+        data.putInt(0, MAGIC);
+        data.putInt(4, slotCount);
+        data.putInt(8, slotSize);
+        data.putInt(12, maxKeyLength);
+    }
+
+    /**
+     * 加载文件中已有的设备密钥, 校验失败的槽位(如写入过程中进程退出)标记为已删除以保持探测链完整
+     */
+    private boolean load() {
+        if (data.getInt(0) != MAGIC || data.getInt(4) != slotCount || data.getInt(8) != slotSize || data.getInt(12) != maxKeyLength) {
+            return false;
+        }
+        byte[] key = new byte[maxKeyLength];
+        int count = 0;
+        int dropped = 0;
+        for (int i = 0; i < slotCount; i++) {
+            int pos = position(i);
+            int length = data.getInt(pos + LENGTH_OFFSET);
+            if (length == EMPTY || length == REMOVED) {
+                continue;
+            }
+            if (length > 0 && length <= maxKeyLength) {
+                readKey(pos, key, 0, length);
+                if (data.getInt(pos + CRC_OFFSET) == checksum(data.getLong(pos), key, length)) {
+                    count++;
+                    continue;
+                }
+            }
+            data.putInt(pos + LENGTH_OFFSET, REMOVED);
+            dropped++;
+        }
+        size.set(count);
+        logger.info("device key store loaded. devices:{} dropped:{}", count, dropped);
+        return true;
+    }
+
+    private int position(int index) {
+        return HEADER_SIZE + index * slotSize;
+    }
+
+    private static int hash(long deviceId) {
+        long h = deviceId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int)h;
+    }
+
+    private static int checksum(long deviceId, byte[] key, int length) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < 8; i++) {
+            crc.update((int)(deviceId >>> (i * 8)));
+        }
+        crc.update(key, 0, length);
+        return (int)crc.getValue();
+    }
+
+    private void readKey(int pos, byte[] out, int offset, int length) {
+        // 只使用绝对位置读写, 多线程共享同一个ByteBuffer时不会相互影响
+        int from = pos + KEY_OFFSET;
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = data.get(from + i);
+        }
+    }
+
+    /**
+     * 读取期间槽位未被修改时返回true, compareAndSet保证之前的读取不会被重排到版本号检查之后
+     */
+    private boolean unchanged(int index, int version) {
+        return versions.compareAndSet(index, version, version);
+    }
+
+    /**
+     * 获取设备密钥, 不存在时返回null
+     */
+    public byte[] get(long deviceId) {
+        byte[] buf = scratch.get();
+        if (buf == null) {
+            buf = new byte[maxKeyLength];
+            scratch.set(buf);
+        }
+        int length = get(deviceId, buf, 0);
+        if (length < 0) {
+            return null;
+        }
+        byte[] key = new byte[length];
+        System.arraycopy(buf, 0, key, 0, length);
+        return key;
+    }
+
+    /**
+     * 将设备密钥读取到调用方提供的缓冲区中, 缓冲区剩余空间不能小于maxKeyLength
+     *
+     * @return 密钥长度, 不存在时返回-1
+     */
+    public int get(long deviceId, byte[] out, int offset) {
+        if (out.length - offset < maxKeyLength) {
+            throw new IndexOutOfBoundsException("buffer too small. required:" + maxKeyLength);
+        }
+        int mask = slotCount - 1;
+        int index = hash(deviceId) & mask;
+        for (int probe = 0; probe < slotCount; probe++) {
+            int pos = position(index);
+            while (true) {
+                int version = versions.get(index);
+                if ((version & 1) != 0) {
+                    Thread.yield();
+                    continue;
+                }
+                int length = data.getInt(pos + LENGTH_OFFSET);
+                if (length == EMPTY) {
+                    if (unchanged(index, version)) {
+                        return -1;
+                    }
+                    continue;
+                }
+                if (length == REMOVED || length > maxKeyLength || data.getLong(pos) != deviceId) {
+                    if (unchanged(index, version)) {
+                        break;
+                    }
+                    continue;
+                }
+                readKey(pos, out, offset, length);
+                if (unchanged(index, version)) {
+                    return length;
+                }
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 保存设备密钥, 已存在时覆盖
+     *
+     * @return 存储已满时返回false
+     */
+    public boolean put(long deviceId, byte[] key) {
+        if (key == null || key.length == 0 || key.length > maxKeyLength) {
+            throw new IllegalArgumentException("invalid device key length " + (key == null ? -1 : key.length));
+        }
+        int h = hash(deviceId);
+        int crc = checksum(deviceId, key, key.length);
+        // 同一deviceId的写操作串行执行, 保证同一设备不会占用多个槽位
+        synchronized (locks[(h >>> 16) & (LOCK_SEGMENTS - 1)]) {
+            while (true) {
+                int found = find(deviceId, h);
+                int index = found >= 0 ? found : -found - 1;
+                if (found < 0 && (index == slotCount || size.get() >= capacity)) {
+                    return false;
+                }
+                int version = versions.get(index);
+                if ((version & 1) != 0 || !versions.compareAndSet(index, version, version + 1)) {
+                    continue;
+                }
+                // 获得槽位后再次确认槽位状态, 其他deviceId的写入可能刚好占用了该空槽位
+                int pos = position(index);
+                int length = data.getInt(pos + LENGTH_OFFSET);
+                boolean valid = found >= 0 ? length > 0 && data.getLong(pos) == deviceId : length == EMPTY || length == REMOVED;
+                if (valid) {
+                    data.putLong(pos, deviceId);
+                    int from = pos + KEY_OFFSET;
+                    for (int i = 0; i < key.length; i++) {
+                        data.put(from + i, key[i]);
+                    }
+                    data.putInt(pos + CRC_OFFSET, crc);
+                    data.putInt(pos + LENGTH_OFFSET, key.length);
+                }
+                versions.set(index, version + 2);
+                if (valid) {
+                    if (found < 0) {
+                        size.incrementAndGet();
+                    }
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除设备密钥
+     *
+     * @return 设备密钥存在时返回true
+     */
+    public boolean remove(long deviceId) {
+        int h = hash(deviceId);
+        synchronized (locks[(h >>> 16) & (LOCK_SEGMENTS - 1)]) {
+            while (true) {
+                int index = find(deviceId, h);
+                if (index < 0) {
+                    return false;
+                }
+                int version = versions.get(index);
+                if ((version & 1) != 0 || !versions.compareAndSet(index, version, version + 1)) {
+                    continue;
+                }
+                int pos = position(index);
+                boolean valid = data.getInt(pos + LENGTH_OFFSET) > 0 && data.getLong(pos) == deviceId;
+                if (valid) {
+                    data.putInt(pos + LENGTH_OFFSET, REMOVED);
+                }
+                versions.set(index, version + 2);
+                if (valid) {
+                    size.decrementAndGet();
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 在持有deviceId对应分段锁时查找槽位
+     *
+     * @return 已存在时返回槽位序号, 否则返回 -(可写入的槽位序号 + 1), 没有可用槽位时可写入序号为slotCount
+     */
+    private int find(long deviceId, int h) {
+        int mask = slotCount - 1;
+        int index = h & mask;
+        int free = -1;
+        for (int probe = 0; probe < slotCount; probe++) {
+            int pos = position(index);
+            int length = data.getInt(pos + LENGTH_OFFSET);
+            if (length == EMPTY) {
+                return -(free >= 0 ? free : index) - 1;
+            }
+            if (length == REMOVED) {
+                if (free < 0) {
+                    free = index;
+                }
+            } else if (data.getLong(pos) == deviceId) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -(free >= 0 ? free : slotCount) - 1;
+    }
+
+    /**
+     * 当前保存的设备数量
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getMaxKeyLength() {
+        return maxKeyLength;
+    }
+
+    /**
+     * 将内存映射文件中的修改写入磁盘, 未使用文件时不做任何操作
+     */
+    public void force() {
+        if (mapped != null) {
+            mapped.force();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package net.pocrd.util;
+
+import net.pocrd.annotation.ThreadSafe;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 摘要计算, 每个线程为每种算法缓存MessageDigest对象, 避免每次调用时查找provider并创建实例
+ * 一次性计算与增量计算(begin)分别使用不同的实例, 增量计算过程中可以调用一次性计算的方法
+ */
+@ThreadSafe
+public final class DigestUtil {
+    public static final String MD5    = "MD5";
+    public static final String SHA1   = "SHA-1";
+    public static final String SHA256 = "SHA-256";
+
+    /**
+     * 支持的算法中最长的摘要长度(SHA-256)
+     */
+    public static final int MAX_DIGEST_LENGTH = 32;
+
+    private static final Slot md5Slot    = new Slot(MD5);
+    private static final Slot sha1Slot   = new Slot(SHA1);
+    private static final Slot sha256Slot = new Slot(SHA256);
+
+    /**
+     * 线程相关的摘要缓冲区, 用于直接输出16进制或base64格式的摘要
+     */
+    private static final ThreadLocal<byte[]> buffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[MAX_DIGEST_LENGTH];
+        }
+    };
+
+    private DigestUtil() {
+    }
+
+    private static Slot slot(String algorithm) {
+        if (MD5.equals(algorithm)) {
+            return md5Slot;
+        } else if (SHA1.equals(algorithm) || "SHA1".equals(algorithm)) {
+            return sha1Slot;
+        } else if (SHA256.equals(algorithm)) {
+            return sha256Slot;
+        }
+        throw new IllegalArgumentException("unsupported digest algorithm " + algorithm);
+    }
+
+    public static byte[] md5(byte[] content) {
+        return compute(MD5, content, 0, content.length);
+    }
+
+    public static byte[] sha1(byte[] content) {
+        return compute(SHA1, content, 0, content.length);
+    }
+
+    public static byte[] sha256(byte[] content) {
+        return compute(SHA256, content, 0, content.length);
+    }
+
+    public static byte[] compute(String algorithm, byte[] content) {
+        return compute(algorithm, content, 0, content.length);
+    }
+
+    public static byte[] compute(String algorithm, byte[] content, int offset, int length) {
+        MessageDigest md = slot(algorithm).shared.get();
+        md.update(content, offset, length);
+        return md.digest();
+    }
+
+    /**
+     * 计算position与limit之间数据的摘要, 计算完成后position移动到limit
+     */
+    public static byte[] compute(String algorithm, ByteBuffer content) {
+        MessageDigest md = slot(algorithm).shared.get();
+        md.update(content);
+        return md.digest();
+    }
+
+    /**
+     * 将摘要写入调用方提供的缓冲区中, 缓冲区剩余空间不能小于摘要长度
+     *
+     * @return 摘要长度
+     */
+    public static int compute(String algorithm, byte[] content, int offset, int length, byte[] output, int outputOffset) {
+        MessageDigest md = slot(algorithm).shared.get();
+        md.update(content, offset, length);
+        try {
+            return md.digest(output, outputOffset, output.length - outputOffset);
+        } catch (DigestException e) {
+            md.reset();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 将16进制格式(小写)的摘要写入调用方提供的缓冲区中, 缓冲区剩余空间不能小于摘要长度的两倍
+     *
+     * @return 写入的字符数
+     */
+    public static int computeToHex(String algorithm, byte[] content, int offset, int length, char[] output, int outputOffset) {
+        byte[] digest = buffer.get();
+        int len = compute(algorithm, content, offset, length, digest, 0);
+        return HexStringUtil.toHexChars(digest, 0, len, output, outputOffset);
+    }
+
+    /**
+     * 将base64格式(NO_WRAP)的摘要写入调用方提供的缓冲区中, 缓冲区剩余空间不能小于Base64Util.encodedLength
+     *
+     * @return 写入的字节数
+     */
+    public static int computeToBase64(String algorithm, byte[] content, int offset, int length, byte[] output, int outputOffset) {
+        byte[] digest = buffer.get();
+        int len = compute(algorithm, content, offset, length, digest, 0);
+        return Base64Util.encode(digest, 0, len, output, outputOffset, Base64Util.NO_WRAP);
+    }
+
+    /**
+     * 开始增量计算, 返回当前线程已重置的MessageDigest对象, 调用digest方法结束计算
+     * 同一线程中同一算法的增量计算不能嵌套进行, 返回的对象不能传递给其他线程使用
+     */
+    public static MessageDigest begin(String algorithm) {
+        MessageDigest md = slot(algorithm).incremental.get();
+        md.reset();
+        return md;
+    }
+
+    private static final class Slot {
+        private final ThreadLocal<MessageDigest> shared;
+        private final ThreadLocal<MessageDigest> incremental;
+
+        private Slot(String algorithm) {
+            shared = create(algorithm);
+            incremental = create(algorithm);
+        }
+
+        private static ThreadLocal<MessageDigest> create(final String algorithm) {
+            return new ThreadLocal<MessageDigest>() {
+                @Override
+                protected MessageDigest initialValue() {
+                    try {
+                        return MessageDigest.getInstance(algorithm);
+                    } catch (NoSuchAlgorithmException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+        }
+    }
+}
@@ -1,49 +1,24 @@
 package net.pocrd.util;
 
-import net.pocrd.annotation.NotThreadSafe;
-import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPrivateKey;
-import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPublicKey;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import net.pocrd.annotation.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.crypto.Cipher;
-import java.io.ByteArrayOutputStream;
-import java.security.KeyFactory;
-import java.security.Security;
-import java.security.Signature;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.security.spec.X509EncodedKeySpec;
-
-@NotThreadSafe
+/**
+ * ECC工具类, 由AsymmetricEngine实现, 可以在多线程间共享
+ */
+@ThreadSafe
 public class EccHelper {
     private static final Logger logger = LoggerFactory.getLogger(EccHelper.class);
-    private static final int    SIZE   = 4096;
-    private BCECPublicKey  publicKey;
-    private BCECPrivateKey privateKey;
 
-    static {
-        Security.addProvider(new BouncyCastleProvider());
-    }
+    private final AsymmetricEngine engine;
 
     public EccHelper(String publicKey, String privateKey) {
         this(Base64Util.decode(publicKey), Base64Util.decode(privateKey));
     }
 
     public EccHelper(byte[] publicKey, byte[] privateKey) {
-        try {
-            KeyFactory keyFactory = KeyFactory.getInstance("EC", "BC");
-            if (publicKey != null && publicKey.length > 0) {
-                this.publicKey = (BCECPublicKey)keyFactory.generatePublic(new X509EncodedKeySpec(publicKey));
-            }
-            if (privateKey != null && privateKey.length > 0) {
-                this.privateKey = (BCECPrivateKey)keyFactory.generatePrivate(new PKCS8EncodedKeySpec(privateKey));
-            }
-        } catch (ClassCastException e) {
-            throw new RuntimeException("", e);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        engine = AsymmetricEngine.ecc(publicKey, privateKey);
     }
 
     public EccHelper(String publicKey) {
@@ -51,68 +26,19 @@ public class EccHelper {
     }
 
     public EccHelper(byte[] publicKey) {
-        try {
-            KeyFactory keyFactory = KeyFactory.getInstance("EC", "BC");
-            if (publicKey != null && publicKey.length > 0) {
-                this.publicKey = (BCECPublicKey)keyFactory.generatePublic(new X509EncodedKeySpec(publicKey));
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        engine = AsymmetricEngine.ecc(publicKey, null);
     }
 
     public byte[] encrypt(byte[] content) {
-        if (publicKey == null) {
-            throw new RuntimeException("public key is null.");
-        }
-        try {
-            Cipher cipher = Cipher.getInstance("ECIES", "BC");
-            cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-            int size = SIZE;
-            ByteArrayOutputStream baos = new ByteArrayOutputStream((content.length + size - 1) / size * (size + 45));
-            int left = 0;
-            for (int i = 0; i < content.length; ) {
-                left = content.length - i;
-                if (left > size) {
-                    cipher.update(content, i, size);
-                    i += size;
-                } else {
-                    cipher.update(content, i, left);
-                    i += left;
-                }
-                baos.write(cipher.doFinal());
-            }
-
-            return baos.toByteArray();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        return engine.encrypt(content);
     }
 
     public byte[] decrypt(byte[] secret) {
-        if (privateKey == null) {
+        if (engine.getPrivateKey() == null) {
             throw new RuntimeException("private key is null.");
         }
         try {
-            Cipher cipher = Cipher.getInstance("ECIES", "BC");
-            cipher.init(Cipher.DECRYPT_MODE, privateKey);
-            int size = SIZE + 45;
-            ByteArrayOutputStream baos = new ByteArrayOutputStream((secret.length + size + 44) / (size + 45) * size);
-            int left = 0;
-            for (int i = 0; i < secret.length; ) {
-                left = secret.length - i;
-                if (left > size) {
-                    cipher.update(secret, i, size);
-                    i += size;
-                } else {
-                    cipher.update(secret, i, left);
-                    i += left;
-                }
-
-                baos.write(cipher.doFinal());
-            }
-
-            return baos.toByteArray();
+            return engine.decrypt(secret);
         } catch (Exception e) {
             logger.error("ecc decrypt failed.", e);
         }
@@ -120,28 +46,15 @@ public class EccHelper {
     }
 
     public byte[] sign(byte[] content) {
-        if (privateKey == null) {
-            throw new RuntimeException("private key is null.");
-        }
-        try {
-            Signature signature = Signature.getInstance("SHA1withECDSA", "BC");
-            signature.initSign(privateKey);
-            signature.update(content);
-            return signature.sign();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        return engine.sign(content);
     }
 
     public boolean verify(byte[] sign, byte[] content) {
-        if (publicKey == null) {
+        if (engine.getPublicKey() == null) {
             throw new RuntimeException("public key is null.");
         }
         try {
-            Signature signature = Signature.getInstance("SHA1withECDSA", "BC");
-            signature.initVerify(publicKey);
-            signature.update(content);
-            return signature.verify(sign);
+            return engine.verify(sign, content);
         } catch (Exception e) {
             logger.error("ecc verify failed.", e);
         }
@@ -17,24 +17,23 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
 
 public class EvaluaterProvider implements Opcodes {
 
-    private static ConcurrentHashMap<String, Evaluater<?, ?>> cache = new ConcurrentHashMap<String, Evaluater<?, ?>>();
+    private static ConcurrentBuildCache<String, Evaluater<?, ?>> cache = new ConcurrentBuildCache<String, Evaluater<?, ?>>();
 
     @SuppressWarnings("unchecked")
-    public synchronized static <TLeft, TRight> Evaluater<TLeft, TRight> getEvaluater(Class<TLeft> leftClass, Class<TRight> rightClass) {
+    public static <TLeft, TRight> Evaluater<TLeft, TRight> getEvaluater(final Class<TLeft> leftClass, final Class<TRight> rightClass) {
         String key = leftClass.getName() + "_" + rightClass.getName();
         Evaluater<TLeft, TRight> evaluater = (Evaluater<TLeft, TRight>)cache.get(key);
         if (evaluater == null) {
-            synchronized (cache) {
-                evaluater = (Evaluater<TLeft, TRight>)cache.get(key);
-                if (evaluater == null) {
-                    evaluater = createEvaluater(leftClass, rightClass);
-                    cache.put(key, evaluater);
+            evaluater = (Evaluater<TLeft, TRight>)cache.get(key, new Callable<Evaluater<?, ?>>() {
+                @Override
+                public Evaluater<?, ?> call() {
+                    return createEvaluater(leftClass, rightClass);
                 }
-            }
+            });
         }
         return evaluater;
     }
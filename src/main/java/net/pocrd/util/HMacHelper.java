@@ -8,7 +8,6 @@ import org.slf4j.LoggerFactory;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
-import java.util.Arrays;
 
 /**
  * 测试结论，对于HMacHelper这种，绝大部分时间都是同一个密钥在工作， 但是需要在多线程访问时进行同步的辅助类，使用ThreadLocal为每一个 线程缓存一个实例可以避免进行锁操作
@@ -54,7 +53,7 @@ public class HMacHelper {
             //            synchronized (this) {
             result = mac.doFinal(content);
             //            }
-            return Arrays.equals(sig, result);
+            return HMacVerifier.constantTimeEquals(sig, result);
         } catch (Exception e) {
             logger.error("varify sig failed.", e);
         }
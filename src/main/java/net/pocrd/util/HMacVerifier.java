@@ -0,0 +1,141 @@
+package net.pocrd.util;
+
+import net.pocrd.annotation.ThreadSafe;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按appid注册密钥的HMAC签名验证服务, 每个密钥在每个线程中持有一个已初始化的Mac副本, 验证过程无锁
+ * 替换密钥时直接发布新的密钥项, 正在使用旧密钥的请求不受影响, 旧密钥的Mac副本随密钥项一同被回收
+ */
+@ThreadSafe
+public final class HMacVerifier {
+    public static final String HMAC_MD5    = "HmacMD5";
+    public static final String HMAC_SHA256 = "HmacSHA256";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ConcurrentHashMap<Integer, KeyEntry> keys = new ConcurrentHashMap<Integer, KeyEntry>();
+
+    /**
+     * 注册或替换appid对应的密钥
+     *
+     * @param algorithm HMAC_MD5或HMAC_SHA256
+     */
+    public void registerKey(int appid, String algorithm, byte[] key) {
+        if (!HMAC_MD5.equals(algorithm) && !HMAC_SHA256.equals(algorithm)) {
+            throw new IllegalArgumentException("unsupported hmac algorithm " + algorithm);
+        }
+        keys.put(appid, new KeyEntry(new SecretKeySpec(key, algorithm)));
+    }
+
+    public void unregisterKey(int appid) {
+        keys.remove(appid);
+    }
+
+    public boolean containsKey(int appid) {
+        return keys.containsKey(appid);
+    }
+
+    private Mac getMac(int appid) {
+        KeyEntry entry = keys.get(appid);
+        return entry == null ? null : entry.mac.get();
+    }
+
+    /**
+     * 使用appid对应的密钥计算签名, 密钥不存在时返回null
+     */
+    public byte[] sign(int appid, byte[] content, int offset, int length) {
+        Mac mac = getMac(appid);
+        if (mac == null) {
+            return null;
+        }
+        mac.update(content, offset, length);
+        return mac.doFinal();
+    }
+
+    /**
+     * 验证签名, 密钥不存在时返回false
+     */
+    public boolean verify(int appid, byte[] content, int offset, int length, byte[] sig) {
+        byte[] result = sign(appid, content, offset, length);
+        return result != null && constantTimeEquals(result, sig);
+    }
+
+    /**
+     * 验证position与limit之间数据的签名, 验证完成后position移动到limit
+     */
+    public boolean verify(int appid, ByteBuffer content, byte[] sig) {
+        Mac mac = getMac(appid);
+        if (mac == null) {
+            return false;
+        }
+        mac.update(content);
+        return constantTimeEquals(mac.doFinal(), sig);
+    }
+
+    /**
+     * 验证16进制格式(不区分大小写)的签名, 直接与签名字符逐个比较, 不生成中间字符串
+     */
+    public boolean verifyHex(int appid, byte[] content, int offset, int length, String sig) {
+        byte[] result = sign(appid, content, offset, length);
+        if (result == null || sig == null || sig.length() != result.length * 2) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < result.length; i++) {
+            diff |= toLowerHex(sig.charAt(i * 2)) ^ HEX[(result[i] >> 4) & 0x0f];
+            diff |= toLowerHex(sig.charAt(i * 2 + 1)) ^ HEX[result[i] & 0x0f];
+        }
+        return diff == 0;
+    }
+
+    private static int toLowerHex(char c) {
+        return c >= 'A' && c <= 'F' ? c + ('a' - 'A') : c;
+    }
+
+    /**
+     * 比较耗时只与数组长度有关, 不会因为提前返回而泄漏匹配的字节数
+     */
+    public static boolean constantTimeEquals(byte[] a, byte[] b) {
+        if (a == null || b == null || a.length != b.length) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < a.length; i++) {
+            diff |= a[i] ^ b[i];
+        }
+        return diff == 0;
+    }
+
+    private static final class KeyEntry {
+        private final ThreadLocal<Mac> mac;
+
+        private KeyEntry(final SecretKeySpec key) {
+            final Mac prototype = createMac(key);
+            this.mac = new ThreadLocal<Mac>() {
+                @Override
+                protected Mac initialValue() {
+                    try {
+                        return (Mac)prototype.clone();
+                    } catch (CloneNotSupportedException e) {
+                        return createMac(key);
+                    }
+                }
+            };
+        }
+
+        private static Mac createMac(SecretKeySpec key) {
+            try {
+                Mac mac = Mac.getInstance(key.getAlgorithm());
+                mac.init(key);
+                return mac;
+            } catch (Exception e) {
+                throw new RuntimeException("create hmac failed. " + key.getAlgorithm(), e);
+            }
+        }
+    }
+}
@@ -14,6 +14,21 @@ public class HexStringUtil {
         return new String(hexChars);
     }
 
+    /**
+     * 将16进制格式(小写)写入调用方提供的缓冲区中, 缓冲区剩余空间不能小于length的两倍
+     *
+     * @return 写入的字符数
+     */
+    public static final int toHexChars(byte[] bs, int offset, int length, char[] output, int outputOffset) {
+        int p = outputOffset;
+        for (int i = offset; i < offset + length; i++) {
+            int v = bs[i] & 0xff;
+            output[p++] = hexArray[v >>> 4];
+            output[p++] = hexArray[v & 0x0f];
+        }
+        return p - outputOffset;
+    }
+
     public static final byte[] toByteArray(String hexString) {
         if (hexString == null || hexString.length() % 2 != 0) return null;
         hexString = hexString.toLowerCase();
@@ -3,6 +3,7 @@ package net.pocrd.util;
 import net.pocrd.annotation.Description;
 import net.pocrd.core.PocClassLoader;
 import net.pocrd.define.CommonParameter;
+import net.pocrd.define.BatchHttpApiExecuter;
 import net.pocrd.define.HttpApiExecuter;
 import net.pocrd.entity.ApiMethodInfo;
 import net.pocrd.entity.ApiParameterInfo;
@@ -12,6 +13,7 @@ import org.objectweb.asm.*;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Map;
 
@@ -21,10 +23,266 @@ import java.util.Map;
  * @author rendong
  */
 public class HttpApiProvider implements Opcodes {
-    private static final String REGEX_PREFIX = "regex_";
-    private static final String CONST_PREFIX = "const_";
+    private static final String REGEX_PREFIX     = "regex_";
+    private static final String CONST_PREFIX     = "const_";
+    private static final String JSON_PREFIX      = "json_";
+    private static final String CLONER_PREFIX    = "cloner_";
+    // 整数及boolean参数使用ParameterParser解析, 非法参数不产生额外的异常堆栈
+    private static final String PARSER           = "net/pocrd/util/ParameterParser";
+    // verifyRegex在生成执行器时编译为RegexValidator, 常见形式的正则不再经过Pattern回溯匹配
+    private static final String VALIDATOR        = "net/pocrd/util/RegexValidator";
+    private static final String VALIDATOR_DESC   = "L" + VALIDATOR + ";";
+    // 结构化参数的反序列化对象在生成执行器时获取, 每次请求直接解析到目标类型
+    private static final String JSON_PARSER      = "net/pocrd/util/JsonParameterParser";
+    private static final String JSON_PARSER_DESC = "L" + JSON_PARSER + ";";
+    // 结构化参数默认值的Cloner在生成执行器时获取, 每次使用前复制后传入接口
+    private static final String CLONER           = "net/pocrd/define/Cloner";
+    private static final String CLONER_DESC      = "L" + CLONER + ";";
+    private static final String CLONER_PROVIDER  = "net/pocrd/util/POJOClonerProvider";
 
-    public synchronized static HttpApiExecuter getApiExecuter(String name, ApiMethodInfo method) {
+    /**
+     * 是否为需要json反序列化的结构化参数(实体类或List)
+     */
+    private static boolean isJsonParameter(ApiParameterInfo parameterInfo) {
+        Class<?> type = parameterInfo.type;
+        return !type.isPrimitive() && type != String.class && !type.isEnum()
+                && !(type == Map.class && CommonParameter.cookie.equals(parameterInfo.name));
+    }
+
+    /**
+     * 是否为声明了取值范围的整数参数
+     */
+    private static boolean isRangeLimited(ApiParameterInfo parameterInfo) {
+        return parameterInfo.min != Long.MIN_VALUE || parameterInfo.max != Long.MAX_VALUE;
+    }
+
+    /**
+     * 基础类型数组的NEWARRAY操作数
+     */
+    private static int getArrayTypeOperand(Class<?> type) {
+        if (type == boolean.class) {
+            return T_BOOLEAN;
+        } else if (type == byte.class) {
+            return T_BYTE;
+        } else if (type == char.class) {
+            return T_CHAR;
+        } else if (type == short.class) {
+            return T_SHORT;
+        } else if (type == int.class) {
+            return T_INT;
+        } else if (type == long.class) {
+            return T_LONG;
+        } else if (type == float.class) {
+            return T_FLOAT;
+        } else {
+            return T_DOUBLE;
+        }
+    }
+
+    /**
+     * 验证并解析parameters中的参数, 依次保存到名为"0", "1"...的局部变量中, 参数数组从第1个参数所在的局部变量中读取
+     */
+    private static void visitParseParameters(PocMethodVisitor pmv, String className, ApiMethodInfo method) {
+        ApiParameterInfo[] parameterInfos = method.parameterInfos;
+        if (parameterInfos.length > 0) {
+            for (int i = 0; i < parameterInfos.length; i++) {
+                ApiParameterInfo parameterInfo = parameterInfos[i];
+                Label l1 = new Label();
+                Label l2 = new Label();
+                if (parameterInfo.isRequired || parameterInfo.verifyRegex != null) {
+                    if (parameterInfo.isRequired) {
+                        pmv.loadArg(1);
+                        pmv.loadConst(i);
+                        pmv.visitInsn(AALOAD);
+                        if (parameterInfo.verifyRegex != null) {
+                            pmv.visitJumpInsn(IFNULL, l1);
+                        } else {
+                            pmv.visitJumpInsn(IFNONNULL, l2);
+                        }
+                    }
+                    if (parameterInfo.verifyRegex != null) {
+                        if (!parameterInfo.isRequired) {
+                            pmv.loadArg(1);
+                            pmv.loadConst(i);
+                            pmv.visitInsn(AALOAD);
+                            pmv.visitJumpInsn(IFNULL, l2);
+                        }
+                        pmv.loadArg(0);
+                        pmv.visitFieldInsn(GETFIELD, className, REGEX_PREFIX + parameterInfo.name, VALIDATOR_DESC);
+                        pmv.loadArg(1);
+                        pmv.loadConst(i);
+                        pmv.visitInsn(AALOAD);
+                        pmv.visitMethodInsn(INVOKEVIRTUAL, VALIDATOR, "matches", "(Ljava/lang/CharSequence;)Z");
+                        pmv.visitJumpInsn(IFNE, l2);
+                    }
+                    pmv.visitLabel(l1);
+                    pmv.visitTypeInsn(NEW, "net/pocrd/entity/ReturnCodeException");
+                    pmv.visitInsn(DUP);
+                    pmv.visitFieldInsn(GETSTATIC, "net/pocrd/entity/ApiReturnCode", "PARAMETER_ERROR",
+                            "Lnet/pocrd/entity/AbstractReturnCode;");
+                    pmv.visitTypeInsn(NEW, "java/lang/StringBuilder");
+                    pmv.visitInsn(DUP);
+                    pmv.loadConst("method=" + method.methodName + " parameter validation failed : " + parameterInfo.name + "=");
+                    pmv.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V");
+                    pmv.loadArg(1);
+                    pmv.loadConst(i);
+                    pmv.visitInsn(AALOAD);
+                    pmv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;");
+                    pmv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+                    pmv.visitMethodInsn(INVOKESPECIAL, "net/pocrd/entity/ReturnCodeException", "<init>",
+                            "(Lnet/pocrd/entity/AbstractReturnCode;Ljava/lang/String;)V");
+                    pmv.visitInsn(ATHROW);
+                    pmv.visitLabel(l2);
+                }
+            }
+            pmv.declareLocal("e", Exception.class);
+            for (int i = 0; i < parameterInfos.length; i++) {
+                Label l1 = new Label();
+                Label l2 = new Label();
+                Label l3 = new Label();
+                ApiParameterInfo parameterInfo = parameterInfos[i];
+                Class<?> parameterType = parameterInfo.type;
+                pmv.declareLocal("" + i, parameterInfo.type);
+                if (parameterType != String.class) {
+                    pmv.visitTryCatchBlock(l1, l2, l3, "java/lang/Exception");
+                    pmv.visitLabel(l1);
+                }
+                String defaultValueString = null;
+                if (!parameterInfo.isRequired) {
+                    defaultValueString = parameterInfo.defaultValue;
+                    if (defaultValueString == null || defaultValueString.length() == 0) {
+                        if (parameterType.isEnum()) {
+                            defaultValueString = null;
+                        } else if (parameterType.isPrimitive()) {
+                            defaultValueString = "0";
+                        } else if (parameterType == String.class) {
+                            defaultValueString = null;
+                        } else if (parameterType.getAnnotation(Description.class) != null) {
+                            defaultValueString = null;//如果未设置值
+                        }
+                    }
+                }
+                pmv.loadArg(1);
+                pmv.loadConst(i);
+                pmv.visitInsn(AALOAD);
+                Label loopLabel2 = new Label();
+
+                if (!parameterInfo.isRequired) {
+                    Label loopLabel1 = new Label();
+                    pmv.visitJumpInsn(IFNONNULL, loopLabel1);
+                    if (!parameterInfo.needDefaultValueConstDefined) {
+                        pmv.loadConst(defaultValueString, parameterType);
+                    } else if (parameterInfo.defaultValue != null) {
+                        // 默认值常量被所有请求共享, 每次使用前复制, 接口实现修改参数不会影响后续请求
+                        pmv.visitVarInsn(ALOAD, 0);
+                        pmv.visitFieldInsn(GETFIELD, className, CLONER_PREFIX + parameterInfo.name, CLONER_DESC);
+                        pmv.visitFieldInsn(GETSTATIC, className, CONST_PREFIX + parameterInfo.name, Type.getDescriptor(parameterInfo.type));
+                        pmv.visitMethodInsn(INVOKEINTERFACE, CLONER, "copy", "(Ljava/lang/Object;)Ljava/lang/Object;");
+                        pmv.visitTypeInsn(CHECKCAST, Type.getInternalName(parameterInfo.type));
+                    } else {//加载定义的常量
+                        pmv.visitFieldInsn(GETSTATIC, className, CONST_PREFIX + parameterInfo.name, Type.getDescriptor(parameterInfo.type));
+                    }
+                    pmv.visitJumpInsn(GOTO, loopLabel2);
+                    pmv.visitLabel(loopLabel1);
+                    pmv.visitVarInsn(ALOAD, 1);
+                    pmv.loadConst(i);
+                    pmv.visitInsn(AALOAD);
+                }
+
+                if (parameterType == boolean.class) {
+                    pmv.visitMethodInsn(INVOKESTATIC, PARSER, "parseBoolean", "(Ljava/lang/CharSequence;)Z");
+                } else if (isRangeLimited(parameterInfo)) {
+                    // 声明了取值范围的整数参数在解析的同时检查范围
+                    if (parameterType == long.class) {
+                        pmv.visitLdcInsn(parameterInfo.min);
+                        pmv.visitLdcInsn(parameterInfo.max);
+                        pmv.visitMethodInsn(INVOKESTATIC, PARSER, "parseLong", "(Ljava/lang/CharSequence;JJ)J");
+                    } else {
+                        long min = parameterType == byte.class ? Byte.MIN_VALUE : parameterType == short.class ? Short.MIN_VALUE : Integer.MIN_VALUE;
+                        long max = parameterType == byte.class ? Byte.MAX_VALUE : parameterType == short.class ? Short.MAX_VALUE : Integer.MAX_VALUE;
+                        pmv.visitLdcInsn((int)Math.max(parameterInfo.min, min));
+                        pmv.visitLdcInsn((int)Math.min(parameterInfo.max, max));
+                        pmv.visitMethodInsn(INVOKESTATIC, PARSER, "parseInt", "(Ljava/lang/CharSequence;II)I");
+                        if (parameterType == byte.class) {
+                            pmv.visitInsn(I2B);
+                        } else if (parameterType == short.class) {
+                            pmv.visitInsn(I2S);
+                        }
+                    }
+                } else if (parameterType == byte.class) {
+                    pmv.visitMethodInsn(INVOKESTATIC, PARSER, "parseByte", "(Ljava/lang/CharSequence;)B");
+                } else if (parameterType == char.class) {
+                    pmv.visitMethodInsn(INVOKESTATIC, PARSER, "parseInt", "(Ljava/lang/CharSequence;)I");
+                    pmv.visitInsn(I2C);
+                } else if (parameterType == short.class) {
+                    pmv.visitMethodInsn(INVOKESTATIC, PARSER, "parseShort", "(Ljava/lang/CharSequence;)S");
+                } else if (parameterType == int.class) {
+                    pmv.visitMethodInsn(INVOKESTATIC, PARSER, "parseInt", "(Ljava/lang/CharSequence;)I");
+                } else if (parameterType == long.class) {
+                    pmv.visitMethodInsn(INVOKESTATIC, PARSER, "parseLong", "(Ljava/lang/CharSequence;)J");
+                } else if (parameterType == float.class) {
+                    pmv.visitMethodInsn(INVOKESTATIC, "java/lang/Float", "parseFloat", "(Ljava/lang/String;)F");
+                } else if (parameterType == double.class) {
+                    pmv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "parseDouble", "(Ljava/lang/String;)D");
+                } else if (parameterType == String.class) {
+                    // Do nothing
+                } else if (parameterType.isEnum()) {
+                    pmv.visitMethodInsn(INVOKESTATIC, parameterType.getName().replace('.', '/'), "valueOf",
+                            "(Ljava/lang/String;)" + Type.getDescriptor(parameterType));
+                } else if (parameterType == Map.class && CommonParameter.cookie.equals(parameterInfo.name)) {
+                    pmv.visitLdcInsn(Type.getType(parameterType));
+                    pmv.visitMethodInsn(INVOKESTATIC, "com/alibaba/fastjson/JSON", "parseObject",
+                            "(Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;");
+                    pmv.visitTypeInsn(CHECKCAST, Type.getInternalName(Map.class));
+                } else {
+                    pmv.visitVarInsn(ALOAD, 0);
+                    pmv.visitFieldInsn(GETFIELD, className, JSON_PREFIX + parameterInfo.name, JSON_PARSER_DESC);
+                    pmv.visitInsn(SWAP);
+                    pmv.visitMethodInsn(INVOKEVIRTUAL, JSON_PARSER, "parse", "(Ljava/lang/String;)Ljava/lang/Object;");
+                    if (parameterInfo.actuallyGenericType == null) {
+                        pmv.visitTypeInsn(CHECKCAST, Type.getInternalName(parameterType));
+                    } else {//仅支持List<XXX>,解析结果为ArrayList
+                        pmv.visitTypeInsn(CHECKCAST, "java/util/List");
+                    }
+                }
+                if (!parameterInfo.isRequired) {
+                    pmv.visitLabel(loopLabel2);
+                }
+                pmv.setLocal("" + i);
+                // 参数类型不为String时需要捕获类型转换异常
+                if (parameterType != String.class) {
+                    pmv.visitLabel(l2);
+                    Label label_end = new Label();
+                    pmv.visitJumpInsn(GOTO, label_end);
+                    pmv.visitLabel(l3);
+                    pmv.setLocal("e");
+                    pmv.visitTypeInsn(NEW, "net/pocrd/entity/ReturnCodeException");
+                    pmv.visitInsn(DUP);
+                    pmv.visitFieldInsn(GETSTATIC, "net/pocrd/entity/ApiReturnCode", "PARAMETER_ERROR",
+                            "Lnet/pocrd/entity/AbstractReturnCode;");
+                    pmv.visitTypeInsn(NEW, "java/lang/StringBuilder");
+                    pmv.visitInsn(DUP);
+                    pmv.loadConst("method=" + method.methodName + " parameter validation failed : " + parameterInfo.name + "=");
+                    pmv.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V");
+                    pmv.loadArg(1);
+                    pmv.loadConst(i);
+                    pmv.visitInsn(AALOAD);
+                    pmv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;");
+                    pmv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+                    pmv.loadLocal("e");
+                    pmv.visitMethodInsn(INVOKESPECIAL, "net/pocrd/entity/ReturnCodeException", "<init>",
+                            "(Lnet/pocrd/entity/AbstractReturnCode;Ljava/lang/String;Ljava/lang/Exception;)V");
+                    pmv.visitInsn(ATHROW);
+                    pmv.visitLabel(label_end);
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成接口执行器, 每个接口生成独立的类, 不同接口可以并行生成
+     */
+    public static HttpApiExecuter getApiExecuter(String name, ApiMethodInfo method) {
         try {
             Class<?> clazz = method.proxyMethodInfo.getDeclaringClass();
             ApiParameterInfo[] parameterInfos = method.parameterInfos;
@@ -33,7 +291,10 @@ public class HttpApiProvider implements Opcodes {
             String classDesc = "L" + className + ";";
             ClassWriter cw = new PocClassWriter(ClassWriter.COMPUTE_FRAMES);
             FieldVisitor fv;
-            cw.visit(V1_6, ACC_PUBLIC + ACC_SUPER, className, null, "java/lang/Object", new String[] { Type.getInternalName(HttpApiExecuter.class) });
+            // 只有声明了批量方法的接口的执行器实现BatchHttpApiExecuter
+            Method batchMethod = method.batchMethodInfo;
+            cw.visit(V1_6, ACC_PUBLIC + ACC_SUPER, className, null, "java/lang/Object",
+                    new String[] { Type.getInternalName(batchMethod == null ? HttpApiExecuter.class : BatchHttpApiExecuter.class) });
             {
                 fv = cw.visitField(ACC_PRIVATE, "instance", "Ljava/lang/Object;", null, null);
                 fv.visitEnd();
@@ -41,13 +302,21 @@ public class HttpApiProvider implements Opcodes {
             for (int i = 0; i < parameterInfos.length; i++) {
                 ApiParameterInfo parameterInfo = parameterInfos[i];
                 if (parameterInfo.verifyRegex != null) {
-                    fv = cw.visitField(ACC_PUBLIC, REGEX_PREFIX + parameterInfo.name, "Ljava/util/regex/Pattern;", null, null);
+                    fv = cw.visitField(ACC_PUBLIC, REGEX_PREFIX + parameterInfo.name, VALIDATOR_DESC, null, null);
+                    fv.visitEnd();
+                }
+                if (isJsonParameter(parameterInfo)) {
+                    fv = cw.visitField(ACC_PRIVATE, JSON_PREFIX + parameterInfo.name, JSON_PARSER_DESC, null, null);
                     fv.visitEnd();
                 }
                 if (parameterInfo.needDefaultValueConstDefined) {
                     fv = cw.visitField(ACC_PUBLIC + ACC_FINAL + ACC_STATIC, CONST_PREFIX + parameterInfo.name, Type.getDescriptor(parameterInfo.type),
                             null, null);
                     fv.visitEnd();
+                    if (parameterInfo.defaultValue != null) {
+                        fv = cw.visitField(ACC_PRIVATE, CLONER_PREFIX + parameterInfo.name, CLONER_DESC, null, null);
+                        fv.visitEnd();
+                    }
                 }
             }
             {
@@ -62,8 +331,31 @@ public class HttpApiProvider implements Opcodes {
                     if (parameterInfo.verifyRegex != null) {
                         mv.visitVarInsn(ALOAD, 0);
                         mv.visitLdcInsn(parameterInfo.verifyRegex);
-                        mv.visitMethodInsn(INVOKESTATIC, "java/util/regex/Pattern", "compile", "(Ljava/lang/String;)Ljava/util/regex/Pattern;");
-                        mv.visitFieldInsn(PUTFIELD, className, REGEX_PREFIX + parameterInfo.name, "Ljava/util/regex/Pattern;");
+                        mv.visitMethodInsn(INVOKESTATIC, VALIDATOR, "compile", "(Ljava/lang/String;)" + VALIDATOR_DESC);
+                        mv.visitFieldInsn(PUTFIELD, className, REGEX_PREFIX + parameterInfo.name, VALIDATOR_DESC);
+                    }
+                    if (isJsonParameter(parameterInfo)) {
+                        mv.visitVarInsn(ALOAD, 0);
+                        if (parameterInfo.actuallyGenericType == null) {
+                            mv.visitLdcInsn(Type.getType(parameterInfo.type));
+                            mv.visitMethodInsn(INVOKESTATIC, JSON_PARSER, "getParser", "(Ljava/lang/Class;)" + JSON_PARSER_DESC);
+                        } else {
+                            mv.visitLdcInsn(Type.getType(parameterInfo.actuallyGenericType));
+                            mv.visitMethodInsn(INVOKESTATIC, JSON_PARSER, "getListParser", "(Ljava/lang/Class;)" + JSON_PARSER_DESC);
+                        }
+                        mv.visitFieldInsn(PUTFIELD, className, JSON_PREFIX + parameterInfo.name, JSON_PARSER_DESC);
+                    }
+                    if (parameterInfo.needDefaultValueConstDefined && parameterInfo.defaultValue != null) {
+                        mv.visitVarInsn(ALOAD, 0);
+                        mv.visitLdcInsn(Type.getType(parameterInfo.type));
+                        if (parameterInfo.actuallyGenericType == null) {
+                            mv.visitInsn(ACONST_NULL);
+                        } else {
+                            mv.visitLdcInsn(Type.getType(parameterInfo.actuallyGenericType));
+                        }
+                        mv.visitMethodInsn(INVOKESTATIC, CLONER_PROVIDER, "getParameterCloner",
+                                "(Ljava/lang/Class;Ljava/lang/Class;)" + CLONER_DESC);
+                        mv.visitFieldInsn(PUTFIELD, className, CLONER_PREFIX + parameterInfo.name, CLONER_DESC);
                     }
                 }
                 mv.visitInsn(RETURN);
@@ -124,178 +416,7 @@ public class HttpApiProvider implements Opcodes {
             {
                 PocMethodVisitor pmv = new PocMethodVisitor(cw, ACC_PUBLIC, "execute", "([Ljava/lang/String;)Ljava/lang/Object;", null, null);
                 pmv.visitCode();
-                if (parameterInfos.length > 0) {
-                    for (int i = 0; i < parameterInfos.length; i++) {
-                        ApiParameterInfo parameterInfo = parameterInfos[i];
-                        Label l1 = new Label();
-                        Label l2 = new Label();
-                        if (parameterInfo.isRequired || parameterInfo.verifyRegex != null) {
-                            if (parameterInfo.isRequired) {
-                                pmv.loadArg(1);
-                                pmv.loadConst(i);
-                                pmv.visitInsn(AALOAD);
-                                if (parameterInfo.verifyRegex != null) {
-                                    pmv.visitJumpInsn(IFNULL, l1);
-                                } else {
-                                    pmv.visitJumpInsn(IFNONNULL, l2);
-                                }
-                            }
-                            if (parameterInfo.verifyRegex != null) {
-                                if (!parameterInfo.isRequired) {
-                                    pmv.loadArg(1);
-                                    pmv.loadConst(i);
-                                    pmv.visitInsn(AALOAD);
-                                    pmv.visitJumpInsn(IFNULL, l2);
-                                }
-                                pmv.loadArg(0);
-                                pmv.visitFieldInsn(GETFIELD, className, REGEX_PREFIX + parameterInfo.name, "Ljava/util/regex/Pattern;");
-                                pmv.loadArg(1);
-                                pmv.loadConst(i);
-                                pmv.visitInsn(AALOAD);
-                                pmv.visitMethodInsn(INVOKEVIRTUAL, "java/util/regex/Pattern", "matcher",
-                                        "(Ljava/lang/CharSequence;)Ljava/util/regex/Matcher;");
-                                pmv.visitMethodInsn(INVOKEVIRTUAL, "java/util/regex/Matcher", "matches", "()Z");
-                                pmv.visitJumpInsn(IFNE, l2);
-                            }
-                            pmv.visitLabel(l1);
-                            pmv.visitTypeInsn(NEW, "net/pocrd/entity/ReturnCodeException");
-                            pmv.visitInsn(DUP);
-                            pmv.visitFieldInsn(GETSTATIC, "net/pocrd/entity/ApiReturnCode", "PARAMETER_ERROR",
-                                    "Lnet/pocrd/entity/AbstractReturnCode;");
-                            pmv.visitTypeInsn(NEW, "java/lang/StringBuilder");
-                            pmv.visitInsn(DUP);
-                            pmv.loadConst("method=" + method.methodName + " parameter validation failed : " + parameterInfo.name + "=");
-                            pmv.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V");
-                            pmv.loadArg(1);
-                            pmv.loadConst(i);
-                            pmv.visitInsn(AALOAD);
-                            pmv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;");
-                            pmv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
-                            pmv.visitMethodInsn(INVOKESPECIAL, "net/pocrd/entity/ReturnCodeException", "<init>",
-                                    "(Lnet/pocrd/entity/AbstractReturnCode;Ljava/lang/String;)V");
-                            pmv.visitInsn(ATHROW);
-                            pmv.visitLabel(l2);
-                        }
-                    }
-                    pmv.declareLocal("e", Exception.class);
-                    for (int i = 0; i < parameterInfos.length; i++) {
-                        Label l1 = new Label();
-                        Label l2 = new Label();
-                        Label l3 = new Label();
-                        ApiParameterInfo parameterInfo = parameterInfos[i];
-                        Class<?> parameterType = parameterInfo.type;
-                        pmv.declareLocal("" + i, parameterInfo.type);
-                        if (parameterType != String.class) {
-                            pmv.visitTryCatchBlock(l1, l2, l3, "java/lang/Exception");
-                            pmv.visitLabel(l1);
-                        }
-                        String defaultValueString = null;
-                        if (!parameterInfo.isRequired) {
-                            defaultValueString = parameterInfo.defaultValue;
-                            if (defaultValueString == null || defaultValueString.length() == 0) {
-                                if (parameterType.isEnum()) {
-                                    defaultValueString = null;
-                                } else if (parameterType.isPrimitive()) {
-                                    defaultValueString = "0";
-                                } else if (parameterType == String.class) {
-                                    defaultValueString = null;
-                                } else if (parameterType.getAnnotation(Description.class) != null) {
-                                    defaultValueString = null;//如果未设置值
-                                }
-                            }
-                        }
-                        pmv.loadArg(1);
-                        pmv.loadConst(i);
-                        pmv.visitInsn(AALOAD);
-                        Label loopLabel2 = new Label();
-
-                        if (!parameterInfo.isRequired) {
-                            Label loopLabel1 = new Label();
-                            pmv.visitJumpInsn(IFNONNULL, loopLabel1);
-                            if (!parameterInfo.needDefaultValueConstDefined) {
-                                pmv.loadConst(defaultValueString, parameterType);
-                            } else {//加载定义的常量
-                                pmv.visitFieldInsn(GETSTATIC, className, CONST_PREFIX + parameterInfo.name, Type.getDescriptor(parameterInfo.type));
-                            }
-                            pmv.visitJumpInsn(GOTO, loopLabel2);
-                            pmv.visitLabel(loopLabel1);
-                            pmv.visitVarInsn(ALOAD, 1);
-                            pmv.loadConst(i);
-                            pmv.visitInsn(AALOAD);
-                        }
-
-                        if (parameterType == boolean.class) {
-                            pmv.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "parseBoolean", "(Ljava/lang/String;)Z");
-                        } else if (parameterType == byte.class) {
-                            pmv.visitMethodInsn(INVOKESTATIC, "java/lang/Byte", "parseByte", "(Ljava/lang/String;)B");
-                        } else if (parameterType == char.class) {
-                            pmv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "parseInt", "(Ljava/lang/String;)I");
-                            pmv.visitInsn(I2C);
-                        } else if (parameterType == short.class) {
-                            pmv.visitMethodInsn(INVOKESTATIC, "java/lang/Short", "parseShort", "(Ljava/lang/String;)S");
-                        } else if (parameterType == int.class) {
-                            pmv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "parseInt", "(Ljava/lang/String;)I");
-                        } else if (parameterType == long.class) {
-                            pmv.visitMethodInsn(INVOKESTATIC, "java/lang/Long", "parseLong", "(Ljava/lang/String;)J");
-                        } else if (parameterType == float.class) {
-                            pmv.visitMethodInsn(INVOKESTATIC, "java/lang/Float", "parseFloat", "(Ljava/lang/String;)F");
-                        } else if (parameterType == double.class) {
-                            pmv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "parseDouble", "(Ljava/lang/String;)D");
-                        } else if (parameterType == String.class) {
-                            // Do nothing
-                        } else if (parameterType.isEnum()) {
-                            pmv.visitMethodInsn(INVOKESTATIC, parameterType.getName().replace('.', '/'), "valueOf",
-                                    "(Ljava/lang/String;)" + Type.getDescriptor(parameterType));
-                        } else if (parameterType == Map.class && CommonParameter.cookie.equals(parameterInfo.name)) {
-                            pmv.visitLdcInsn(Type.getType(parameterType));
-                            pmv.visitMethodInsn(INVOKESTATIC, "com/alibaba/fastjson/JSON", "parseObject",
-                                    "(Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;");
-                            pmv.visitTypeInsn(CHECKCAST, Type.getInternalName(Map.class));
-                        } else {
-                            if (parameterInfo.actuallyGenericType == null) {
-                                pmv.visitLdcInsn(Type.getType(parameterType));
-                                pmv.visitMethodInsn(INVOKESTATIC, "com/alibaba/fastjson/JSON", "parseObject",
-                                        "(Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;");
-                                pmv.visitTypeInsn(CHECKCAST, Type.getInternalName(parameterType));
-                            } else {//仅支持List<XXX>,注意JSON.parseArray的实现用的是ArrayList,返回的是List没必要在去cast了
-                                pmv.visitLdcInsn(Type.getType(parameterInfo.actuallyGenericType));
-                                pmv.visitMethodInsn(INVOKESTATIC, "com/alibaba/fastjson/JSON", "parseArray",
-                                        "(Ljava/lang/String;Ljava/lang/Class;)Ljava/util/List;");
-                                //                                pmv.visitTypeInsn(CHECKCAST, Type.getInternalName(parameterType));仅仅支持List这里不用cast了
-                            }
-                        }
-                        if (!parameterInfo.isRequired) {
-                            pmv.visitLabel(loopLabel2);
-                        }
-                        pmv.setLocal("" + i);
-                        // 参数类型不为String时需要捕获类型转换异常
-                        if (parameterType != String.class) {
-                            pmv.visitLabel(l2);
-                            Label label_end = new Label();
-                            pmv.visitJumpInsn(GOTO, label_end);
-                            pmv.visitLabel(l3);
-                            pmv.setLocal("e");
-                            pmv.visitTypeInsn(NEW, "net/pocrd/entity/ReturnCodeException");
-                            pmv.visitInsn(DUP);
-                            pmv.visitFieldInsn(GETSTATIC, "net/pocrd/entity/ApiReturnCode", "PARAMETER_ERROR",
-                                    "Lnet/pocrd/entity/AbstractReturnCode;");
-                            pmv.visitTypeInsn(NEW, "java/lang/StringBuilder");
-                            pmv.visitInsn(DUP);
-                            pmv.loadConst("method=" + method.methodName + " parameter validation failed : " + parameterInfo.name + "=");
-                            pmv.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V");
-                            pmv.loadArg(1);
-                            pmv.loadConst(i);
-                            pmv.visitInsn(AALOAD);
-                            pmv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;");
-                            pmv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
-                            pmv.loadLocal("e");
-                            pmv.visitMethodInsn(INVOKESPECIAL, "net/pocrd/entity/ReturnCodeException", "<init>",
-                                    "(Lnet/pocrd/entity/AbstractReturnCode;Ljava/lang/String;Ljava/lang/Exception;)V");
-                            pmv.visitInsn(ATHROW);
-                            pmv.visitLabel(label_end);
-                        }
-                    }
-                }
+                visitParseParameters(pmv, className, method);
                 pmv.visitVarInsn(ALOAD, 0);
                 pmv.visitFieldInsn(GETFIELD, className, "instance", "Ljava/lang/Object;");
                 pmv.visitTypeInsn(CHECKCAST, clazz.getName().replace('.', '/'));
@@ -361,6 +482,68 @@ public class HttpApiProvider implements Opcodes {
                 pmv.visitMaxs(0, 0);
                 pmv.visitEnd();
             }
+            if (batchMethod != null) {
+                PocMethodVisitor pmv = new PocMethodVisitor(cw, ACC_PUBLIC, "executeBatch", "([[Ljava/lang/String;)Ljava/lang/Object;", null, null);
+                pmv.visitCode();
+                // 全部参数保存在局部变量batch中, 第1个参数所在的局部变量依次改为保存每组参数, 以复用单次调用的参数验证及解析
+                pmv.declareLocal("batch", String[][].class);
+                pmv.declareLocal("count", int.class);
+                pmv.declareLocal("index", int.class);
+                pmv.loadArg(1);
+                pmv.setLocal("batch");
+                pmv.loadArg(1);
+                pmv.visitInsn(ARRAYLENGTH);
+                pmv.setLocal("count");
+                for (int i = 0; i < parameterInfos.length; i++) {
+                    Class<?> parameterType = parameterInfos[i].type;
+                    pmv.declareLocal("batch" + i, Object.class);
+                    pmv.loadLocal("count");
+                    if (parameterType.isPrimitive()) {
+                        pmv.visitIntInsn(NEWARRAY, getArrayTypeOperand(parameterType));
+                    } else {
+                        pmv.visitTypeInsn(ANEWARRAY, Type.getInternalName(parameterType));
+                    }
+                    pmv.setLocal("batch" + i);
+                }
+                pmv.loadConst(0);
+                pmv.setLocal("index");
+                Label loopLabel = new Label();
+                Label endLabel = new Label();
+                pmv.visitLabel(loopLabel);
+                pmv.loadLocal("index");
+                pmv.loadLocal("count");
+                pmv.visitJumpInsn(IF_ICMPGE, endLabel);
+                pmv.loadLocal("batch");
+                pmv.loadLocal("index");
+                pmv.visitInsn(AALOAD);
+                pmv.setArg(1);
+                visitParseParameters(pmv, className, method);
+                for (int i = 0; i < parameterInfos.length; i++) {
+                    pmv.loadLocal("batch" + i);
+                    pmv.loadLocal("index");
+                    pmv.loadLocal("" + i);
+                    pmv.visitInsn(Type.getType(parameterInfos[i].type).getOpcode(IASTORE));
+                }
+                pmv.incrementLocal("index", 1);
+                pmv.visitJumpInsn(GOTO, loopLabel);
+                pmv.visitLabel(endLabel);
+                pmv.visitVarInsn(ALOAD, 0);
+                pmv.visitFieldInsn(GETFIELD, className, "instance", "Ljava/lang/Object;");
+                pmv.visitTypeInsn(CHECKCAST, clazz.getName().replace('.', '/'));
+                for (int i = 0; i < parameterInfos.length; i++) {
+                    pmv.loadLocal("batch" + i);
+                }
+                if (clazz.isInterface()) {
+                    pmv.visitMethodInsn(INVOKEINTERFACE, clazz.getName().replace('.', '/'), batchMethod.getName(),
+                            Type.getMethodDescriptor(batchMethod));
+                } else {
+                    pmv.visitMethodInsn(INVOKEVIRTUAL, clazz.getName().replace('.', '/'), batchMethod.getName(),
+                            Type.getMethodDescriptor(batchMethod));
+                }
+                pmv.visitInsn(ARETURN);
+                pmv.visitMaxs(0, 0);
+                pmv.visitEnd();
+            }
             cw.visitEnd();
             if (CompileConfig.isDebug) {
                 FileOutputStream fos = null;
@@ -0,0 +1,100 @@
+package net.pocrd.util;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.parser.DefaultJSONParser;
+import com.alibaba.fastjson.parser.JSONLexer;
+import com.alibaba.fastjson.parser.JSONToken;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.parser.deserializer.ObjectDeserializer;
+import net.pocrd.annotation.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 结构化接口参数的json解析, 由HttpApiProvider生成的代码调用, 结果与JSON.parseObject(String, Class)及JSON.parseArray(String, Class)相同
+ * 参数类型的反序列化对象在生成接口执行器时获取并保存, fastjson为实体类生成asm反序列化类的开销发生在接口注册阶段,
+ * 每次请求直接调用该反序列化对象解析到目标类型, 不再经过JSON门面方法的feature合并及ParserConfig查找
+ */
+@ThreadSafe
+public final class JsonParameterParser {
+    private final static ConcurrentBuildCache<Class<?>, JsonParameterParser> objectCache = new ConcurrentBuildCache<Class<?>, JsonParameterParser>();
+    private final static ConcurrentBuildCache<Class<?>, JsonParameterParser> listCache   = new ConcurrentBuildCache<Class<?>, JsonParameterParser>();
+
+    private final ParserConfig       config = ParserConfig.getGlobalInstance();
+    private final Class<?>           type;
+    private final ObjectDeserializer deserializer;
+    private final boolean            list;
+
+    private JsonParameterParser(Class<?> type, boolean list) {
+        this.type = type;
+        this.list = list;
+        this.deserializer = config.getDeserializer(type);
+    }
+
+    /**
+     * 获取解析为type类型对象的解析器
+     */
+    public static JsonParameterParser getParser(final Class<?> type) {
+        JsonParameterParser parser = objectCache.get(type);
+        if (parser == null) {
+            parser = objectCache.get(type, new Callable<JsonParameterParser>() {
+                @Override
+                public JsonParameterParser call() {
+                    return new JsonParameterParser(type, false);
+                }
+            });
+        }
+        return parser;
+    }
+
+    /**
+     * 获取解析为元素类型为elementType的List的解析器
+     */
+    public static JsonParameterParser getListParser(final Class<?> elementType) {
+        JsonParameterParser parser = listCache.get(elementType);
+        if (parser == null) {
+            parser = listCache.get(elementType, new Callable<JsonParameterParser>() {
+                @Override
+                public JsonParameterParser call() {
+                    return new JsonParameterParser(elementType, true);
+                }
+            });
+        }
+        return parser;
+    }
+
+    /**
+     * 解析json字符串, text为null或json内容为null时返回null
+     */
+    public Object parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        DefaultJSONParser parser = new DefaultJSONParser(text, config, JSON.DEFAULT_PARSER_FEATURE);
+        JSONLexer lexer = parser.getLexer();
+        Object value;
+        if (lexer.token() == JSONToken.NULL) {
+            lexer.nextToken();
+            value = null;
+        } else if (list) {
+            List<Object> values = new ArrayList<Object>();
+            parser.parseArray(type, values);
+            value = values;
+        } else {
+            value = deserializer.deserialze(parser, type, null);
+        }
+        JSON.handleResovleTask(parser, value);
+        parser.close();
+        return value;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isList() {
+        return list;
+    }
+}
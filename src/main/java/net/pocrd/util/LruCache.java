@@ -0,0 +1,132 @@
+package net.pocrd.util;
+
+import net.pocrd.annotation.ThreadSafe;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分段加锁的LRU缓存, 按key的哈希值分为16段, 每段独立加锁并淘汰段内最久未使用的项
+ * 缓存总量的上限为各段上限之和, 命中、未命中及淘汰次数可用于监控
+ */
+@ThreadSafe
+public final class LruCache<K, V> {
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment<K, V>[] segments;
+    private final AtomicLong      hitCount      = new AtomicLong();
+    private final AtomicLong      missCount     = new AtomicLong();
+    private final AtomicLong      evictionCount = new AtomicLong();
+
+    /**
+     * @param maxSize 缓存的最大数量
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public LruCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("invalid cache size " + maxSize);
+        }
+        int segmentSize = Math.max(1, (maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<K, V>(segmentSize, evictionCount);
+        }
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16) ^ (h >>> 8);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * 获取缓存项, 不存在时返回null
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * 移除get返回的已失效的缓存项, 该次get改记为未命中
+     */
+    public void invalidate(K key) {
+        remove(key);
+        hitCount.decrementAndGet();
+        missCount.incrementAndGet();
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public V remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private final int        maxSize;
+        private final AtomicLong evictionCount;
+
+        private Segment(int maxSize, AtomicLong evictionCount) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+            this.evictionCount = evictionCount;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > maxSize) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
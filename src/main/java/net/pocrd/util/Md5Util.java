@@ -2,18 +2,10 @@ package net.pocrd.util;
 
 import net.pocrd.annotation.ThreadSafe;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-
 @ThreadSafe
 public class Md5Util {
     public static final byte[] compute(byte[] content) {
-        try {
-            MessageDigest md5 = MessageDigest.getInstance("MD5");
-            return md5.digest(content);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
+        return DigestUtil.md5(content);
     }
 
     public static final String computeToHex(byte[] content) {
@@ -0,0 +1,325 @@
+package net.pocrd.util;
+
+import com.alibaba.fastjson.JSON;
+import net.pocrd.annotation.Description;
+import net.pocrd.core.PocClassLoader;
+import net.pocrd.define.Cloner;
+import net.pocrd.entity.CommonConfig;
+import net.pocrd.entity.CompileConfig;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+/**
+ * 为实体类生成逐字段复制的Cloner, 用于结构化参数默认值这类共享对象在每次使用前复制, 调用方修改复制结果不会影响共享对象
+ * 基础类型, String, 包装类型及枚举直接赋值; 带有Description注解的实体类使用其生成的Cloner复制;
+ * 集合, Map, 数组及Date复制容器本身, 其中的元素按运行时类型复制, Map的key不复制; 其他类型的字段直接共享
+ * 无法生成Cloner的类型(非public类型或没有public无参构造函数)使用json序列化后重新解析的方式复制
+ */
+public class POJOClonerProvider implements Opcodes {
+    private static final Logger                                      logger = LoggerFactory.getLogger(POJOClonerProvider.class);
+    private final static ConcurrentBuildCache<Class<?>, Cloner<?>> cache  = new ConcurrentBuildCache<Class<?>, Cloner<?>>();
+
+    // 无法按声明类型确定复制方式时按运行时类型复制
+    private static final Cloner<Object> RUNTIME_CLONER = new Cloner<Object>() {
+        @Override
+        public Object copy(Object instance) {
+            return POJOClonerProvider.copy(instance);
+        }
+    };
+
+    /**
+     * 返回实体类的Cloner, 不同实体类的Cloner可以并行生成
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Cloner<T> getCloner(final Class<T> clazz) {
+        Cloner<T> c = (Cloner<T>)cache.get(clazz);
+        if (c == null) {
+            c = (Cloner<T>)cache.get(clazz, new Callable<Cloner<?>>() {
+                @Override
+                public Cloner<?> call() {
+                    return build(clazz);
+                }
+            });
+        }
+        return c;
+    }
+
+    /**
+     * 返回接口参数默认值的Cloner, 由接口执行器在构造时获取. 实体类使用生成的Cloner; List按元素类型复制, String元素直接共享;
+     * 其他类型按运行时类型复制
+     *
+     * @param type        参数声明类型
+     * @param elementType List参数的元素类型, 非List参数为null
+     */
+    @SuppressWarnings("unchecked")
+    public static Cloner<?> getParameterCloner(Class<?> type, Class<?> elementType) {
+        if (elementType == null) {
+            return type.getAnnotation(Description.class) != null ? getCloner(type) : RUNTIME_CLONER;
+        }
+        if (!type.isAssignableFrom(ArrayList.class)) {
+            return RUNTIME_CLONER;
+        }
+        final Cloner<Object> elementCloner = isImmutable(elementType) ? null
+                : elementType.getAnnotation(Description.class) != null ? (Cloner<Object>)getCloner(elementType) : RUNTIME_CLONER;
+        return new Cloner<Collection<?>>() {
+            @Override
+            public Collection<?> copy(Collection<?> instance) {
+                if (instance == null) {
+                    return null;
+                }
+                ArrayList<Object> copy = new ArrayList<Object>(instance.size());
+                for (Object o : instance) {
+                    copy.add(elementCloner == null ? o : elementCloner.copy(o));
+                }
+                return copy;
+            }
+        };
+    }
+
+    /**
+     * 按对象的运行时类型复制, 由生成的Cloner调用
+     */
+    @SuppressWarnings("unchecked")
+    public static Object copy(Object obj) {
+        if (obj == null) {
+            return null;
+        }
+        Class<?> clazz = obj.getClass();
+        if (clazz == String.class || obj instanceof Number || obj instanceof Boolean || obj instanceof Character || obj instanceof Enum) {
+            // 包装类型及枚举不可变; AtomicInteger等可变Number在实体中不会出现
+            return obj;
+        }
+        Cloner<Object> cloner = (Cloner<Object>)cache.get(clazz);
+        if (cloner != null) {
+            return cloner.copy(obj);
+        }
+        if (clazz.isArray()) {
+            return copyArray(obj, clazz.getComponentType());
+        }
+        if (obj instanceof Collection) {
+            return copyCollection((Collection<?>)obj);
+        }
+        if (obj instanceof Map) {
+            return copyMap((Map<?, ?>)obj);
+        }
+        if (obj instanceof Date) {
+            return ((Date)obj).clone();
+        }
+        if (clazz.getAnnotation(Description.class) != null) {
+            return ((Cloner<Object>)getCloner(clazz)).copy(obj);
+        }
+        return obj;
+    }
+
+    private static Object copyArray(Object array, Class<?> componentType) {
+        int length = Array.getLength(array);
+        Object copy = Array.newInstance(componentType, length);
+        System.arraycopy(array, 0, copy, 0, length);
+        if (!componentType.isPrimitive()) {
+            Object[] objs = (Object[])copy;
+            for (int i = 0; i < length; i++) {
+                objs[i] = copy(objs[i]);
+            }
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> copyCollection(Collection<?> collection) {
+        Class<?> clazz = collection.getClass();
+        Collection<Object> copy;
+        if (clazz == ArrayList.class) {
+            copy = new ArrayList<Object>(collection.size());
+        } else if (clazz == HashSet.class) {
+            copy = new HashSet<Object>(collection.size() * 4 / 3 + 1);
+        } else if (clazz == LinkedHashSet.class) {
+            copy = new LinkedHashSet<Object>(collection.size() * 4 / 3 + 1);
+        } else if (collection instanceof SortedSet) {
+            copy = new TreeSet<Object>(((SortedSet<Object>)collection).comparator());
+        } else {
+            // JSONArray等其他实现保持原有类型, 无法创建时按接口选择
+            copy = (Collection<Object>)newInstance(clazz);
+            if (copy == null) {
+                copy = collection instanceof Set ? new LinkedHashSet<Object>() : new ArrayList<Object>(collection.size());
+            }
+        }
+        for (Object o : collection) {
+            copy.add(copy(o));
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> copyMap(Map<?, ?> map) {
+        Class<?> clazz = map.getClass();
+        Map<Object, Object> copy;
+        if (clazz == HashMap.class) {
+            copy = new HashMap<Object, Object>(map.size() * 4 / 3 + 1);
+        } else if (clazz == LinkedHashMap.class) {
+            copy = new LinkedHashMap<Object, Object>(map.size() * 4 / 3 + 1);
+        } else if (map instanceof SortedMap) {
+            copy = new TreeMap<Object, Object>(((SortedMap<Object, ?>)map).comparator());
+        } else {
+            // JSONObject等其他实现保持原有类型, 无法创建时按原有顺序复制
+            copy = (Map<Object, Object>)newInstance(clazz);
+            if (copy == null) {
+                copy = new LinkedHashMap<Object, Object>(map.size() * 4 / 3 + 1);
+            }
+        }
+        for (Map.Entry<?, ?> e : map.entrySet()) {
+            copy.put(e.getKey(), copy(e.getValue()));
+        }
+        return copy;
+    }
+
+    private static Object newInstance(Class<?> clazz) {
+        try {
+            if (Modifier.isPublic(clazz.getModifiers())) {
+                return clazz.getConstructor().newInstance();
+            }
+        } catch (Exception e) {
+            // 没有public无参构造函数
+        }
+        return null;
+    }
+
+    /**
+     * 字段是否可以直接赋值
+     */
+    private static boolean isImmutable(Class<?> type) {
+        return type.isPrimitive() || type == String.class || type.isEnum() || type == Integer.class || type == Long.class
+                || type == Boolean.class || type == Double.class || type == Float.class || type == Short.class || type == Byte.class
+                || type == Character.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Cloner<T> build(final Class<T> clazz) {
+        try {
+            if (!Modifier.isPublic(clazz.getModifiers()) || !Modifier.isPublic(clazz.getConstructor().getModifiers())) {
+                throw new NoSuchMethodException(clazz.getName() + " is not public or has no public default constructor");
+            }
+            for (Field f : clazz.getFields()) {
+                if (!Modifier.isPublic(f.getDeclaringClass().getModifiers())) {
+                    throw new NoSuchMethodException(f.getDeclaringClass().getName() + " is not public");
+                }
+            }
+        } catch (NoSuchMethodException e) {
+            logger.warn("cannot generate cloner, use json copy instead. {}", clazz.getName());
+            return new Cloner<T>() {
+                @Override
+                public T copy(T instance) {
+                    return instance == null ? null : JSON.parseObject(JSON.toJSONString(instance), clazz);
+                }
+            };
+        }
+        String className = "net.pocrd.autogen.Cloner_" + clazz.getName().replace('.', '_');
+        className = className.replace('$', '_');
+        String c_name = className.replace('.', '/');
+        String t_className = Type.getInternalName(clazz);
+        String t_classDesc = Type.getDescriptor(clazz);
+
+        try {
+            ClassWriter cw = new PocClassWriter(ClassWriter.COMPUTE_FRAMES);
+            MethodVisitor mv;
+            cw.visit(V1_6, ACC_PUBLIC + ACC_SUPER, c_name, "Ljava/lang/Object;Lnet/pocrd/define/Cloner<" + t_classDesc + ">;", "java/lang/Object",
+                    new String[] { Type.getInternalName(Cloner.class) });
+            {
+                mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+                mv.visitCode();
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+                mv.visitInsn(RETURN);
+                mv.visitMaxs(1, 1);
+                mv.visitEnd();
+            }
+            {
+                // 实现擦除后的copy(Object), 局部变量 1:原对象 2:新对象
+                mv = cw.visitMethod(ACC_PUBLIC, "copy", "(Ljava/lang/Object;)Ljava/lang/Object;", null, null);
+                mv.visitCode();
+                Label notNull = new Label();
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitJumpInsn(IFNONNULL, notNull);
+                mv.visitInsn(ACONST_NULL);
+                mv.visitInsn(ARETURN);
+                mv.visitLabel(notNull);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitTypeInsn(CHECKCAST, t_className);
+                mv.visitVarInsn(ASTORE, 1);
+                mv.visitTypeInsn(NEW, t_className);
+                mv.visitInsn(DUP);
+                mv.visitMethodInsn(INVOKESPECIAL, t_className, "<init>", "()V");
+                mv.visitVarInsn(ASTORE, 2);
+                for (Field f : clazz.getFields()) {
+                    int modifier = f.getModifiers();
+                    if (Modifier.isStatic(modifier) || Modifier.isFinal(modifier)) {
+                        continue;
+                    }
+                    Class<?> type = f.getType();
+                    String owner = Type.getInternalName(f.getDeclaringClass());
+                    String desc = Type.getDescriptor(type);
+                    mv.visitVarInsn(ALOAD, 2);
+                    mv.visitVarInsn(ALOAD, 1);
+                    mv.visitFieldInsn(GETFIELD, owner, f.getName(), desc);
+                    if (!isImmutable(type)) {
+                        mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(POJOClonerProvider.class), "copy",
+                                "(Ljava/lang/Object;)Ljava/lang/Object;");
+                        mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+                    }
+                    mv.visitFieldInsn(PUTFIELD, owner, f.getName(), desc);
+                }
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitInsn(ARETURN);
+                mv.visitMaxs(0, 0);
+                mv.visitEnd();
+            }
+            cw.visitEnd();
+
+            if (CompileConfig.isDebug) {
+                FileOutputStream fos = null;
+                try {
+                    File folder = new File(CommonConfig.getInstance().getAutogenPath() + File.separator + "POJOCloner" + File.separator);
+                    if (!folder.exists()) {
+                        folder.mkdirs();
+                    }
+                    fos = new FileOutputStream(
+                            CommonConfig.getInstance().getAutogenPath() + File.separator + "POJOCloner" + File.separator + className + ".class");
+                    fos.write(cw.toByteArray());
+                } finally {
+                    if (fos != null) {
+                        fos.close();
+                    }
+                }
+            }
+
+            return (Cloner<T>)new PocClassLoader(Thread.currentThread().getContextClassLoader()).defineClass(className, cw.toByteArray())
+                    .newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException(c_name, e);
+        }
+    }
+}
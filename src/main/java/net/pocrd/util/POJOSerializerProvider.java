@@ -1,5 +1,6 @@
 package net.pocrd.util;
 
+import com.alibaba.fastjson.JSON;
 import net.pocrd.core.PocClassLoader;
 import net.pocrd.define.ConstField;
 import net.pocrd.define.Serializer;
@@ -19,33 +20,35 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
 
 /**
  * POJOSerializerProvider只提供了静态的POJOSerializer方式，即不会在运行期根据对象的类型去改变其序列化行为(考虑到ApoDoc的生成所以不支持动态方式)
  * 动态的序列化行为解决方案是自定义Serializer
  */
 public class POJOSerializerProvider implements Opcodes {
-    private final static ConcurrentHashMap<Class<?>, Serializer<?>> cache = new ConcurrentHashMap<Class<?>, Serializer<?>>();
+    private final static ConcurrentBuildCache<Class<?>, Serializer<?>> cache = new ConcurrentBuildCache<Class<?>, Serializer<?>>();
     /**
-     * 返回实体类的序列化类对象
+     * 返回实体类的序列化类对象, 不同实体类的序列化类可以并行生成
      */
-    public static <T> Serializer<T> getSerializer(Class<T> clazz) {
+    public static <T> Serializer<T> getSerializer(final Class<T> clazz) {
         Serializer<T> s = (Serializer<T>)cache.get(clazz);
         if (s == null) {
-            synchronized (cache) {
-                s = (Serializer<T>)cache.get(clazz);
-                if (s == null) {
-                    s = build(clazz);
-                    cache.put(clazz, s);
+            s = (Serializer<T>)cache.get(clazz, new Callable<Serializer<?>>() {
+                @Override
+                public Serializer<?> call() {
+                    return build(clazz);
                 }
-            }
+            });
         }
         return s;
     }
@@ -103,10 +106,9 @@ public class POJOSerializerProvider implements Opcodes {
                 buildToXml(c_name, pmv, clazz, fds, c_desc, t_className, t_classDesc, map, list);
                 mv.visitEnd();
             }
-            //pojo fastjson
             {
                 PocMethodVisitor pmv = new PocMethodVisitor(cw, ACC_PUBLIC, "toJson", "(" + t_classDesc + "Ljava/io/OutputStream;Z)V", null, null);
-                buildToJsonWithFastJson(c_name, pmv, clazz, fds, c_desc, t_className, t_classDesc, map, list);
+                buildToJson(c_name, pmv, clazz, fds, c_desc, t_className, t_classDesc, map, list);
                 mv.visitEnd();
             }
             //protobuf
@@ -150,7 +152,7 @@ public class POJOSerializerProvider implements Opcodes {
             {
                 PocMethodVisitor pmv = new PocMethodVisitor(cw, ACC_STATIC, "<clinit>", "()V", null, null);
                 pmv.visitCode();
-                pmv.visitIntInsn(BIPUSH, list.size());
+                pmv.loadConst(list.size());
                 pmv.visitTypeInsn(ANEWARRAY, "[B");
                 pmv.visitFieldInsn(PUTSTATIC, c_name, "bs", "[[B");
                 for (int i = 0; i < list.size(); i++) {
@@ -515,23 +517,243 @@ public class POJOSerializerProvider implements Opcodes {
         pmv.visitMaxs(0, 0);
     }
 
-    private static void buildToJsonWithFastJson(String cn, PocMethodVisitor pmv, Class<?> clazz, List<Field> fds, String classDesc,
-                                                String t_className, String t_classDesc, HashMap<String, Integer> map, LinkedList<String> list) {
+    /**
+     * 逐字段生成json序列化代码，与fastjson在SERIALIZER_FEATURES下的输出保持一致:
+     * 字段按名称排序，null字段不输出，enum输出name()，char输出为字符串，浮点型字段去掉末尾的".0"
+     */
+    private static void buildToJson(String cn, PocMethodVisitor pmv, Class<?> clazz, List<Field> fds, String classDesc, String t_className,
+                                    String t_classDesc, HashMap<String, Integer> map, LinkedList<String> list) {
+        List<Field> sorted = new ArrayList<Field>(fds.size());
+        for (Field fd : fds) {
+            if (!Modifier.isTransient(fd.getModifiers())) {
+                sorted.add(fd);
+            }
+        }
+        Collections.sort(sorted, new Comparator<Field>() {
+            @Override
+            public int compare(Field f1, Field f2) {
+                return f1.getName().compareTo(f2.getName());
+            }
+        });
+
         pmv.visitCode();
         Label l0 = new Label();
         Label l1 = new Label();
         Label l2 = new Label();
         pmv.visitTryCatchBlock(l0, l1, l2, "java/io/IOException");
         pmv.visitLabel(l0);
-        pmv.loadArg(2);
-        pmv.loadArg(1);
-        pmv.visitFieldInsn(GETSTATIC, "net/pocrd/define/Serializer$ApiSerializerFeature", "SERIALIZER_FEATURES", "[Lcom/alibaba/fastjson/serializer/SerializerFeature;");
-        pmv.visitMethodInsn(INVOKESTATIC, "com/alibaba/fastjson/JSON", "toJSONBytes",
-                            "(Ljava/lang/Object;[Lcom/alibaba/fastjson/serializer/SerializerFeature;)[B");
-        pmv.visitMethodInsn(INVOKEVIRTUAL, "java/io/OutputStream", "write", "([B)V");
-        pmv.visitLabel(l1);
+        pmv.loadArg(1); // load instance
+        Label l_notnull = new Label();
+        pmv.visitJumpInsn(IFNONNULL, l_notnull);
+        writeString(cn, pmv, "null", 2, map, list);
         Label label_end = new Label();
         pmv.visitJumpInsn(GOTO, label_end);
+        pmv.visitLabel(l_notnull);
+        writeByte(pmv, '{');
+        pmv.declareLocal("comma", boolean.class);
+        pmv.loadConst(0);
+        pmv.setLocal("comma");
+        // 0:之前没有输出过字段 1:之前可能输出过字段 2:之前一定输出过字段
+        int state = 0;
+        for (Field fd : sorted) {
+            Class<?> t = fd.getType();
+            String name = fd.getName();
+            String desc = Type.getDescriptor(t);
+            Class<?> primitive = t.isPrimitive() ? t : unboxedType(t);
+            if (t.isPrimitive()) {
+                writeJsonKey(cn, pmv, name, "", state, map, list);
+                pmv.declareLocal("value", t);
+                pmv.loadArg(1);
+                pmv.visitFieldInsn(GETFIELD, t_className, name, desc);
+                pmv.setLocal("value");
+                writeJsonPrimitive(pmv, t, "value", false);
+                pmv.deleteLocal("value");
+                state = 2;
+                continue;
+            }
+            pmv.declareLocal("obj", t);
+            pmv.loadArg(1);
+            pmv.visitFieldInsn(GETFIELD, t_className, name, desc);
+            pmv.setLocal("obj");
+            pmv.loadLocal("obj");
+            Label label_null = new Label();
+            pmv.visitJumpInsn(IFNULL, label_null);
+            if (primitive != null) {
+                writeJsonKey(cn, pmv, name, "", state, map, list);
+                pmv.declareLocal("value", primitive);
+                pmv.loadLocal("obj");
+                pmv.doCast(primitive);
+                pmv.setLocal("value");
+                writeJsonPrimitive(pmv, primitive, "value", false);
+                pmv.deleteLocal("value");
+            } else if (t == String.class || t.isEnum()) {
+                writeJsonKey(cn, pmv, name, "\"", state, map, list);
+                pmv.loadArg(2);
+                pmv.loadLocal("obj");
+                if (t.isEnum()) {
+                    pmv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Enum", "name", "()Ljava/lang/String;");
+                }
+                pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/POJOSerializerProvider", "writeJsonString",
+                                    "(Ljava/io/OutputStream;Ljava/lang/String;)V");
+                writeByte(pmv, '"');
+            } else if (t.isArray() && t.getComponentType().isPrimitive() && t != byte[].class && t != char[].class) {
+                Class<?> ct = t.getComponentType();
+                writeJsonKey(cn, pmv, name, "[", state, map, list);
+                pmv.loadLocal("obj");
+                pmv.visitInsn(ARRAYLENGTH);
+                pmv.declareLocal("size", int.class);
+                pmv.setLocal("size");
+                pmv.loadConst(0);
+                pmv.declareLocal("i", int.class);
+                pmv.setLocal("i");
+                Label label_loop = new Label();
+                pmv.visitLabel(label_loop);
+                pmv.loadLocal("i");
+                pmv.loadLocal("size");
+                Label label_finish = new Label();
+                pmv.visitJumpInsn(IF_ICMPGE, label_finish);
+                pmv.loadLocal("i");
+                Label label_first = new Label();
+                pmv.visitJumpInsn(IFEQ, label_first);
+                writeByte(pmv, ',');
+                pmv.visitLabel(label_first);
+                pmv.loadLocal("obj");
+                pmv.loadLocal("i");
+                if (ct == boolean.class) {
+                    pmv.visitInsn(BALOAD);
+                } else if (ct == short.class) {
+                    pmv.visitInsn(SALOAD);
+                } else if (ct == int.class) {
+                    pmv.visitInsn(IALOAD);
+                } else if (ct == long.class) {
+                    pmv.visitInsn(LALOAD);
+                } else if (ct == float.class) {
+                    pmv.visitInsn(FALOAD);
+                } else if (ct == double.class) {
+                    pmv.visitInsn(DALOAD);
+                }
+                pmv.declareLocal("item", ct);
+                pmv.setLocal("item");
+                writeJsonPrimitive(pmv, ct, "item", true);
+                pmv.deleteLocal("item");
+                pmv.incrementLocal("i", 1);
+                pmv.visitJumpInsn(GOTO, label_loop);
+                pmv.visitLabel(label_finish);
+                writeByte(pmv, ']');
+                pmv.deleteLocal("size");
+                pmv.deleteLocal("i");
+            } else if (Collection.class.isAssignableFrom(t)) {
+                Class<?> et;
+                try {
+                    et = (Class<?>)((ParameterizedType)fd.getGenericType()).getActualTypeArguments()[0];//必须明确的指定泛型为何类型
+                } catch (Throwable throwable) {
+                    throw new RuntimeException("can not get generic type of list in " + clazz.getName(), throwable);
+                }
+                writeJsonKey(cn, pmv, name, "[", state, map, list);
+                boolean isEntity = et != String.class && !et.isEnum() && isJsonEntity(et);
+                if (isEntity) {
+                    pmv.declareLocal("serializer", Serializer.class);
+                    pmv.visitLdcInsn(Type.getType(et));
+                    pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/POJOSerializerProvider", "getSerializer",
+                                        "(Ljava/lang/Class;)Lnet/pocrd/define/Serializer;");
+                    pmv.setLocal("serializer");
+                }
+                pmv.loadConst(0);
+                pmv.declareLocal("i", int.class);
+                pmv.setLocal("i");
+                pmv.loadLocal("obj");
+                pmv.declareLocal("iter", Iterator.class);
+                pmv.visitMethodInsn(INVOKEINTERFACE, "java/util/Collection", "iterator", "()Ljava/util/Iterator;");
+                pmv.setLocal("iter");
+                Label label_loop = new Label();
+                pmv.visitLabel(label_loop);
+                pmv.loadLocal("iter");
+                pmv.visitMethodInsn(INVOKEINTERFACE, "java/util/Iterator", "hasNext", "()Z");
+                Label label_finish = new Label();
+                pmv.visitJumpInsn(IFEQ, label_finish);
+                pmv.loadLocal("i");
+                Label label_first = new Label();
+                pmv.visitJumpInsn(IFEQ, label_first);
+                writeByte(pmv, ',');
+                pmv.visitLabel(label_first);
+                pmv.incrementLocal("i", 1);
+                pmv.declareLocal("item", Object.class);
+                pmv.loadLocal("iter");
+                pmv.visitMethodInsn(INVOKEINTERFACE, "java/util/Iterator", "next", "()Ljava/lang/Object;");
+                pmv.setLocal("item");
+                if (et == String.class || et.isEnum()) {
+                    pmv.loadLocal("item");
+                    Label label_item = new Label();
+                    pmv.visitJumpInsn(IFNONNULL, label_item);
+                    writeString(cn, pmv, "null", 2, map, list);
+                    pmv.visitJumpInsn(GOTO, label_loop);
+                    pmv.visitLabel(label_item);
+                    writeByte(pmv, '"');
+                    pmv.loadArg(2);
+                    pmv.loadLocal("item");
+                    if (et.isEnum()) {
+                        pmv.visitTypeInsn(CHECKCAST, "java/lang/Enum");
+                        pmv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Enum", "name", "()Ljava/lang/String;");
+                    } else {
+                        pmv.visitTypeInsn(CHECKCAST, "java/lang/String");
+                    }
+                    pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/POJOSerializerProvider", "writeJsonString",
+                                        "(Ljava/io/OutputStream;Ljava/lang/String;)V");
+                    writeByte(pmv, '"');
+                } else if (isEntity) {
+                    pmv.loadLocal("item");
+                    Label label_item = new Label();
+                    pmv.visitJumpInsn(IFNONNULL, label_item);
+                    writeString(cn, pmv, "null", 2, map, list);
+                    pmv.visitJumpInsn(GOTO, label_loop);
+                    pmv.visitLabel(label_item);
+                    pmv.loadLocal("serializer");
+                    pmv.loadLocal("item");
+                    pmv.loadArg(2);
+                    pmv.loadConst(0);
+                    pmv.visitMethodInsn(INVOKEINTERFACE, "net/pocrd/define/Serializer", "toJson", "(Ljava/lang/Object;Ljava/io/OutputStream;Z)V");
+                } else {
+                    pmv.loadArg(2);
+                    pmv.loadLocal("item");
+                    pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/POJOSerializerProvider", "writeJsonValue",
+                                        "(Ljava/io/OutputStream;Ljava/lang/Object;)V");
+                }
+                pmv.deleteLocal("item");
+                pmv.visitJumpInsn(GOTO, label_loop);
+                pmv.visitLabel(label_finish);
+                writeByte(pmv, ']');
+                pmv.deleteLocal("iter");
+                pmv.deleteLocal("i");
+                if (isEntity) {
+                    pmv.deleteLocal("serializer");
+                }
+            } else if (isJsonEntity(t)) {
+                writeJsonKey(cn, pmv, name, "", state, map, list);
+                pmv.visitLdcInsn(Type.getType(t));
+                pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/POJOSerializerProvider", "getSerializer",
+                                    "(Ljava/lang/Class;)Lnet/pocrd/define/Serializer;");
+                pmv.loadLocal("obj");
+                pmv.loadArg(2);
+                pmv.loadConst(0);
+                pmv.visitMethodInsn(INVOKEINTERFACE, "net/pocrd/define/Serializer", "toJson", "(Ljava/lang/Object;Ljava/io/OutputStream;Z)V");
+            } else {
+                // byte[]/char[]/Date等非实体类型仍交由fastjson输出
+                writeJsonKey(cn, pmv, name, "", state, map, list);
+                pmv.loadArg(2);
+                pmv.loadLocal("obj");
+                pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/POJOSerializerProvider", "writeJsonValue",
+                                    "(Ljava/io/OutputStream;Ljava/lang/Object;)V");
+            }
+            pmv.visitLabel(label_null);
+            pmv.deleteLocal("obj");
+            if (state == 0) {
+                state = 1;
+            }
+        }
+        writeByte(pmv, '}');
+        pmv.deleteLocal("comma");
+        pmv.visitLabel(l1);
+        pmv.visitJumpInsn(GOTO, label_end);
         pmv.visitLabel(l2);
         pmv.declareLocal("e", Exception.class);
         pmv.setLocal("e");
@@ -547,6 +769,99 @@ public class POJOSerializerProvider implements Opcodes {
         pmv.visitMaxs(0, 0);
     }
 
+    /**
+     * 输出字段名, state表示之前的字段是否已输出, 用于决定是否需要输出分隔符
+     */
+    private static void writeJsonKey(String cn, PocMethodVisitor pmv, String name, String suffix, int state, HashMap<String, Integer> map,
+                                     LinkedList<String> list) {
+        if (state == 2) {
+            writeString(cn, pmv, ",\"" + name + "\":" + suffix, 2, map, list);
+        } else if (state == 0) {
+            writeString(cn, pmv, "\"" + name + "\":" + suffix, 2, map, list);
+            pmv.loadConst(1);
+            pmv.setLocal("comma");
+        } else {
+            pmv.loadLocal("comma");
+            Label label_first = new Label();
+            pmv.visitJumpInsn(IFEQ, label_first);
+            writeString(cn, pmv, ",\"" + name + "\":" + suffix, 2, map, list);
+            Label label_done = new Label();
+            pmv.visitJumpInsn(GOTO, label_done);
+            pmv.visitLabel(label_first);
+            writeString(cn, pmv, "\"" + name + "\":" + suffix, 2, map, list);
+            pmv.loadConst(1);
+            pmv.setLocal("comma");
+            pmv.visitLabel(label_done);
+        }
+    }
+
+    /**
+     * 输出局部变量中的基础类型值, 数值通过ValueEncoder直接写入, char按fastjson的方式输出为字符串
+     * fastjson对浮点型数组元素不去掉末尾的".0", isItem用于区分数组元素与字段
+     */
+    private static void writeJsonPrimitive(PocMethodVisitor pmv, Class<?> t, String local, boolean isItem) {
+        if (t == char.class) {
+            writeByte(pmv, '"');
+            pmv.loadArg(2);
+            pmv.loadLocal(local);
+            pmv.visitMethodInsn(INVOKESTATIC, "java/lang/String", "valueOf", "(C)Ljava/lang/String;");
+            pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/POJOSerializerProvider", "writeJsonString",
+                                "(Ljava/io/OutputStream;Ljava/lang/String;)V");
+            writeByte(pmv, '"');
+            return;
+        }
+        pmv.loadLocal(local);
+        pmv.loadArg(2);
+        if (t == boolean.class) {
+            pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/ValueEncoder", "writeBytes", "(ZLjava/io/OutputStream;)V");
+        } else if (t == byte.class || t == short.class || t == int.class) {
+            pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/ValueEncoder", "writeBytes", "(ILjava/io/OutputStream;)V");
+        } else if (t == long.class) {
+            pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/ValueEncoder", "writeBytes", "(JLjava/io/OutputStream;)V");
+        } else if (t == float.class) {
+            pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/ValueEncoder", isItem ? "writeJsonItemBytes" : "writeJsonBytes", "(FLjava/io/OutputStream;)V");
+        } else if (t == double.class) {
+            pmv.visitMethodInsn(INVOKESTATIC, "net/pocrd/util/ValueEncoder", isItem ? "writeJsonItemBytes" : "writeJsonBytes", "(DLjava/io/OutputStream;)V");
+        } else {
+            throw new RuntimeException("不支持的类型" + t.getName());
+        }
+    }
+
+    private static void writeByte(PocMethodVisitor pmv, char c) {
+        pmv.loadArg(2);
+        pmv.loadConst((int)c);
+        pmv.visitMethodInsn(INVOKEVIRTUAL, "java/io/OutputStream", "write", "(I)V");
+    }
+
+    private static Class<?> unboxedType(Class<?> t) {
+        if (t == Boolean.class) {
+            return boolean.class;
+        } else if (t == Byte.class) {
+            return byte.class;
+        } else if (t == Character.class) {
+            return char.class;
+        } else if (t == Short.class) {
+            return short.class;
+        } else if (t == Integer.class) {
+            return int.class;
+        } else if (t == Long.class) {
+            return long.class;
+        } else if (t == Float.class) {
+            return float.class;
+        } else if (t == Double.class) {
+            return double.class;
+        }
+        return null;
+    }
+
+    /**
+     * 是否为可由生成的序列化类输出的实体类型
+     */
+    private static boolean isJsonEntity(Class<?> t) {
+        return !t.isPrimitive() && !t.isArray() && !t.isInterface() && !t.isEnum() && !Modifier.isAbstract(t.getModifiers())
+                && !t.getName().startsWith("java.") && !t.getName().startsWith("javax.");
+    }
+
     private static void writeString(String cn, PocMethodVisitor mv, String str, int local_out, HashMap<String, Integer> map,
                                     LinkedList<String> list) {
         int index = 0;
@@ -584,11 +899,118 @@ public class POJOSerializerProvider implements Opcodes {
         writeString(cn, mv, "]]></" + name + ">", local_out, map, list);
     }
 
+    private final static byte[]              HEX        = "0123456789ABCDEF".getBytes(ConstField.UTF8);
+    private final static byte[]              JSON_NULL  = "null".getBytes(ConstField.UTF8);
+    private final static ThreadLocal<byte[]> jsonBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[1024];
+        }
+    };
+
     /**
-     * 对json输出内容进行转义
+     * 对json输出内容进行转义并以utf-8编码写入，不包含两侧的引号
      */
     public static void writeJsonString(OutputStream out, String str) throws IOException {
-        out.write(str.replace("\\", "\\\\").replace("\"", "\\\"").getBytes(ConstField.UTF8));
+        byte[] buf = jsonBuffer.get();
+        int pos = 0;
+        int len = str.length();
+        for (int i = 0; i < len; i++) {
+            if (pos > buf.length - 6) {
+                out.write(buf, 0, pos);
+                pos = 0;
+            }
+            char c = str.charAt(i);
+            if (c < 0x7F) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buf[pos++] = (byte)c;
+                    continue;
+                }
+                buf[pos++] = '\\';
+                switch (c) {
+                    case '"':
+                        buf[pos++] = '"';
+                        break;
+                    case '\\':
+                        buf[pos++] = '\\';
+                        break;
+                    case '\b':
+                        buf[pos++] = 'b';
+                        break;
+                    case '\f':
+                        buf[pos++] = 'f';
+                        break;
+                    case '\n':
+                        buf[pos++] = 'n';
+                        break;
+                    case '\r':
+                        buf[pos++] = 'r';
+                        break;
+                    case '\t':
+                        buf[pos++] = 't';
+                        break;
+                    default:
+                        buf[pos++] = 'u';
+                        buf[pos++] = '0';
+                        buf[pos++] = '0';
+                        buf[pos++] = HEX[c >> 4];
+                        buf[pos++] = HEX[c & 0xF];
+                        break;
+                }
+            } else if (c <= 0xA0 || c == '\u2028') {
+                // 与fastjson保持一致, 对DEL/C1控制字符及行分隔符进行转义
+                buf[pos++] = '\\';
+                buf[pos++] = 'u';
+                buf[pos++] = HEX[c >> 12];
+                buf[pos++] = HEX[(c >> 8) & 0xF];
+                buf[pos++] = HEX[(c >> 4) & 0xF];
+                buf[pos++] = HEX[c & 0xF];
+            } else if (c < 0x800) {
+                buf[pos++] = (byte)(0xC0 | (c >> 6));
+                buf[pos++] = (byte)(0x80 | (c & 0x3F));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, str.charAt(++i));
+                    buf[pos++] = (byte)(0xF0 | (cp >> 18));
+                    buf[pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                    buf[pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                    buf[pos++] = (byte)(0x80 | (cp & 0x3F));
+                } else {
+                    // 与String.getBytes一致, 不成对的代理字符输出为'?'
+                    buf[pos++] = '?';
+                }
+            } else {
+                buf[pos++] = (byte)(0xE0 | (c >> 12));
+                buf[pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte)(0x80 | (c & 0x3F));
+            }
+        }
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+        }
+    }
+
+    /**
+     * 输出运行期才能确定类型的json值，实体类型使用生成的序列化类，其余类型交由fastjson处理
+     */
+    @SuppressWarnings("unchecked")
+    public static void writeJsonValue(OutputStream out, Object obj) throws IOException {
+        if (obj == null) {
+            out.write(JSON_NULL);
+        } else if (obj instanceof String) {
+            out.write('"');
+            writeJsonString(out, (String)obj);
+            out.write('"');
+        } else if (obj instanceof Enum) {
+            out.write('"');
+            writeJsonString(out, ((Enum<?>)obj).name());
+            out.write('"');
+        } else if (isJsonEntity(obj.getClass())) {
+            Serializer<Object> serializer = (Serializer<Object>)getSerializer(obj.getClass());
+            serializer.toJson(obj, out, false);
+        } else {
+            out.write(JSON.toJSONBytes(obj, Serializer.ApiSerializerFeature.SERIALIZER_FEATURES));
+        }
     }
 
     /**
@@ -0,0 +1,115 @@
+package net.pocrd.util;
+
+/**
+ * 接口参数的基础类型解析, 由HttpApiProvider生成的代码调用
+ * 直接在CharSequence上逐字符解析, 解析过程中按目标类型的取值范围判断溢出, 不需要先按int解析再检查范围
+ * 解析失败时抛出共享的无堆栈异常, 非法参数不会在解析阶段产生额外的异常对象及堆栈, 错误信息由调用方在失败分支中构造
+ * 接受的格式与Integer.parseInt/Long.parseLong相同
+ */
+public final class ParameterParser {
+    private static final NumberFormatException INVALID_NUMBER = new InvalidNumberException();
+
+    private static final class InvalidNumberException extends NumberFormatException {
+        private static final long serialVersionUID = 1L;
+
+        private InvalidNumberException() {
+            super("invalid number");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private ParameterParser() {
+    }
+
+    public static boolean parseBoolean(CharSequence s) {
+        if (s == null || s.length() != 4) {
+            return false;
+        }
+        return (s.charAt(0) | 0x20) == 't' && (s.charAt(1) | 0x20) == 'r' && (s.charAt(2) | 0x20) == 'u' && (s.charAt(3) | 0x20) == 'e';
+    }
+
+    public static byte parseByte(CharSequence s) {
+        return (byte)parse(s, Byte.MIN_VALUE, Byte.MAX_VALUE);
+    }
+
+    public static short parseShort(CharSequence s) {
+        return (short)parse(s, Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    public static int parseInt(CharSequence s) {
+        return (int)parse(s, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 解析int并验证取值范围, 超出[min, max]时与格式错误一样抛出异常
+     */
+    public static int parseInt(CharSequence s, int min, int max) {
+        return (int)parse(s, min, max);
+    }
+
+    public static long parseLong(CharSequence s) {
+        return parse(s, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * 解析long并验证取值范围, 超出[min, max]时与格式错误一样抛出异常
+     */
+    public static long parseLong(CharSequence s, long min, long max) {
+        return parse(s, min, max);
+    }
+
+    /**
+     * 与Long.parseLong相同以负数累加, 每一位都与边界比较, 因此不会溢出
+     */
+    private static long parse(CharSequence s, long min, long max) {
+        if (s == null || min > max) {
+            throw INVALID_NUMBER;
+        }
+        int len = s.length();
+        if (len == 0) {
+            throw INVALID_NUMBER;
+        }
+        int i = 0;
+        boolean negative = false;
+        char first = s.charAt(0);
+        if (first == '-' || first == '+') {
+            if (len == 1) {
+                throw INVALID_NUMBER;
+            }
+            negative = first == '-';
+            i = 1;
+        }
+        // 取值范围只有一侧符号时, 另一侧的数值仍按0为边界以保证0可以被正确解析
+        long limit = negative ? Math.min(min, 0) : -Math.max(max, 0);
+        long multmin = limit / 10;
+        long result = 0;
+        while (i < len) {
+            char c = s.charAt(i++);
+            int digit = c - '0';
+            if (digit < 0 || digit > 9) {
+                // 与jdk一致接受其他unicode数字
+                digit = c < 128 ? -1 : Character.digit(c, 10);
+                if (digit < 0) {
+                    throw INVALID_NUMBER;
+                }
+            }
+            if (result < multmin) {
+                throw INVALID_NUMBER;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw INVALID_NUMBER;
+            }
+            result -= digit;
+        }
+        long value = negative ? result : -result;
+        if (value < min || value > max) {
+            throw INVALID_NUMBER;
+        }
+        return value;
+    }
+}
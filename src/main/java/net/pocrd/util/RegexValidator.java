@@ -0,0 +1,634 @@
+package net.pocrd.util;
+
+import net.pocrd.annotation.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 接口参数的正则验证, 由HttpApiProvider生成的代码调用, 结果与Pattern.matcher(input).matches()相同
+ * 常见的正则形式(字符集循环, 长度限制, 字面量的选择)在创建时编译为字符集序列, 验证时逐字符比较, 不需要分配Matcher及回溯
+ * 只有当每个可变长度的字符集与其后可能出现的字符不相交时才编译为字符集序列, 此时贪婪匹配的结果即为唯一结果
+ * 其他形式的正则, 以及包含代理对字符(Pattern按码点匹配)的输入使用Pattern验证, 每个线程复用同一个Matcher
+ */
+@ThreadSafe
+public final class RegexValidator {
+    private final String               regex;
+    private final Pattern              pattern;
+    private final Sequence[]           sequences;
+    private final String[]             literals;
+    private final ThreadLocal<Matcher> matcher = new ThreadLocal<Matcher>();
+
+    private RegexValidator(String regex, Pattern pattern, Sequence[] sequences) {
+        this.regex = regex;
+        this.pattern = pattern;
+        this.sequences = sequences;
+        this.literals = sequences == null ? null : literals(sequences);
+    }
+
+    /**
+     * 每个选择项都只由单个字符组成时(如枚举值的选择)直接比较字符串
+     */
+    private static String[] literals(Sequence[] sequences) {
+        String[] literals = new String[sequences.length];
+        for (int i = 0; i < sequences.length; i++) {
+            String literal = sequences[i].literal();
+            if (literal == null) {
+                return null;
+            }
+            literals[i] = literal;
+        }
+        return literals;
+    }
+
+    /**
+     * 编译正则表达式, 正则语法错误时抛出PatternSyntaxException
+     */
+    public static RegexValidator compile(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        Sequence[] sequences;
+        try {
+            sequences = new Parser(regex).parse();
+        } catch (UnsupportedOperationException e) {
+            sequences = null;
+        }
+        return new RegexValidator(regex, pattern, sequences);
+    }
+
+    /**
+     * 整个输入是否与正则匹配
+     */
+    public boolean matches(CharSequence input) {
+        if (literals != null) {
+            int len = input.length();
+            for (String literal : literals) {
+                if (literal.length() == len && literal.contentEquals(input)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (sequences != null) {
+            for (Sequence sequence : sequences) {
+                int r = sequence.match(input);
+                if (r > 0) {
+                    return true;
+                } else if (r < 0) {
+                    return patternMatches(input);
+                }
+            }
+            return false;
+        }
+        return patternMatches(input);
+    }
+
+    private boolean patternMatches(CharSequence input) {
+        Matcher m = matcher.get();
+        if (m == null) {
+            m = pattern.matcher(input);
+            matcher.set(m);
+        } else {
+            m.reset(input);
+        }
+        boolean r = m.matches();
+        // 不持有输入的引用
+        m.reset("");
+        return r;
+    }
+
+    /**
+     * 是否已编译为字符集序列, false表示总是使用Pattern验证
+     */
+    public boolean isCompiled() {
+        return sequences != null;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    @Override
+    public String toString() {
+        return regex;
+    }
+
+    /**
+     * BMP范围内的字符集合, 以有序且不相邻的闭区间表示, ascii部分额外使用查找表
+     */
+    private static final class CharClass {
+        private final int[]     ranges;
+        private final boolean[] ascii = new boolean[128];
+
+        private CharClass(int[] ranges) {
+            this.ranges = ranges;
+            for (int i = 0; i < ranges.length; i += 2) {
+                for (int c = ranges[i]; c <= ranges[i + 1] && c < 128; c++) {
+                    ascii[c] = true;
+                }
+            }
+        }
+
+        boolean contains(char c) {
+            if (c < 128) {
+                return ascii[c];
+            }
+            int lo = 0;
+            int hi = ranges.length / 2 - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (c < ranges[mid * 2]) {
+                    hi = mid - 1;
+                } else if (c > ranges[mid * 2 + 1]) {
+                    lo = mid + 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean intersects(CharClass other) {
+            int i = 0;
+            int j = 0;
+            while (i < ranges.length && j < other.ranges.length) {
+                if (ranges[i + 1] < other.ranges[j]) {
+                    i += 2;
+                } else if (other.ranges[j + 1] < ranges[i]) {
+                    j += 2;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 依次由字符集及其重复次数组成的序列
+     */
+    private static final class Sequence {
+        private final CharClass[] classes;
+        private final int[]       min;
+        private final int[]       max;
+
+        private Sequence(CharClass[] classes, int[] min, int[] max) {
+            this.classes = classes;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * 序列只由单个字符组成时返回对应的字符串, 否则返回null
+         */
+        String literal() {
+            char[] cs = new char[classes.length];
+            for (int i = 0; i < classes.length; i++) {
+                int[] ranges = classes[i].ranges;
+                if (min[i] != 1 || max[i] != 1 || ranges.length != 2 || ranges[0] != ranges[1]) {
+                    return null;
+                }
+                cs[i] = (char)ranges[0];
+            }
+            return new String(cs);
+        }
+
+        /**
+         * @return 1:匹配, 0:不匹配, -1:遇到代理对字符需要使用Pattern验证
+         */
+        int match(CharSequence input) {
+            int len = input.length();
+            int pos = 0;
+            for (int i = 0; i < classes.length; i++) {
+                CharClass cls = classes[i];
+                int end = max[i] >= len - pos ? len : pos + max[i];
+                int start = pos;
+                while (pos < end) {
+                    char c = input.charAt(pos);
+                    if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                        return -1;
+                    }
+                    if (!cls.contains(c)) {
+                        break;
+                    }
+                    pos++;
+                }
+                if (pos - start < min[i]) {
+                    return 0;
+                }
+            }
+            return pos == len ? 1 : 0;
+        }
+    }
+
+    /**
+     * 将正则解析为字符集序列, 遇到不支持的语法时抛出UnsupportedOperationException
+     */
+    private static final class Parser {
+        private static final int[] DIGIT = { '0', '9' };
+        private static final int[] WORD  = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+        private static final int[] SPACE = { '\t', '\r', ' ', ' ' };
+        private static final int[] DOT   = complement(new int[] { '\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029 });
+
+        private final String regex;
+        private       String s;
+        private       int    pos;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        private static UnsupportedOperationException unsupported() {
+            return new UnsupportedOperationException();
+        }
+
+        Sequence[] parse() {
+            String body = stripAnchors(regex);
+            // 整个表达式由一个分组包围时去掉该分组
+            if (body.length() >= 2 && body.charAt(0) == '(' && closingParen(body, 0) == body.length() - 1) {
+                if (body.startsWith("(?:")) {
+                    body = body.substring(3, body.length() - 1);
+                } else if (body.length() > 1 && body.charAt(1) != '?') {
+                    body = body.substring(1, body.length() - 1);
+                } else {
+                    throw unsupported();
+                }
+            }
+            List<String> alternatives = splitAlternatives(body);
+            Sequence[] sequences = new Sequence[alternatives.size()];
+            for (int i = 0; i < sequences.length; i++) {
+                sequences[i] = parseSequence(stripAnchors(alternatives.get(i)));
+            }
+            return sequences;
+        }
+
+        /**
+         * matches()要求匹配整个输入, 开头的^及结尾的$不影响结果
+         */
+        private static String stripAnchors(String re) {
+            if (re.startsWith("^")) {
+                re = re.substring(1);
+            }
+            if (re.endsWith("$") && !escaped(re, re.length() - 1)) {
+                re = re.substring(0, re.length() - 1);
+            }
+            return re;
+        }
+
+        private static boolean escaped(String re, int index) {
+            int count = 0;
+            while (index > 0 && re.charAt(index - 1) == '\\') {
+                count++;
+                index--;
+            }
+            return (count & 1) == 1;
+        }
+
+        /**
+         * 跳过转义字符及字符集, 返回与start位置的'('对应的')'的位置
+         */
+        private static int closingParen(String re, int start) {
+            int depth = 0;
+            for (int i = start; i < re.length(); i++) {
+                char c = re.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '[') {
+                    i = closingBracket(re, i);
+                } else if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    if (--depth == 0) {
+                        return i;
+                    }
+                }
+            }
+            throw unsupported();
+        }
+
+        private static int closingBracket(String re, int start) {
+            for (int i = start + 1; i < re.length(); i++) {
+                char c = re.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '[') {
+                    throw unsupported();
+                } else if (c == ']') {
+                    return i;
+                }
+            }
+            throw unsupported();
+        }
+
+        private static List<String> splitAlternatives(String re) {
+            List<String> list = new ArrayList<String>();
+            int depth = 0;
+            int from = 0;
+            for (int i = 0; i < re.length(); i++) {
+                char c = re.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '[') {
+                    i = closingBracket(re, i);
+                } else if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                } else if (c == '|') {
+                    if (depth != 0) {
+                        throw unsupported();
+                    }
+                    list.add(re.substring(from, i));
+                    from = i + 1;
+                }
+            }
+            list.add(re.substring(from));
+            return list;
+        }
+
+        private Sequence parseSequence(String re) {
+            s = re;
+            pos = 0;
+            List<CharClass> classes = new ArrayList<CharClass>();
+            List<int[]> counts = new ArrayList<int[]>();
+            int depth = 0;
+            while (pos < s.length()) {
+                char c = s.charAt(pos++);
+                int[] ranges;
+                switch (c) {
+                    case '(':
+                        // 不带重复次数的分组只改变结构, 直接展开
+                        if (s.startsWith("?:", pos)) {
+                            pos += 2;
+                        } else if (pos < s.length() && s.charAt(pos) == '?') {
+                            throw unsupported();
+                        }
+                        depth++;
+                        continue;
+                    case ')':
+                        if (depth == 0 || (pos < s.length() && "*+?{".indexOf(s.charAt(pos)) >= 0)) {
+                            throw unsupported();
+                        }
+                        depth--;
+                        continue;
+                    case '[':
+                        ranges = parseClass();
+                        break;
+                    case '.':
+                        ranges = DOT;
+                        break;
+                    case '\\':
+                        ranges = parseEscape();
+                        break;
+                    case '^':
+                    case '$':
+                    case '*':
+                    case '+':
+                    case '?':
+                    case '{':
+                    case '|':
+                        throw unsupported();
+                    default:
+                        ranges = new int[] { c, c };
+                        break;
+                }
+                classes.add(new CharClass(normalize(ranges)));
+                counts.add(parseQuantifier());
+            }
+            if (depth != 0) {
+                throw unsupported();
+            }
+            int size = classes.size();
+            int[] min = new int[size];
+            int[] max = new int[size];
+            for (int i = 0; i < size; i++) {
+                min[i] = counts.get(i)[0];
+                max[i] = counts.get(i)[1];
+            }
+            // 可变长度字符集之后可能出现的字符与其相交时贪婪匹配的结果不唯一
+            for (int i = 0; i < size; i++) {
+                if (min[i] == max[i]) {
+                    continue;
+                }
+                for (int j = i + 1; j < size; j++) {
+                    if (classes.get(i).intersects(classes.get(j))) {
+                        throw unsupported();
+                    }
+                    if (min[j] > 0) {
+                        break;
+                    }
+                }
+            }
+            return new Sequence(classes.toArray(new CharClass[size]), min, max);
+        }
+
+        private int[] parseQuantifier() {
+            int min = 1;
+            int max = 1;
+            if (pos < s.length()) {
+                char c = s.charAt(pos);
+                if (c == '*') {
+                    min = 0;
+                    max = Integer.MAX_VALUE;
+                    pos++;
+                } else if (c == '+') {
+                    max = Integer.MAX_VALUE;
+                    pos++;
+                } else if (c == '?') {
+                    min = 0;
+                    pos++;
+                } else if (c == '{') {
+                    int end = s.indexOf('}', pos);
+                    if (end < 0) {
+                        throw unsupported();
+                    }
+                    String q = s.substring(pos + 1, end);
+                    int comma = q.indexOf(',');
+                    try {
+                        if (comma < 0) {
+                            min = max = Integer.parseInt(q);
+                        } else {
+                            min = Integer.parseInt(q.substring(0, comma));
+                            max = comma == q.length() - 1 ? Integer.MAX_VALUE : Integer.parseInt(q.substring(comma + 1));
+                        }
+                    } catch (NumberFormatException e) {
+                        throw unsupported();
+                    }
+                    if (min < 0 || max < min) {
+                        throw unsupported();
+                    }
+                    pos = end + 1;
+                } else {
+                    return new int[] { min, max };
+                }
+                // 字符集不相交时懒惰及占有模式的匹配结果与贪婪模式相同
+                if (pos < s.length() && (s.charAt(pos) == '?' || s.charAt(pos) == '+')) {
+                    pos++;
+                }
+            }
+            return new int[] { min, max };
+        }
+
+        private int[] parseClass() {
+            boolean negate = false;
+            if (pos < s.length() && s.charAt(pos) == '^') {
+                negate = true;
+                pos++;
+            }
+            if (pos < s.length() && s.charAt(pos) == ']') {
+                throw unsupported();
+            }
+            int[] ranges = new int[0];
+            while (true) {
+                if (pos >= s.length()) {
+                    throw unsupported();
+                }
+                char c = s.charAt(pos++);
+                if (c == ']') {
+                    break;
+                }
+                if (c == '[' || (c == '&' && pos < s.length() && s.charAt(pos) == '&')) {
+                    throw unsupported();
+                }
+                int[] item = c == '\\' ? parseEscape() : new int[] { c, c };
+                if (pos + 1 < s.length() && s.charAt(pos) == '-' && s.charAt(pos + 1) != ']') {
+                    if (item.length != 2 || item[0] != item[1]) {
+                        throw unsupported();
+                    }
+                    pos++;
+                    char e = s.charAt(pos++);
+                    if (e == '[') {
+                        throw unsupported();
+                    }
+                    int[] to = e == '\\' ? parseEscape() : new int[] { e, e };
+                    if (to.length != 2 || to[0] != to[1] || to[0] < item[0]) {
+                        throw unsupported();
+                    }
+                    item = new int[] { item[0], to[0] };
+                }
+                ranges = concat(ranges, item);
+            }
+            ranges = normalize(ranges);
+            return negate ? complement(ranges) : ranges;
+        }
+
+        private int[] parseEscape() {
+            if (pos >= s.length()) {
+                throw unsupported();
+            }
+            char c = s.charAt(pos++);
+            switch (c) {
+                case 'd':
+                    return DIGIT;
+                case 'D':
+                    return complement(DIGIT);
+                case 'w':
+                    return WORD;
+                case 'W':
+                    return complement(WORD);
+                case 's':
+                    return SPACE;
+                case 'S':
+                    return complement(SPACE);
+                case 't':
+                    return new int[] { '\t', '\t' };
+                case 'n':
+                    return new int[] { '\n', '\n' };
+                case 'r':
+                    return new int[] { '\r', '\r' };
+                case 'f':
+                    return new int[] { '\f', '\f' };
+                case 'a':
+                    return new int[] { 0x07, 0x07 };
+                case 'e':
+                    return new int[] { 0x1b, 0x1b };
+                case 'u':
+                    return single(hex(4));
+                case 'x':
+                    return single(hex(2));
+                default:
+                    if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                        throw unsupported();
+                    }
+                    return new int[] { c, c };
+            }
+        }
+
+        private int hex(int length) {
+            if (pos + length > s.length()) {
+                throw unsupported();
+            }
+            int v = 0;
+            for (int i = 0; i < length; i++) {
+                int d = Character.digit(s.charAt(pos++), 16);
+                if (d < 0) {
+                    throw unsupported();
+                }
+                v = (v << 4) | d;
+            }
+            return v;
+        }
+
+        private static int[] single(int c) {
+            if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                throw unsupported();
+            }
+            return new int[] { c, c };
+        }
+
+        private static int[] concat(int[] a, int[] b) {
+            int[] r = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, r, a.length, b.length);
+            return r;
+        }
+
+        /**
+         * 排序并合并相交或相邻的区间
+         */
+        private static int[] normalize(int[] ranges) {
+            int count = ranges.length / 2;
+            long[] sorted = new long[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = ((long)ranges[i * 2] << 32) | ranges[i * 2 + 1];
+            }
+            Arrays.sort(sorted);
+            int[] r = new int[ranges.length];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int lo = (int)(sorted[i] >>> 32);
+                int hi = (int)sorted[i];
+                if (n > 0 && lo <= r[n - 1] + 1) {
+                    r[n - 1] = Math.max(r[n - 1], hi);
+                } else {
+                    r[n++] = lo;
+                    r[n++] = hi;
+                }
+            }
+            return Arrays.copyOf(r, n);
+        }
+
+        /**
+         * BMP范围内的补集, 代理对范围由匹配时单独处理
+         */
+        private static int[] complement(int[] ranges) {
+            ranges = normalize(ranges);
+            int[] r = new int[ranges.length + 2];
+            int n = 0;
+            int next = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > next) {
+                    r[n++] = next;
+                    r[n++] = ranges[i] - 1;
+                }
+                next = ranges[i + 1] + 1;
+            }
+            if (next <= 0xffff) {
+                r[n++] = next;
+                r[n++] = 0xffff;
+            }
+            return Arrays.copyOf(r, n);
+        }
+    }
+}
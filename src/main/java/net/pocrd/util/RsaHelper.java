@@ -1,50 +1,24 @@
 package net.pocrd.util;
 
-import net.pocrd.annotation.NotThreadSafe;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import net.pocrd.annotation.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.crypto.Cipher;
-import java.io.ByteArrayOutputStream;
-import java.security.KeyFactory;
-import java.security.Security;
-import java.security.Signature;
-import java.security.interfaces.RSAPrivateCrtKey;
-import java.security.interfaces.RSAPublicKey;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.security.spec.X509EncodedKeySpec;
-
 /**
- * RSA工具类, blockSize = keySize - 11;
+ * RSA工具类, blockSize = keySize - 11; 由AsymmetricEngine实现, 可以在多线程间共享
  */
-@NotThreadSafe
+@ThreadSafe
 public class RsaHelper {
     private static final Logger logger = LoggerFactory.getLogger(RsaHelper.class);
 
-    private RSAPublicKey     publicKey;
-    private RSAPrivateCrtKey privateKey;
-
-    static {
-        Security.addProvider(new BouncyCastleProvider());
-    }
+    private final AsymmetricEngine engine;
 
     public RsaHelper(String publicKey, String privateKey) {
         this(Base64Util.decode(publicKey), Base64Util.decode(privateKey));
     }
 
     public RsaHelper(byte[] publicKey, byte[] privateKey) {
-        try {
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            if (publicKey != null && publicKey.length > 0) {
-                this.publicKey = (RSAPublicKey)keyFactory.generatePublic(new X509EncodedKeySpec(publicKey));
-            }
-            if (privateKey != null && privateKey.length > 0) {
-                this.privateKey = (RSAPrivateCrtKey)keyFactory.generatePrivate(new PKCS8EncodedKeySpec(privateKey));
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        engine = AsymmetricEngine.rsa(publicKey, privateKey);
     }
 
     public RsaHelper(String publicKey) {
@@ -52,74 +26,25 @@ public class RsaHelper {
     }
 
     public RsaHelper(byte[] publicKey) {
-        try {
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            if (publicKey != null && publicKey.length > 0) {
-                this.publicKey = (RSAPublicKey)keyFactory.generatePublic(new X509EncodedKeySpec(publicKey));
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        engine = AsymmetricEngine.rsa(publicKey, null);
     }
 
     public byte[] encrypt(byte[] content) {
-        if (publicKey == null) {
-            throw new RuntimeException("public key is null.");
-        }
         if (content == null) {
             return null;
         }
-        try {
-            Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-            int size = publicKey.getModulus().bitLength() / 8 - 11;
-            ByteArrayOutputStream baos = new ByteArrayOutputStream((content.length + size - 1) / size * (size + 11));
-            int left = 0;
-            for (int i = 0; i < content.length; ) {
-                left = content.length - i;
-                if (left > size) {
-                    cipher.update(content, i, size);
-                    i += size;
-                } else {
-                    cipher.update(content, i, left);
-                    i += left;
-                }
-                baos.write(cipher.doFinal());
-            }
-
-            return baos.toByteArray();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        return engine.encrypt(content);
     }
 
     public byte[] decrypt(byte[] secret) {
-        if (privateKey == null) {
+        if (engine.getPrivateKey() == null) {
             throw new RuntimeException("private key is null.");
         }
         if (secret == null) {
             return null;
         }
         try {
-            Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
-            cipher.init(Cipher.DECRYPT_MODE, privateKey);
-            int size = privateKey.getModulus().bitLength() / 8;
-            ByteArrayOutputStream baos = new ByteArrayOutputStream((secret.length + size - 12) / (size - 11) * size);
-            int left = 0;
-            for (int i = 0; i < secret.length; ) {
-                left = secret.length - i;
-                if (left > size) {
-                    cipher.update(secret, i, size);
-                    i += size;
-                } else {
-                    cipher.update(secret, i, left);
-                    i += left;
-                }
-
-                baos.write(cipher.doFinal());
-            }
-
-            return baos.toByteArray();
+            return engine.decrypt(secret);
         } catch (Exception e) {
             logger.error("rsa decrypt failed.", e);
         }
@@ -127,34 +52,21 @@ public class RsaHelper {
     }
 
     public byte[] sign(byte[] content) {
-        if (privateKey == null) {
-            throw new RuntimeException("private key is null.");
-        }
         if (content == null) {
             return null;
         }
-        try {
-            Signature signature = Signature.getInstance("SHA1WithRSA");
-            signature.initSign(privateKey);
-            signature.update(content);
-            return signature.sign();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        return engine.sign(content);
     }
 
     public boolean verify(byte[] sign, byte[] content) {
-        if (publicKey == null) {
+        if (engine.getPublicKey() == null) {
             throw new RuntimeException("public key is null.");
         }
         if (sign == null || content == null) {
             return false;
         }
         try {
-            Signature signature = Signature.getInstance("SHA1WithRSA");
-            signature.initVerify(publicKey);
-            signature.update(content);
-            return signature.verify(sign);
+            return engine.verify(sign, content);
         } catch (Exception e) {
             logger.error("rsa verify failed.", e);
         }
@@ -0,0 +1,84 @@
+package net.pocrd.util;
+
+import net.pocrd.annotation.ThreadSafe;
+import net.pocrd.entity.CallerInfo;
+
+/**
+ * 已验证token的解析结果缓存, 以token密文为key
+ * 缓存总量超过上限时淘汰最久未使用的项, token过期后对应的缓存项立即失效
+ * 缓存中保存的调用者信息不会被修改, 写入及读取时均返回副本
+ */
+@ThreadSafe
+public final class TokenCache {
+    private final LruCache<ByteArrayKey, CallerInfo> cache;
+
+    /**
+     * @param maxSize 缓存的最大token数量
+     */
+    public TokenCache(int maxSize) {
+        cache = new LruCache<ByteArrayKey, CallerInfo>(maxSize);
+    }
+
+    /**
+     * 获取token对应的调用者信息, 不存在或已过期时返回null
+     */
+    public CallerInfo get(byte[] token) {
+        ByteArrayKey key = new ByteArrayKey(token);
+        CallerInfo caller = cache.get(key);
+        if (caller == null) {
+            return null;
+        }
+        if (caller.expire <= System.currentTimeMillis()) {
+            cache.invalidate(key);
+            return null;
+        }
+        return copy(caller);
+    }
+
+    /**
+     * 缓存token的解析结果, 已过期的token不缓存
+     */
+    public void put(byte[] token, CallerInfo caller) {
+        if (caller.expire <= System.currentTimeMillis()) {
+            return;
+        }
+        cache.put(new ByteArrayKey(token).copy(), copy(caller));
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * 命中及未命中次数由LruCache统计, 已过期的缓存项记为未命中
+     */
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    private static CallerInfo copy(CallerInfo caller) {
+        CallerInfo c = new CallerInfo();
+        c.groups = caller.groups == null ? null : caller.groups.clone();
+        c.phoneNumber = caller.phoneNumber;
+        c.appid = caller.appid;
+        c.securityLevel = caller.securityLevel;
+        c.expire = caller.expire;
+        c.deviceId = caller.deviceId;
+        c.uid = caller.uid;
+        c.key = caller.key == null ? null : caller.key.clone();
+        c.oauthid = caller.oauthid;
+        return c;
+    }
+}
@@ -0,0 +1,237 @@
+package net.pocrd.util;
+
+import net.pocrd.define.ConstField;
+import net.pocrd.entity.CallerInfo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * token明文的二进制编解码, 直接按偏移量读写字节数组, 所有数值均为大端序
+ * <p>
+ * 1.0版本: version(2) expire(8) securityLevel(4) appid(4) deviceId(8) uid(8) keyLen(2) key [oauthidLen(2) oauthid]
+ * <p>
+ * 1.1版本: version(2) expire(8) keyLen(2) oauthidLen(2) securityLevel(4) appid(4) deviceId(8) uid(8) key oauthid
+ * 头部长度固定, 可以在解析其余字段前检查过期时间及总长度
+ */
+public final class TokenCodec {
+    public static final short TOKEN_VERSION_1_0 = 10;
+    public static final short TOKEN_VERSION_1_1 = 11;
+
+    private static final int V10_FIXED_LENGTH = 2 + 8 + 4 + 4 + 8 + 8 + 2;
+    private static final int V11_HEADER_LENGTH = 2 + 8 + 2 + 2;
+    private static final int V11_FIXED_LENGTH = V11_HEADER_LENGTH + 4 + 4 + 8 + 8;
+
+    private TokenCodec() {
+    }
+
+    /**
+     * 读取token版本号, 数据不足时返回-1
+     */
+    public static int readVersion(byte[] buf, int off, int len) {
+        return len < 2 ? -1 : readShort(buf, off);
+    }
+
+    /**
+     * 不解析其他字段直接读取token的过期时间, 两个版本的过期时间均位于版本号之后, 数据不足时返回-1
+     */
+    public static long readExpire(byte[] buf, int off, int len) {
+        return len < 10 ? -1 : readLong(buf, off + 2);
+    }
+
+    /**
+     * 计算编码后的长度
+     */
+    public static int encodedLength(CallerInfo caller, short version) {
+        int keyLen = caller.key == null ? 0 : caller.key.length;
+        int oauthLen = caller.oauthid == null ? 0 : caller.oauthid.getBytes(ConstField.UTF8).length;
+        switch (version) {
+            case TOKEN_VERSION_1_0:
+                return V10_FIXED_LENGTH + keyLen + (caller.oauthid == null ? 0 : 2 + oauthLen);
+            case TOKEN_VERSION_1_1:
+                return V11_FIXED_LENGTH + keyLen + oauthLen;
+            default:
+                throw new IllegalArgumentException("unsupported token version " + version);
+        }
+    }
+
+    /**
+     * 编码到调用方提供的缓冲区中, 缓冲区剩余空间不能小于encodedLength
+     *
+     * @return 编码后的长度
+     */
+    public static int encode(CallerInfo caller, short version, byte[] buf, int off) {
+        byte[] key = caller.key;
+        byte[] oauthid = caller.oauthid == null ? null : caller.oauthid.getBytes(ConstField.UTF8);
+        int keyLen = key == null ? 0 : key.length;
+        int oauthLen = oauthid == null ? 0 : oauthid.length;
+        if (keyLen > Short.MAX_VALUE || oauthLen > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("token field too long");
+        }
+        int p = off;
+        switch (version) {
+            case TOKEN_VERSION_1_0:
+                p = writeShort(buf, p, version);
+                p = writeLong(buf, p, caller.expire);
+                p = writeInt(buf, p, caller.securityLevel);
+                p = writeInt(buf, p, caller.appid);
+                p = writeLong(buf, p, caller.deviceId);
+                p = writeLong(buf, p, caller.uid);
+                p = writeShort(buf, p, keyLen);
+                p = writeBytes(buf, p, key);
+                if (oauthid != null) {
+                    p = writeShort(buf, p, oauthLen);
+                    p = writeBytes(buf, p, oauthid);
+                }
+                break;
+            case TOKEN_VERSION_1_1:
+                p = writeShort(buf, p, version);
+                p = writeLong(buf, p, caller.expire);
+                p = writeShort(buf, p, keyLen);
+                p = writeShort(buf, p, oauthLen);
+                p = writeInt(buf, p, caller.securityLevel);
+                p = writeInt(buf, p, caller.appid);
+                p = writeLong(buf, p, caller.deviceId);
+                p = writeLong(buf, p, caller.uid);
+                p = writeBytes(buf, p, key);
+                p = writeBytes(buf, p, oauthid);
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported token version " + version);
+        }
+        return p - off;
+    }
+
+    /**
+     * 解析调用者信息, 版本不支持或数据格式错误时返回null
+     */
+    public static CallerInfo decode(byte[] buf, int off, int len) {
+        switch (readVersion(buf, off, len)) {
+            case TOKEN_VERSION_1_0:
+                return decodeV10(buf, off, len);
+            case TOKEN_VERSION_1_1:
+                return decodeV11(buf, off, len);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 解析position与limit之间的数据, 不改变buffer的position
+     */
+    public static CallerInfo decode(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return decode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] bs = new byte[buffer.remaining()];
+        buffer.duplicate().get(bs);
+        return decode(bs, 0, bs.length);
+    }
+
+    private static CallerInfo decodeV10(byte[] buf, int off, int len) {
+        if (len < V10_FIXED_LENGTH) {
+            return null;
+        }
+        int end = off + len;
+        CallerInfo caller = new CallerInfo();
+        caller.expire = readLong(buf, off + 2);
+        caller.securityLevel = readInt(buf, off + 10);
+        caller.appid = readInt(buf, off + 14);
+        caller.deviceId = readLong(buf, off + 18);
+        caller.uid = readLong(buf, off + 26);
+        int p = off + V10_FIXED_LENGTH;
+        short keyLen = readShort(buf, p - 2);
+        if (keyLen > 0) {
+            if (end - p < keyLen) {
+                return null;
+            }
+            caller.key = copyOf(buf, p, keyLen);
+            p += keyLen;
+        }
+        if (p < end) {
+            if (end - p < 2) {
+                return null;
+            }
+            short oauthLen = readShort(buf, p);
+            p += 2;
+            if (oauthLen > 0) {
+                if (end - p < oauthLen) {
+                    return null;
+                }
+                caller.oauthid = new String(buf, p, oauthLen, ConstField.UTF8);
+                p += oauthLen;
+            }
+        }
+        return p == end ? caller : null;
+    }
+
+    private static CallerInfo decodeV11(byte[] buf, int off, int len) {
+        if (len < V11_FIXED_LENGTH) {
+            return null;
+        }
+        int keyLen = readShort(buf, off + 10);
+        int oauthLen = readShort(buf, off + 12);
+        if (keyLen < 0 || oauthLen < 0 || len != V11_FIXED_LENGTH + keyLen + oauthLen) {
+            return null;
+        }
+        CallerInfo caller = new CallerInfo();
+        caller.expire = readLong(buf, off + 2);
+        caller.securityLevel = readInt(buf, off + 14);
+        caller.appid = readInt(buf, off + 18);
+        caller.deviceId = readLong(buf, off + 22);
+        caller.uid = readLong(buf, off + 30);
+        int p = off + V11_FIXED_LENGTH;
+        if (keyLen > 0) {
+            caller.key = copyOf(buf, p, keyLen);
+            p += keyLen;
+        }
+        if (oauthLen > 0) {
+            caller.oauthid = new String(buf, p, oauthLen, ConstField.UTF8);
+        }
+        return caller;
+    }
+
+    private static byte[] copyOf(byte[] buf, int off, int len) {
+        byte[] bs = new byte[len];
+        System.arraycopy(buf, off, bs, 0, len);
+        return bs;
+    }
+
+    private static short readShort(byte[] buf, int off) {
+        return (short)(((buf[off] & 0xff) << 8) | (buf[off + 1] & 0xff));
+    }
+
+    private static int readInt(byte[] buf, int off) {
+        return ((buf[off] & 0xff) << 24) | ((buf[off + 1] & 0xff) << 16) | ((buf[off + 2] & 0xff) << 8) | (buf[off + 3] & 0xff);
+    }
+
+    private static long readLong(byte[] buf, int off) {
+        return ((long)readInt(buf, off) << 32) | (readInt(buf, off + 4) & 0xffffffffL);
+    }
+
+    private static int writeShort(byte[] buf, int off, int v) {
+        buf[off] = (byte)(v >>> 8);
+        buf[off + 1] = (byte)v;
+        return off + 2;
+    }
+
+    private static int writeInt(byte[] buf, int off, int v) {
+        buf[off] = (byte)(v >>> 24);
+        buf[off + 1] = (byte)(v >>> 16);
+        buf[off + 2] = (byte)(v >>> 8);
+        buf[off + 3] = (byte)v;
+        return off + 4;
+    }
+
+    private static int writeLong(byte[] buf, int off, long v) {
+        writeInt(buf, off, (int)(v >>> 32));
+        return writeInt(buf, off + 4, (int)v);
+    }
+
+    private static int writeBytes(byte[] buf, int off, byte[] bs) {
+        if (bs == null) {
+            return off;
+        }
+        System.arraycopy(bs, 0, buf, off, bs.length);
+        return off + bs.length;
+    }
+}
@@ -14,7 +14,7 @@ public class ValueEncoder {
     private static final byte[][] byteValue2 = new byte[1000][];
 
     static {
-        String[] ss = new String[]{"false", "true", "-", String.valueOf(Integer.MIN_VALUE)};
+        String[] ss = new String[]{"false", "true", "-", String.valueOf(Integer.MIN_VALUE), "null"};
         bs = new byte[ss.length][];
         for (int i = 0; i < ss.length; i++) {
             bs[i] = ss[i].getBytes(ConstField.UTF8);
@@ -117,9 +117,53 @@ public class ValueEncoder {
         out.write((String.valueOf(f).getBytes(ConstField.UTF8)));
     }
     public static void writeBytes(long l, OutputStream out) throws IOException {
+        if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+            writeBytes((int)l, out);
+            return;
+        }
         out.write((String.valueOf(l).getBytes(ConstField.UTF8)));
     }
     public static void writeBytes(double d, OutputStream out) throws IOException {
         out.write((String.valueOf(d).getBytes(ConstField.UTF8)));
     }
+
+    /**
+     * 按fastjson的格式输出浮点型字段，NaN和Infinity输出为null，整数值去掉末尾的".0"
+     */
+    public static void writeJsonBytes(float f, OutputStream out) throws IOException {
+        if (Float.isNaN(f) || Float.isInfinite(f)) {
+            out.write(bs[4]);
+        } else if (f == (int)f && Math.abs(f) < 1.0E7f) {
+            writeBytes((int)f, out);
+        } else {
+            out.write((String.valueOf(f).getBytes(ConstField.UTF8)));
+        }
+    }
+    public static void writeJsonBytes(double d, OutputStream out) throws IOException {
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            out.write(bs[4]);
+        } else if (d == (int)d && Math.abs(d) < 1.0E7) {
+            writeBytes((int)d, out);
+        } else {
+            out.write((String.valueOf(d).getBytes(ConstField.UTF8)));
+        }
+    }
+
+    /**
+     * 按fastjson的格式输出浮点型数组元素，NaN和Infinity输出为null
+     */
+    public static void writeJsonItemBytes(float f, OutputStream out) throws IOException {
+        if (Float.isNaN(f) || Float.isInfinite(f)) {
+            out.write(bs[4]);
+        } else {
+            writeBytes(f, out);
+        }
+    }
+    public static void writeJsonItemBytes(double d, OutputStream out) throws IOException {
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            out.write(bs[4]);
+        } else {
+            writeBytes(d, out);
+        }
+    }
 }
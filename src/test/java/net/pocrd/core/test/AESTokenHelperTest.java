@@ -7,6 +7,7 @@ import net.pocrd.util.AESTokenHelper;
 import net.pocrd.util.AesHelper;
 import net.pocrd.util.Base64Util;
 import net.pocrd.util.HexStringUtil;
+import net.pocrd.util.TokenCodec;
 import org.junit.Test;
 
 import java.io.UnsupportedEncodingException;
@@ -93,6 +94,90 @@ public class AESTokenHelperTest {
         assertEquals(callerInfo.oauthid, callerInfo1.oauthid);
     }
 
+    @Test
+    public void testTokenCache() {
+        AESTokenHelper th = new AESTokenHelper(new AesHelper(AesHelper.randomKey(256), null), 100);
+        CallerInfo ci = new CallerInfo();
+        ci.expire = System.currentTimeMillis() + 3600000L;
+        ci.key = "1111111".getBytes(ConstField.UTF8);
+        ci.securityLevel = 9;
+        ci.deviceId = 22222222222222L;
+        ci.uid = 33333333333333L;
+        ci.appid = 102;
+        byte[] token = th.generateUserToken(ci);
+
+        CallerInfo first = th.parseToken(token);
+        first.phoneNumber = "13800000000";
+        first.key[0] = 0;
+        CallerInfo second = th.parseToken(token.clone());
+        assertEquals(1, th.getCacheMissCount());
+        assertEquals(1, th.getCacheHitCount());
+        assertNotSame(first, second);
+        assertNull(second.phoneNumber);
+        assertArrayEquals(ci.key, second.key);
+        assertEquals(ci.uid, second.uid);
+
+        // 已过期的token不缓存
+        ci.expire = System.currentTimeMillis() - 1;
+        token = th.generateUserToken(ci);
+        assertEquals(ci.expire, th.parseToken(token).expire);
+        assertEquals(ci.expire, th.parseToken(token).expire);
+        assertEquals(3, th.getCacheMissCount());
+        assertEquals(1, th.getCacheHitCount());
+    }
+
+    @Test
+    public void testTokenVersion() {
+        AESTokenHelper th = new AESTokenHelper(new AesHelper(AesHelper.randomKey(256), null), 0);
+        CallerInfo ci = new CallerInfo();
+        ci.expire = 987654321;
+        ci.securityLevel = 9;
+        ci.deviceId = 22222222222222L;
+        ci.uid = 33333333333333L;
+        ci.appid = 102;
+        ci.key = "1111111".getBytes(ConstField.UTF8);
+        ci.oauthid = "测试oauthid";
+        for (short version : new short[] { TokenCodec.TOKEN_VERSION_1_0, TokenCodec.TOKEN_VERSION_1_1 }) {
+            byte[] plain = new byte[TokenCodec.encodedLength(ci, version) + 3];
+            int length = TokenCodec.encode(ci, version, plain, 3);
+            assertEquals(plain.length - 3, length);
+            assertEquals(version, TokenCodec.readVersion(plain, 3, length));
+            assertEquals(ci.expire, TokenCodec.readExpire(plain, 3, length));
+            assertNull(TokenCodec.decode(plain, 3, length - 1));
+
+            CallerInfo caller = th.parseToken(th.generateUserToken(ci, version));
+            assertEquals(ci.expire, caller.expire);
+            assertEquals(ci.securityLevel, caller.securityLevel);
+            assertEquals(ci.deviceId, caller.deviceId);
+            assertEquals(ci.uid, caller.uid);
+            assertEquals(ci.appid, caller.appid);
+            assertArrayEquals(ci.key, caller.key);
+            assertEquals(ci.oauthid, caller.oauthid);
+        }
+    }
+
+    @Test
+    public void testDefaultVersionAndExpire() {
+        AesHelper aes = new AesHelper(AesHelper.randomKey(256), null);
+        AESTokenHelper th = new AESTokenHelper(aes, 0);
+        CallerInfo ci = new CallerInfo();
+        ci.expire = System.currentTimeMillis() + 3600000L;
+        ci.uid = 33333333333333L;
+        ci.key = "1111111".getBytes(ConstField.UTF8);
+        // 默认生成1.0版本的token, 1.1版本需要显式开启
+        assertEquals(TokenCodec.TOKEN_VERSION_1_0, TokenCodec.readVersion(aes.decrypt(th.generateUserToken(ci)), 0, 2));
+        th.setTokenVersion(TokenCodec.TOKEN_VERSION_1_1);
+        assertEquals(TokenCodec.TOKEN_VERSION_1_1, TokenCodec.readVersion(aes.decrypt(th.generateUserToken(ci)), 0, 2));
+        assertEquals(ci.uid, th.parseToken(th.generateUserToken(ci)).uid);
+
+        // 默认解析已过期的token, 关闭后不再解析
+        ci.expire = System.currentTimeMillis() - 1;
+        byte[] token = th.generateUserToken(ci);
+        assertEquals(ci.uid, th.parseToken(token).uid);
+        th.setAcceptExpired(false);
+        assertNull(th.parseToken(token));
+    }
+
     @Test
     public void generateTokenTest_2() throws UnsupportedEncodingException {
         AESTokenHelper aesTokenHelper = new AESTokenHelper("eqHSs48SCL2VoGsW1lWvDWKQ8Vu71UZJyS7Dbf/e4zo=");
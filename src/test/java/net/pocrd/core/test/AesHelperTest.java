@@ -2,12 +2,16 @@ package net.pocrd.core.test;
 
 import net.pocrd.define.ConstField;
 import net.pocrd.util.AesHelper;
+import net.pocrd.util.AesOutputStream;
 import net.pocrd.util.Base64Util;
 import net.pocrd.util.HexStringUtil;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.Assert.assertTrue;
 
@@ -135,4 +139,57 @@ public class AesHelperTest {
             }
         });
     }
+
+    @Test
+    public void testDecryptToBuffer() throws UnsupportedEncodingException {
+        AesHelper aes = new AesHelper(AesHelper.randomKey(128), null);
+        byte[] content = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes("UTF-8");
+        byte[] secret = aes.encrypt(content);
+        try {
+            aes.decrypt(Arrays.copyOf(secret, secret.length - 1));
+            assertTrue(false);
+        } catch (RuntimeException e) {
+            // 解密失败后仍可继续使用
+        }
+        byte[] buffer = new byte[secret.length + 8];
+        int len = aes.decrypt(secret, 0, secret.length, buffer, 8);
+        assertTrue(Arrays.equals(content, Arrays.copyOfRange(buffer, 8, 8 + len)));
+    }
+
+    @Test
+    public void testEncryptStream() throws IOException {
+        Random random = new Random();
+        for (boolean cfb : new boolean[] { false, true }) {
+            AesHelper aes = new AesHelper(AesHelper.randomKey(128), cfb);
+            for (int size : new int[] { 0, 1, 15, 16, 17, 8191, 8192, 8193, 50000 }) {
+                byte[] content = new byte[size];
+                random.nextBytes(content);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                AesOutputStream stream = aes.getEncryptStream(out);
+                int off = 0;
+                while (off < size) {
+                    int len = Math.min(size - off, random.nextInt(10000));
+                    if (len == 1) {
+                        stream.write(content[off]);
+                    } else {
+                        stream.write(content, off, len);
+                    }
+                    off += len;
+                }
+                stream.finish();
+                assertTrue(Arrays.equals(aes.encrypt(content), out.toByteArray()));
+                assertTrue(Arrays.equals(content, aes.decrypt(out.toByteArray())));
+            }
+        }
+
+        // 未调用finish的加密流不影响后续加密
+        AesHelper aes = new AesHelper(AesHelper.randomKey(128), null);
+        byte[] content = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes("UTF-8");
+        aes.getEncryptStream(new ByteArrayOutputStream()).write(content, 0, 20);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AesOutputStream stream = aes.getEncryptStream(out);
+        stream.write(content);
+        stream.finish();
+        assertTrue(Arrays.equals(aes.encrypt(content), out.toByteArray()));
+    }
 }
@@ -0,0 +1,70 @@
+package net.pocrd.core.test;
+
+import net.pocrd.define.ConstField;
+import net.pocrd.util.Base64Util;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Base64UtilTest {
+
+    @Test
+    public void testRfcVectors() {
+        String[] plain = { "", "f", "fo", "foo", "foob", "fooba", "foobar" };
+        String[] encoded = { "", "Zg==", "Zm8=", "Zm9v", "Zm9vYg==", "Zm9vYmE=", "Zm9vYmFy" };
+        for (int i = 0; i < plain.length; i++) {
+            byte[] data = plain[i].getBytes(ConstField.UTF8);
+            assertEquals(encoded[i], Base64Util.encodeToString(data));
+            assertArrayEquals(data, Base64Util.decode(encoded[i]));
+            // 无填充及包含空白字符的输入
+            assertArrayEquals(data, Base64Util.decode(encoded[i].replace("=", "")));
+            assertArrayEquals(data, Base64Util.decode(" " + encoded[i] + "\n"));
+        }
+        assertEquals("Zm9vYg\n", Base64Util.encodeToString("foob".getBytes(ConstField.UTF8), Base64Util.NO_PADDING));
+        assertEquals("-_8", Base64Util.encodeToUrlSafeString(new byte[] { (byte)0xfb, (byte)0xff }));
+        assertArrayEquals(new byte[] { (byte)0xfb, (byte)0xff }, Base64Util.decodeUrlSafe("-_8="));
+    }
+
+    @Test
+    public void testLineWrap() {
+        byte[] data = new byte[100];
+        new Random().nextBytes(data);
+        String s = Base64Util.encodeToString(data, Base64Util.CRLF);
+        assertEquals(Base64Util.encodedLength(data.length, Base64Util.CRLF), s.length());
+        assertEquals(76, s.indexOf("\r\n"));
+        assertArrayEquals(data, Base64Util.decode(s, Base64Util.DEFAULT));
+    }
+
+    @Test
+    public void testDecodeToBuffer() {
+        byte[] data = new byte[128];
+        new Random().nextBytes(data);
+        byte[] encoded = Base64Util.encode(data);
+        assertEquals(data.length, Base64Util.decodedLength(encoded, 0, encoded.length, Base64Util.NO_WRAP));
+
+        byte[] output = new byte[data.length + 2];
+        assertEquals(data.length, Base64Util.decode(encoded, 0, encoded.length, output, 2, Base64Util.NO_WRAP));
+        assertArrayEquals(data, Arrays.copyOfRange(output, 2, output.length));
+
+        ByteBuffer src = ByteBuffer.wrap(encoded);
+        ByteBuffer dst = ByteBuffer.allocate(Base64Util.maxDecodedLength(encoded.length));
+        assertEquals(data.length, Base64Util.decode(src, dst, Base64Util.NO_WRAP));
+        assertEquals(0, src.remaining());
+        assertArrayEquals(data, Arrays.copyOf(dst.array(), dst.position()));
+
+        byte[] bad = "Zm9vY===".getBytes(ConstField.UTF8);
+        assertEquals(-1, Base64Util.decodedLength(bad, 0, bad.length, Base64Util.NO_WRAP));
+        try {
+            Base64Util.decode(bad, 0, bad.length, output, 0, Base64Util.NO_WRAP);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // bad base-64
+        }
+    }
+}
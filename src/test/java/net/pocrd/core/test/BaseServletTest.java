@@ -0,0 +1,622 @@
+package net.pocrd.core.test;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.dubbo.remoting.exchange.ResponseCallback;
+import com.alibaba.dubbo.remoting.exchange.ResponseFuture;
+import com.alibaba.dubbo.rpc.RpcContext;
+import com.alibaba.dubbo.rpc.RpcResult;
+import com.alibaba.dubbo.rpc.protocol.dubbo.FutureAdapter;
+import net.pocrd.annotation.ApiGroup;
+import net.pocrd.annotation.ApiParameter;
+import net.pocrd.annotation.Description;
+import net.pocrd.annotation.HttpApi;
+import net.pocrd.core.ApiManager;
+import net.pocrd.core.BaseServlet;
+import net.pocrd.core.test.BaseServletTest.RC;
+import net.pocrd.define.BatchHttpApiExecuter;
+import net.pocrd.define.CommonParameter;
+import net.pocrd.define.ConstField;
+import net.pocrd.define.SecurityType;
+import net.pocrd.entity.AbstractReturnCode;
+import net.pocrd.entity.ApiContext;
+import net.pocrd.entity.ApiEntry;
+import net.pocrd.entity.ApiMethodCall;
+import net.pocrd.entity.ApiReturnCode;
+import net.pocrd.entity.CallerInfo;
+import net.pocrd.entity.CommonConfig;
+import net.pocrd.entity.ReturnCodeException;
+import net.pocrd.util.AsymmetricEngine;
+import net.pocrd.util.Base64Util;
+import net.pocrd.util.DeviceKeyStore;
+import org.junit.Test;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@ApiGroup(name = "servlet", minCode = 0, maxCode = 100, codeDefine = RC.class, owner = "servlet")
+public class BaseServletTest {
+
+    public static class RC extends AbstractReturnCode {
+        protected RC(String desc, int code) {
+            super(desc, code);
+        }
+    }
+
+    @Description("回显结果")
+    public static class Echo implements Serializable {
+        @Description("名称")
+        public String name;
+        @Description("密码")
+        public String password;
+    }
+
+    @HttpApi(name = "servlet.echo", desc = "回显", security = SecurityType.None, owner = "servlet")
+    public Echo echo(
+            @ApiParameter(required = true, name = "name", desc = "名称")
+            String name,
+            @ApiParameter(required = true, name = "password", rsaEncrypted = true, desc = "密码")
+            String password) {
+        Echo echo = new Echo();
+        echo.name = name;
+        echo.password = password;
+        return echo;
+    }
+
+    @HttpApi(name = "servlet.length", desc = "长度", security = SecurityType.None, owner = "servlet", batchMethod = "lengths")
+    public int length(
+            @ApiParameter(required = true, name = "name", verifyRegex = "^[a-z]+$", desc = "名称")
+            String name) {
+        return name.length();
+    }
+
+    public List<Integer> lengths(String[] names) {
+        List<Integer> result = new ArrayList<Integer>(names.length);
+        for (String name : names) {
+            result.add(name.length());
+        }
+        return result;
+    }
+
+    /**
+     * 以 {调用序号}_{参数名} 的方式传入各调用的参数, 调用的接口名以逗号分隔放在_mt参数中
+     */
+    public static class TestServlet extends BaseServlet {
+        private final ApiManager manager;
+        public AsymmetricEngine parameterEngine;
+        public final Map<String, String> headers = new HashMap<String, String>();
+        // 批量调用次数及最近一次批量调用的参数
+        public int        batchCount;
+        public String[][] batchParams;
+        // 非null时替代批量方法的返回结果
+        public Object           batchResult;
+        // 非null时批量调用抛出该异常
+        public RuntimeException batchError;
+        // 单个调用执行前等待的毫秒数
+        public long    callDelay;
+        // 以dubbo异步调用的方式返回结果
+        public boolean async;
+        public final List<TestFuture> futures = Collections.synchronizedList(new ArrayList<TestFuture>());
+        // 非null时请求支持servlet异步处理, startAsync返回该对象
+        public AsyncContext asyncContext;
+        // token解析出的调用者信息及接口执行时的调用者信息
+        public CallerInfo     caller;
+        public CallerInfo     currentCaller;
+        public DeviceKeyStore deviceKeyStore;
+
+        public TestServlet(ApiManager manager) {
+            super(manager);
+            this.manager = manager;
+        }
+
+        @Override
+        protected Object processCall(String name, String[] params) {
+            return manager.processRequest(name, params);
+        }
+
+        @Override
+        protected Object processCall(ApiMethodCall call, String[] params) {
+            currentCaller = ApiContext.getCurrent().caller;
+            if (callDelay > 0) {
+                try {
+                    Thread.sleep(callDelay);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return result(call.entry.executer.execute(params));
+        }
+
+        @Override
+        protected Object processBatchCall(ApiMethodCall call, String[][] params) {
+            batchCount++;
+            batchParams = params;
+            if (batchError != null) {
+                throw batchError;
+            }
+            return result(batchResult != null ? batchResult : ((BatchHttpApiExecuter)call.entry.executer).executeBatch(params));
+        }
+
+        private Object result(Object result) {
+            if (!async) {
+                return result;
+            }
+            TestFuture future = new TestFuture(result);
+            futures.add(future);
+            RpcContext.getContext().setFuture(new FutureAdapter<Object>(future));
+            return null;
+        }
+
+        @Override
+        protected CallerInfo parseCallerInfo(ApiContext context, byte[] token) {
+            return caller;
+        }
+
+        @Override
+        protected DeviceKeyStore getDeviceKeyStore() {
+            return deviceKeyStore;
+        }
+
+        @Override
+        protected AbstractReturnCode parseMethodInfo(ApiContext context, HttpServletRequest request) {
+            String[] names = request.getParameter(CommonParameter.method).split(",");
+            context.apiCallInfos = new ArrayList<ApiMethodCall>(names.length);
+            for (int k = 0; k < names.length; k++) {
+                ApiEntry entry = manager.getApiEntry(names[k]);
+                ApiMethodCall call = new ApiMethodCall(entry);
+                call.businessId = request.getParameter(k + "_" + CommonParameter.businessId);
+                call.parameters = new String[entry.info.parameterInfos.length];
+                for (int i = 0; i < call.parameters.length; i++) {
+                    call.parameters[i] = request.getParameter(k + "_" + entry.info.parameterInfos[i].name);
+                }
+                context.apiCallInfos.add(call);
+            }
+            return ApiReturnCode.SUCCESS;
+        }
+
+        @Override
+        protected AsymmetricEngine getParameterDecryptEngine(ApiContext context) {
+            return parameterEngine;
+        }
+
+        /**
+         * 执行请求并返回解析后的json结果
+         */
+        public JSONObject execute(Map<String, String> params) throws Exception {
+            params.put(CommonParameter.format, FORMAT_JSON);
+            params.put(CommonParameter.applicationId, "1");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            service(request(params, headers, asyncContext), response(out));
+            return JSON.parseObject(new String(out.toByteArray(), ConstField.UTF8));
+        }
+    }
+
+    /**
+     * 模拟dubbo异步调用返回的future, 结果在complete后可用
+     */
+    public static class TestFuture implements ResponseFuture {
+        private final    Object           value;
+        private volatile ResponseCallback callback;
+        private volatile boolean          done;
+
+        public TestFuture(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object get() {
+            return new RpcResult(value);
+        }
+
+        @Override
+        public Object get(int timeoutInMillis) {
+            return get();
+        }
+
+        @Override
+        public void setCallback(ResponseCallback callback) {
+            this.callback = callback;
+        }
+
+        public ResponseCallback getCallback() {
+            return callback;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        /**
+         * 等待网关设置回调后通知调用完成
+         */
+        public void complete() throws InterruptedException {
+            while (callback == null) {
+                Thread.sleep(1);
+            }
+            done = true;
+            callback.done(get());
+        }
+    }
+
+    private static HttpServletRequest request(final Map<String, String> params, final Map<String, String> headers,
+            final AsyncContext asyncContext) {
+        final boolean[] asyncStarted = new boolean[1];
+        final Map<String, String[]> parameterMap = new HashMap<String, String[]>();
+        for (Map.Entry<String, String> e : params.entrySet()) {
+            parameterMap.put(e.getKey(), new String[] { e.getValue() });
+        }
+        return (HttpServletRequest)Proxy.newProxyInstance(BaseServletTest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if ("getParameter".equals(name)) {
+                            return params.get(args[0]);
+                        } else if ("getParameterMap".equals(name)) {
+                            return parameterMap;
+                        } else if ("getParameterNames".equals(name)) {
+                            return Collections.enumeration(params.keySet());
+                        } else if ("getHeader".equals(name)) {
+                            return "host".equals(args[0]) ? "localhost" : headers.get(args[0]);
+                        } else if ("getMethod".equals(name)) {
+                            return "GET";
+                        } else if ("getRemoteAddr".equals(name)) {
+                            return "127.0.0.1";
+                        } else if ("getProtocol".equals(name)) {
+                            return "HTTP/1.1";
+                        } else if ("isAsyncSupported".equals(name)) {
+                            return asyncContext != null;
+                        } else if ("startAsync".equals(name)) {
+                            asyncStarted[0] = true;
+                            return asyncContext;
+                        } else if ("isAsyncStarted".equals(name)) {
+                            return asyncStarted[0];
+                        } else if ("getAsyncContext".equals(name)) {
+                            return asyncContext;
+                        }
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static HttpServletResponse response(final ByteArrayOutputStream out) {
+        final ServletOutputStream stream = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+        };
+        return (HttpServletResponse)Proxy.newProxyInstance(BaseServletTest.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("getOutputStream".equals(method.getName())) {
+                            return stream;
+                        } else if ("getCharacterEncoding".equals(method.getName())) {
+                            return "UTF-8";
+                        }
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static TestServlet servlet() {
+        ApiManager manager = new ApiManager();
+        manager.register(ApiManager.parseApi(BaseServletTest.class, new BaseServletTest()));
+        return new TestServlet(manager);
+    }
+
+    private static int code(JSONObject result, int index) {
+        return result.getJSONObject("stat").getJSONArray("stateList").getJSONObject(index).getIntValue("code");
+    }
+
+    private static int value(JSONObject result, int index) {
+        return result.getJSONArray("content").getJSONObject(index).getIntValue("value");
+    }
+
+    /**
+     * 依次调用 servlet.length, servlet.echo, servlet.length, servlet.length, 其中的servlet.length调用被合并为一次批量调用
+     */
+    private static Map<String, String> batchParams() {
+        Map<String, String> params = new HashMap<String, String>();
+        params.put(CommonParameter.method, "servlet.length,servlet.echo,servlet.length,servlet.length");
+        params.put("0_name", "a");
+        params.put("1_name", "echo");
+        params.put("1_password", "pwd");
+        params.put("2_name", "abc");
+        params.put("3_name", "abcde");
+        return params;
+    }
+
+    private static void setDubboAsync(boolean async) throws Exception {
+        Method method = CommonConfig.class.getDeclaredMethod("setDubboAsync", boolean.class);
+        method.setAccessible(true);
+        method.invoke(CommonConfig.getInstance(), async);
+    }
+
+    private static void setServletAsync(boolean async) throws Exception {
+        Method method = CommonConfig.class.getDeclaredMethod("setServletAsyncString", String.class);
+        method.setAccessible(true);
+        method.invoke(CommonConfig.getInstance(), String.valueOf(async));
+    }
+
+    @Test
+    public void testDeviceKeyStore() throws Exception {
+        TestServlet servlet = servlet();
+        servlet.caller = new CallerInfo();
+        servlet.caller.deviceId = 123456789L;
+        servlet.caller.expire = System.currentTimeMillis() + 100000;
+        servlet.caller.appid = 1;
+        Map<String, String> params = new HashMap<String, String>();
+        params.put(CommonParameter.method, "servlet.echo");
+        params.put(CommonParameter.deviceToken, Base64Util.encodeToString(new byte[16]));
+        params.put("0_name", "name");
+        params.put("0_password", "pwd");
+        servlet.execute(new HashMap<String, String>(params));
+        assertSame(servlet.caller, servlet.currentCaller);
+        assertNull(servlet.currentCaller.key);
+
+        // token中未携带设备密钥时从设备密钥存储中获取
+        byte[] key = "0123456789abcdef0123".getBytes(ConstField.UTF8);
+        servlet.deviceKeyStore = new DeviceKeyStore(10, 32);
+        servlet.deviceKeyStore.put(servlet.caller.deviceId, key);
+        servlet.execute(new HashMap<String, String>(params));
+        assertArrayEquals(key, servlet.currentCaller.key);
+    }
+
+    @Test
+    public void testParseAcceptEncoding() throws Exception {
+        Method method = BaseServlet.class.getDeclaredMethod("parseAcceptEncoding", String.class);
+        method.setAccessible(true);
+        assertEquals("gzip", method.invoke(null, "deflate, gzip"));
+        assertEquals("gzip", method.invoke(null, "*"));
+        assertEquals("deflate", method.invoke(null, "gzip;q=0, deflate"));
+        // 明确拒绝gzip时*不代表gzip
+        assertEquals("deflate", method.invoke(null, "gzip;q=0, *"));
+        assertEquals("gzip", method.invoke(null, "*, deflate;q=0"));
+        assertNull(method.invoke(null, "gzip;q=0, deflate;q=0.0, *"));
+        assertNull(method.invoke(null, "*;q=0"));
+        assertNull(method.invoke(null, "identity"));
+    }
+
+    @Test
+    public void testAsyncStartFailed() throws Exception {
+        TestServlet servlet = servlet();
+        final int[] completed = new int[1];
+        // 注册监听失败, 异步处理无法继续
+        servlet.asyncContext = (AsyncContext)Proxy.newProxyInstance(BaseServletTest.class.getClassLoader(), new Class<?>[] { AsyncContext.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("addListener".equals(method.getName())) {
+                            throw new IllegalStateException("listener not supported");
+                        } else if ("complete".equals(method.getName())) {
+                            completed[0]++;
+                        }
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+        ApiContext context = ApiContext.getCurrent();
+        setServletAsync(true);
+        setDubboAsync(true);
+        JSONObject result;
+        try {
+            result = servlet.execute(batchParams());
+        } finally {
+            setServletAsync(false);
+            setDubboAsync(false);
+        }
+        // 以同步方式返回错误(sendError, 无输出内容)并结束已开始的异步请求, 当前线程仍绑定原有的ApiContext
+        assertEquals(1, completed[0]);
+        assertNull(result);
+        assertSame(context, ApiContext.getCurrent());
+    }
+
+    @Test
+    public void testBatchCall() throws Exception {
+        TestServlet servlet = servlet();
+        servlet.headers.put(BaseServlet.DEBUG_DUBBOVERSION, "1.0.1");
+        JSONObject result = servlet.execute(batchParams());
+        assertEquals(1, servlet.batchCount);
+        // 批量调用的参数与单个调用一样追加了调试参数
+        assertEquals(3, servlet.batchParams.length);
+        for (String[] params : servlet.batchParams) {
+            assertEquals(3, params.length);
+            assertEquals("1.0.1", params[1]);
+            assertNull(params[2]);
+        }
+        // 结果按调用顺序分发
+        int[] expected = new int[] { 1, -1, 3, 5 };
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(ApiReturnCode.SUCCESS.getCode(), code(result, i));
+            if (expected[i] > 0) {
+                assertEquals(expected[i], value(result, i));
+            }
+        }
+        assertEquals("echo", result.getJSONArray("content").getJSONObject(1).getString("name"));
+    }
+
+    @Test
+    public void testBatchBusinessId() throws Exception {
+        TestServlet servlet = servlet();
+        Map<String, String> params = batchParams();
+        params.put("0_" + CommonParameter.businessId, "b1");
+        params.put("2_" + CommonParameter.businessId, "b1");
+        params.put("3_" + CommonParameter.businessId, "b2");
+        JSONObject result = servlet.execute(params);
+        // businessId不同的调用不合并
+        assertEquals(1, servlet.batchCount);
+        assertEquals(2, servlet.batchParams.length);
+        assertEquals("a", servlet.batchParams[0][0]);
+        assertEquals("abc", servlet.batchParams[1][0]);
+        assertEquals(1, value(result, 0));
+        assertEquals(3, value(result, 2));
+        assertEquals(5, value(result, 3));
+    }
+
+    @Test
+    public void testBatchResultMismatch() throws Exception {
+        TestServlet servlet = servlet();
+        servlet.batchResult = new int[] { 1, 3 };
+        JSONObject result = servlet.execute(batchParams());
+        assertEquals(1, servlet.batchCount);
+        assertEquals(ApiReturnCode.SUCCESS.getCode(), code(result, 1));
+        for (int i : new int[] { 0, 2, 3 }) {
+            assertEquals(ApiReturnCode.INTERNAL_SERVER_ERROR.getCode(), code(result, i));
+        }
+    }
+
+    @Test
+    public void testBatchError() throws Exception {
+        TestServlet servlet = servlet();
+        servlet.batchError = new ReturnCodeException(ApiReturnCode.ACCESS_DENIED);
+        JSONObject result = servlet.execute(batchParams());
+        assertEquals(1, servlet.batchCount);
+        assertEquals(ApiReturnCode.SUCCESS.getCode(), code(result, 1));
+        // 批量调用失败时合并的各调用返回相同的错误
+        for (int i : new int[] { 0, 2, 3 }) {
+            assertEquals(ApiReturnCode.ACCESS_DENIED.getCode(), code(result, i));
+        }
+    }
+
+    @Test
+    public void testBatchParameterError() throws Exception {
+        TestServlet servlet = servlet();
+        Map<String, String> params = batchParams();
+        params.put("2_name", "ABC");
+        JSONObject result = servlet.execute(params);
+        // 参数错误的批量调用被拆分为单独的调用, 只有参数错误的调用失败
+        assertEquals(1, servlet.batchCount);
+        assertEquals(1, value(result, 0));
+        assertEquals(ApiReturnCode.PARAMETER_ERROR.getCode(), code(result, 2));
+        assertEquals(ApiReturnCode.SUCCESS.getCode(), code(result, 3));
+        assertEquals(5, value(result, 3));
+    }
+
+    @Test
+    public void testBatchDeadline() throws Exception {
+        TestServlet servlet = servlet();
+        Map<String, String> params = batchParams();
+        params.put(CommonParameter.method, "servlet.echo,servlet.length,servlet.length");
+        params.put("0_name", "echo");
+        params.put("0_password", "pwd");
+        params.put("1_name", "a");
+        params.put("2_name", "abc");
+        params.put(CommonParameter.timeout, "20");
+        servlet.callDelay = 50;
+        JSONObject result = servlet.execute(params);
+        // 截止时间在发起批量调用前已过, 批量调用未被发起, 合并的调用均超时
+        assertEquals(0, servlet.batchCount);
+        assertEquals(ApiReturnCode.SUCCESS.getCode(), code(result, 0));
+        assertEquals(ApiReturnCode.UNKNOWN_ERROR.getCode(), code(result, 1));
+        assertEquals(ApiReturnCode.UNKNOWN_ERROR.getCode(), code(result, 2));
+    }
+
+    @Test
+    public void testBatchInCompletionOrder() throws Exception {
+        final TestServlet servlet = servlet();
+        servlet.async = true;
+        // 以与声明相反的顺序完成各个异步调用
+        Thread completer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (servlet.futures.size() < 2) {
+                        Thread.sleep(1);
+                    }
+                    servlet.futures.get(1).complete();
+                    servlet.futures.get(0).complete();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        completer.setDaemon(true);
+        completer.start();
+        setDubboAsync(true);
+        JSONObject result;
+        try {
+            result = servlet.execute(batchParams());
+        } finally {
+            setDubboAsync(false);
+        }
+        completer.join(1000);
+        assertEquals(1, servlet.batchCount);
+        assertEquals(2, servlet.futures.size());
+        assertTrue(servlet.futures.get(0).isDone());
+        int[] expected = new int[] { 1, -1, 3, 5 };
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(ApiReturnCode.SUCCESS.getCode(), code(result, i));
+            if (expected[i] > 0) {
+                assertEquals(expected[i], value(result, i));
+            }
+        }
+        assertEquals("echo", result.getJSONArray("content").getJSONObject(1).getString("name"));
+    }
+
+    @Test
+    public void testDecryptParameters() throws Exception {
+        KeyPairGenerator keygen = KeyPairGenerator.getInstance("RSA");
+        keygen.initialize(1024, new SecureRandom());
+        KeyPair kp = keygen.generateKeyPair();
+        AsymmetricEngine engine = AsymmetricEngine.rsa(kp.getPublic().getEncoded(), kp.getPrivate().getEncoded());
+        TestServlet servlet = servlet();
+        Map<String, String> params = new HashMap<String, String>();
+        params.put(CommonParameter.method, "servlet.echo,servlet.echo,servlet.echo");
+        for (int i = 0; i < 2; i++) {
+            params.put(i + "_name", "name" + i);
+            params.put(i + "_password", Base64Util.encodeToString(engine.encrypt(("密码" + i).getBytes(ConstField.UTF8))));
+        }
+        params.put("2_name", "name2");
+        params.put("2_password", Base64Util.encodeToString("not encrypted".getBytes(ConstField.UTF8)));
+
+        // 未提供私钥时参数按原值传递
+        JSONObject result = servlet.execute(new HashMap<String, String>(params));
+        assertEquals(params.get("0_password"), result.getJSONArray("content").getJSONObject(0).getString("password"));
+
+        servlet.parameterEngine = engine;
+        result = servlet.execute(new HashMap<String, String>(params));
+        JSONArray content = result.getJSONArray("content");
+        for (int i = 0; i < 2; i++) {
+            assertEquals(ApiReturnCode.SUCCESS.getCode(), code(result, i));
+            assertEquals("name" + i, content.getJSONObject(i).getString("name"));
+            assertEquals("密码" + i, content.getJSONObject(i).getString("password"));
+        }
+        // 解密失败的参数被置为null, 必填参数缺失
+        assertEquals(ApiReturnCode.PARAMETER_ERROR.getCode(), code(result, 2));
+    }
+}
@@ -0,0 +1,162 @@
+package net.pocrd.core.test;
+
+import net.pocrd.annotation.ApiGroup;
+import net.pocrd.annotation.ApiParameter;
+import net.pocrd.annotation.Description;
+import net.pocrd.annotation.HttpApi;
+import net.pocrd.core.ApiManager;
+import net.pocrd.core.test.BatchApiTest.RC;
+import net.pocrd.define.BatchHttpApiExecuter;
+import net.pocrd.define.SecurityType;
+import net.pocrd.entity.AbstractReturnCode;
+import net.pocrd.entity.ApiReturnCode;
+import net.pocrd.entity.ReturnCodeException;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@ApiGroup(name = "batch", minCode = 0, maxCode = 100, codeDefine = RC.class, owner = "batch")
+public class BatchApiTest {
+
+    public static class RC extends AbstractReturnCode {
+        protected RC(String desc, int code) {
+            super(desc, code);
+        }
+    }
+
+    @Description("卡片")
+    public static class Card implements Serializable {
+        @Description("编号")
+        public long   id;
+        @Description("名称")
+        public String name;
+    }
+
+    private int batchCount;
+
+    @HttpApi(name = "batch.card", desc = "卡片", security = SecurityType.None, owner = "batch", batchMethod = "cards")
+    public Card card(
+            @ApiParameter(required = true, name = "id", desc = "编号")
+            long id,
+            @ApiParameter(required = false, name = "name", verifyRegex = "^[a-z]+$", defaultValue = "card", desc = "名称")
+            String name,
+            @ApiParameter(required = false, name = "template", defaultValue = "{\"id\":100}", desc = "模板")
+            Card template) {
+        return cards(new long[] { id }, new String[] { name }, new Card[] { template })[0];
+    }
+
+    public Card[] cards(long[] ids, String[] names, Card[] templates) {
+        batchCount++;
+        Card[] cards = new Card[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            cards[i] = new Card();
+            cards[i].id = ids[i] + templates[i].id;
+            cards[i].name = names[i];
+            // 默认值在每组参数中都是独立的复制
+            templates[i].id = 0;
+        }
+        return cards;
+    }
+
+    @HttpApi(name = "batch.sum", desc = "求和", security = SecurityType.None, owner = "batch", batchMethod = "sums")
+    public int sum(
+            @ApiParameter(required = true, name = "a", desc = "a")
+            int a,
+            @ApiParameter(required = false, name = "b", defaultValue = "1", desc = "b")
+            double b,
+            @ApiParameter(required = false, name = "c", desc = "c")
+            boolean c) {
+        return sums(new int[] { a }, new double[] { b }, new boolean[] { c }).get(0);
+    }
+
+    public List<Integer> sums(int[] a, double[] b, boolean[] c) {
+        List<Integer> result = new ArrayList<Integer>(a.length);
+        for (int i = 0; i < a.length; i++) {
+            result.add(a[i] + (int)b[i] + (c[i] ? 100 : 0));
+        }
+        return result;
+    }
+
+    @HttpApi(name = "batch.single", desc = "未声明批量方法", security = SecurityType.None, owner = "batch")
+    public int single(
+            @ApiParameter(required = true, name = "a", desc = "a")
+            int a) {
+        return a;
+    }
+
+    @ApiGroup(name = "badbatch", minCode = 0, maxCode = 100, codeDefine = RC.class, owner = "batch")
+    public static class BadBatch {
+        @HttpApi(name = "badbatch.card", desc = "批量方法参数不匹配", security = SecurityType.None, owner = "batch", batchMethod = "cards")
+        public Card card(
+                @ApiParameter(required = true, name = "id", desc = "编号")
+                long id) {
+            return null;
+        }
+
+        public Card[] cards(int[] ids) {
+            return null;
+        }
+    }
+
+    @Test
+    public void testExecuteBatch() {
+        BatchApiTest service = new BatchApiTest();
+        ApiManager manager = new ApiManager();
+        manager.register(ApiManager.parseApi(BatchApiTest.class, service));
+        Card[] cards = (Card[])manager.processBatchRequest("batch.card",
+                new String[][] { { "1", "abc", null }, { "2", null, null }, { "3", null, "{\"id\":10}" } });
+        assertEquals(1, service.batchCount);
+        assertEquals(3, cards.length);
+        assertEquals(101, cards[0].id);
+        assertEquals("abc", cards[0].name);
+        assertEquals(102, cards[1].id);
+        assertEquals("card", cards[1].name);
+        assertEquals(13, cards[2].id);
+        assertEquals(0, ((Card[])manager.processBatchRequest("batch.card", new String[0][])).length);
+
+        List<?> sums = (List<?>)manager.processBatchRequest("batch.sum", new String[][] { { "1", null, null }, { "5", "3", "true" } });
+        assertEquals(2, sums.get(0));
+        assertEquals(108, sums.get(1));
+    }
+
+    @Test
+    public void testInvalidParameter() {
+        BatchApiTest service = new BatchApiTest();
+        ApiManager manager = new ApiManager();
+        manager.register(ApiManager.parseApi(BatchApiTest.class, service));
+        String[][][] invalids = new String[][][] { { { "1", null, null }, { "x", null, null } }, { { "1", null, null }, { "2", "ABC", null } },
+                { { "1", null, null }, { null, null, null } } };
+        for (String[][] params : invalids) {
+            try {
+                manager.processBatchRequest("batch.card", params);
+                assertTrue(false);
+            } catch (ReturnCodeException e) {
+                assertEquals(ApiReturnCode.PARAMETER_ERROR, e.getCode());
+            }
+        }
+        // 参数验证失败时批量方法未被调用
+        assertEquals(0, service.batchCount);
+        try {
+            manager.processBatchRequest("batch.single", new String[][] { { "1" } });
+            assertTrue(false);
+        } catch (UnsupportedOperationException e) {
+            // 未声明批量方法
+        }
+        // 只有声明了批量方法的接口的执行器实现BatchHttpApiExecuter
+        assertTrue(manager.getApiEntry("batch.card").executer instanceof BatchHttpApiExecuter);
+        assertFalse(manager.getApiEntry("batch.single").executer instanceof BatchHttpApiExecuter);
+    }
+
+    @Test
+    public void testBatchMethodMismatch() {
+        // 批量方法的参数应为long[], 解析失败
+        assertNull(ApiManager.parseApi(BadBatch.class, new BadBatch()));
+    }
+}
@@ -0,0 +1,50 @@
+package net.pocrd.core.test;
+
+import net.pocrd.util.ChunkedByteArrayOutputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ChunkedByteArrayOutputStreamTest {
+
+    @Test
+    public void testWriteAcrossChunks() throws Exception {
+        byte[] data = new byte[ChunkedByteArrayOutputStream.CHUNK_SIZE * 3 + 17];
+        new Random().nextBytes(data);
+        ChunkedByteArrayOutputStream out = new ChunkedByteArrayOutputStream(1);
+        out.write(data[0]);
+        out.write(data, 1, 4095);
+        out.write(data, 4096, data.length - 4096);
+        assertEquals(data.length, out.size());
+        assertArrayEquals(data, out.toByteArray());
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        out.writeTo(bos);
+        assertArrayEquals(data, bos.toByteArray());
+
+        bos.reset();
+        out.writeTo(bos, 4000, 5000);
+        assertArrayEquals(Arrays.copyOfRange(data, 4000, 9000), bos.toByteArray());
+
+        out.reset();
+        assertEquals(0, out.size());
+        out.write(data, 0, 10);
+        assertArrayEquals(Arrays.copyOf(data, 10), out.toByteArray());
+    }
+
+    @Test
+    public void testSetWriteIndex() throws Exception {
+        ChunkedByteArrayOutputStream out = new ChunkedByteArrayOutputStream();
+        out.write("abc".getBytes());
+        byte[] big = new byte[ChunkedByteArrayOutputStream.CHUNK_SIZE * 2];
+        out.write(big);
+        out.setWriteIndex(3);
+        out.write("{}".getBytes());
+        assertEquals("abc{}", new String(out.toByteArray()));
+    }
+}
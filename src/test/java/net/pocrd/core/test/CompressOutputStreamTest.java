@@ -0,0 +1,81 @@
+package net.pocrd.core.test;
+
+import net.pocrd.util.CompressOutputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class CompressOutputStreamTest {
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] compress(String encoding, byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressOutputStream stream = CompressOutputStream.getInstance(encoding, out);
+        stream.write(data[0]);
+        stream.write(data, 1, data.length - 1);
+        stream.finish();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+        Random random = new Random();
+        for (int i = 0; i < 3; i++) {
+            byte[] data = new byte[20000 + random.nextInt(20000)];
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte)('a' + random.nextInt(8));
+            }
+            byte[] compressed = compress(CompressOutputStream.GZIP, data);
+            assertArrayEquals(data, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+        }
+    }
+
+    @Test
+    public void testDeflate() throws Exception {
+        Random random = new Random();
+        for (int i = 0; i < 3; i++) {
+            byte[] data = new byte[20000 + random.nextInt(20000)];
+            random.nextBytes(data);
+            byte[] compressed = compress(CompressOutputStream.DEFLATE, data);
+            assertArrayEquals(data, readAll(new InflaterInputStream(new ByteArrayInputStream(compressed))));
+        }
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        byte[] prefix = "{\"content\":".getBytes("UTF-8");
+        for (String encoding : new String[] { CompressOutputStream.GZIP, CompressOutputStream.DEFLATE }) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CompressOutputStream stream = CompressOutputStream.getInstance(encoding, out);
+            stream.write(prefix);
+            // flush不结束压缩过程, 之后可以继续写入
+            stream.flush();
+            boolean gzip = CompressOutputStream.GZIP.equals(encoding);
+            stream.write(prefix);
+            stream.finish();
+            byte[] expected = new byte[prefix.length * 2];
+            System.arraycopy(prefix, 0, expected, 0, prefix.length);
+            System.arraycopy(prefix, 0, expected, prefix.length, prefix.length);
+            InputStream in = gzip ? new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))
+                    : new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()));
+            assertArrayEquals(expected, readAll(in));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package net.pocrd.core.test;
+
+import net.pocrd.define.ConstField;
+import net.pocrd.util.AsymmetricEngine;
+import net.pocrd.util.DeviceKeyCache;
+import net.pocrd.util.LruCache;
+import net.pocrd.util.RsaHelper;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DeviceKeyCacheTest {
+
+    @Test
+    public void testVerify() throws Exception {
+        KeyPairGenerator keygen = KeyPairGenerator.getInstance("RSA");
+        keygen.initialize(1024, new SecureRandom());
+        KeyPair kp = keygen.generateKeyPair();
+        byte[] pub = kp.getPublic().getEncoded();
+        byte[] content = "device signed content".getBytes(ConstField.UTF8);
+        byte[] sign = RsaHelper.sign(content, kp.getPrivate().getEncoded());
+
+        DeviceKeyCache cache = new DeviceKeyCache(AsymmetricEngine.RSA, 100);
+        assertTrue(cache.verify(pub, sign, content));
+        assertTrue(cache.verify(pub.clone(), sign, content));
+        assertFalse(cache.verify(pub, sign, "tampered content".getBytes(ConstField.UTF8)));
+        assertSame(cache.get(pub), cache.get(pub.clone()));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(4, cache.getHitCount());
+
+        assertNull(cache.get("not a public key".getBytes(ConstField.UTF8)));
+        assertFalse(cache.verify(null, sign, content));
+        assertEquals(1, cache.size());
+
+        // 同一线程的Signature对象按各设备的公钥重新初始化
+        KeyPair other = keygen.generateKeyPair();
+        byte[] otherSign = RsaHelper.sign(content, other.getPrivate().getEncoded());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(cache.verify(other.getPublic().getEncoded(), otherSign, content));
+            assertFalse(cache.verify(pub, otherSign, content));
+            assertTrue(cache.verify(pub, sign, content));
+            assertFalse(cache.verify(other.getPublic().getEncoded(), sign, content));
+        }
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testLruEviction() {
+        LruCache<Integer, String> cache = new LruCache<Integer, String>(16);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, String.valueOf(i));
+        }
+        assertTrue(cache.size() <= 16);
+        assertEquals(1000 - cache.size(), cache.getEvictionCount());
+        assertEquals("999", cache.get(999));
+        assertNull(cache.get(0));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+}
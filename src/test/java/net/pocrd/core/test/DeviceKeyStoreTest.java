@@ -0,0 +1,130 @@
+package net.pocrd.core.test;
+
+import net.pocrd.util.DeviceKeyStore;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DeviceKeyStoreTest {
+
+    private static byte[] key(long deviceId, int length) {
+        byte[] key = new byte[length];
+        for (int i = 0; i < length; i++) {
+            key[i] = (byte)(deviceId * 31 + i);
+        }
+        return key;
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        DeviceKeyStore store = new DeviceKeyStore(1000, 64);
+        for (long id = 1; id <= 1000; id++) {
+            assertTrue(store.put(id, key(id, (int)(id % 64) + 1)));
+        }
+        assertEquals(1000, store.size());
+        assertFalse(store.put(1001, key(1001, 16)));
+        for (long id = 1; id <= 1000; id++) {
+            assertArrayEquals(key(id, (int)(id % 64) + 1), store.get(id));
+        }
+        assertNull(store.get(1001));
+
+        assertTrue(store.put(5, key(6, 10)));
+        assertArrayEquals(key(6, 10), store.get(5));
+        assertEquals(1000, store.size());
+
+        for (long id = 1; id <= 1000; id += 2) {
+            assertTrue(store.remove(id));
+        }
+        assertFalse(store.remove(1));
+        assertEquals(500, store.size());
+        for (long id = 1; id <= 1000; id++) {
+            if (id % 2 == 1) {
+                assertNull(store.get(id));
+            } else {
+                assertArrayEquals(key(id, (int)(id % 64) + 1), store.get(id));
+            }
+        }
+        // 已删除的槽位可以被复用
+        for (long id = 2001; id <= 2500; id++) {
+            assertTrue(store.put(id, key(id, 8)));
+        }
+        assertEquals(1000, store.size());
+        byte[] buf = new byte[64];
+        assertEquals(8, store.get(2500, buf, 0));
+        assertEquals(-1, store.get(1, buf, 0));
+    }
+
+    @Test
+    public void testMappedFile() throws Exception {
+        File file = File.createTempFile("devicekey", ".dks");
+        file.deleteOnExit();
+        DeviceKeyStore store = new DeviceKeyStore(100, 32, file.getPath());
+        for (long id = -50; id < 50; id++) {
+            store.put(id, key(id, 32));
+        }
+        store.remove(0);
+        store.force();
+
+        DeviceKeyStore reloaded = new DeviceKeyStore(100, 32, file.getPath());
+        assertEquals(99, reloaded.size());
+        assertNull(reloaded.get(0));
+        assertArrayEquals(key(-50, 32), reloaded.get(-50));
+        assertArrayEquals(key(49, 32), reloaded.get(49));
+
+        // 容量参数变化时丢弃原有数据
+        DeviceKeyStore resized = new DeviceKeyStore(200, 32, file.getPath());
+        assertEquals(0, resized.size());
+        assertNull(resized.get(49));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final DeviceKeyStore store = new DeviceKeyStore(256, 48);
+        final AtomicInteger errors = new AtomicInteger();
+        final long end = System.currentTimeMillis() + 500;
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final boolean writer = t % 2 == 0;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    Random random = new Random();
+                    byte[] buf = new byte[48];
+                    while (System.currentTimeMillis() < end) {
+                        long id = random.nextInt(200);
+                        if (writer) {
+                            if (random.nextInt(4) == 0) {
+                                store.remove(id);
+                            } else {
+                                store.put(id, key(id, 1 + random.nextInt(48)));
+                            }
+                        } else {
+                            int len = store.get(id, buf, 0);
+                            // 读到的密钥总是某一次完整写入的内容
+                            for (int i = 0; i < len; i++) {
+                                if (buf[i] != (byte)(id * 31 + i)) {
+                                    errors.incrementAndGet();
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        assertTrue(store.size() <= 200);
+    }
+}
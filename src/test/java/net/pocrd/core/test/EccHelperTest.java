@@ -36,6 +36,9 @@ public class EccHelperTest {
             byte[] secret = ecc.encrypt(content.getBytes(ConstField.UTF8));
             assertEquals(content, new String(ecc.decrypt(secret), "UTF-8"));
             assertEquals(content, new String(EccHelper.decrypt(secret, pri), "UTF-8"));
+            // 同一线程重复使用已初始化的Cipher
+            secret = ecc.encrypt(content.getBytes(ConstField.UTF8));
+            assertEquals(content, new String(ecc.decrypt(secret), "UTF-8"));
 
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -0,0 +1,76 @@
+package net.pocrd.core.test;
+
+import net.pocrd.define.ConstField;
+import net.pocrd.util.HMacVerifier;
+import net.pocrd.util.HexStringUtil;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HMacVerifierTest {
+
+    private static byte[] hmac(String algorithm, byte[] key, byte[] content) throws Exception {
+        Mac mac = Mac.getInstance(algorithm);
+        mac.init(new SecretKeySpec(key, algorithm));
+        return mac.doFinal(content);
+    }
+
+    @Test
+    public void testVerify() throws Exception {
+        HMacVerifier verifier = new HMacVerifier();
+        byte[] key1 = "key-of-app-1".getBytes(ConstField.UTF8);
+        byte[] key2 = "key-of-app-2".getBytes(ConstField.UTF8);
+        verifier.registerKey(1, HMacVerifier.HMAC_MD5, key1);
+        verifier.registerKey(2, HMacVerifier.HMAC_SHA256, key2);
+        byte[] content = "_mt=user.getInfo&_aid=1&uid=123".getBytes(ConstField.UTF8);
+        byte[] sig1 = hmac(HMacVerifier.HMAC_MD5, key1, content);
+        byte[] sig2 = hmac(HMacVerifier.HMAC_SHA256, key2, content);
+
+        assertArrayEquals(sig1, verifier.sign(1, content, 0, content.length));
+        assertTrue(verifier.verify(1, content, 0, content.length, sig1));
+        assertTrue(verifier.verify(2, content, 0, content.length, sig2));
+        assertTrue(verifier.verify(2, ByteBuffer.wrap(content), sig2));
+        assertTrue(verifier.verifyHex(2, content, 0, content.length, HexStringUtil.toHexString(sig2).toUpperCase()));
+        assertFalse(verifier.verify(1, content, 0, content.length, sig2));
+        assertFalse(verifier.verify(1, content, 0, content.length - 1, sig1));
+        assertFalse(verifier.verify(3, content, 0, content.length, sig1));
+        assertNull(verifier.sign(3, content, 0, content.length));
+
+        // 替换密钥后旧签名失效
+        verifier.registerKey(1, HMacVerifier.HMAC_SHA256, key2);
+        assertFalse(verifier.verify(1, content, 0, content.length, sig1));
+        assertTrue(verifier.verify(1, content, 0, content.length, sig2));
+        verifier.unregisterKey(1);
+        assertFalse(verifier.verify(1, content, 0, content.length, sig2));
+    }
+
+    @Test
+    public void testMultithread() throws Exception {
+        final HMacVerifier verifier = new HMacVerifier();
+        final byte[] key = "multithread-key".getBytes(ConstField.UTF8);
+        verifier.registerKey(1, HMacVerifier.HMAC_SHA256, key);
+        final byte[] content = new byte[1024];
+        new Random().nextBytes(content);
+        final byte[] sig = hmac(HMacVerifier.HMAC_SHA256, key, content);
+        final AtomicInteger failed = new AtomicInteger();
+        MultithreadTestHelper.runInMultithread(5, 10000, new Runnable() {
+            @Override
+            public void run() {
+                if (!verifier.verify(1, content, 0, content.length, sig)) {
+                    failed.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(0, failed.get());
+    }
+}
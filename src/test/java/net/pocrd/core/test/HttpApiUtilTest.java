@@ -7,6 +7,7 @@ import net.pocrd.core.test.HttpApiUtilTest.RC;
 import net.pocrd.define.SecurityType;
 import net.pocrd.define.Serializer;
 import net.pocrd.entity.AbstractReturnCode;
+import net.pocrd.responseEntity.BoolResp;
 import net.pocrd.responseEntity.ObjectArrayResp;
 import net.pocrd.util.RawString;
 import net.pocrd.util.POJOSerializerProvider;
@@ -577,4 +578,15 @@ public class HttpApiUtilTest {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void testParallelRegister() {
+        Map<Class<?>, Object> services = new HashMap<Class<?>, Object>();
+        services.put(HttpApiUtilTest.class, new HttpApiUtilTest());
+        ApiManager manager = new ApiManager();
+        manager.register(ApiManager.parseApi(services));
+        assertEquals(ApiManager.parseApi(HttpApiUtilTest.class, new HttpApiUtilTest()).size(), manager.getApiMethodInfos().length);
+        assertEquals(true, ((BoolResp)manager.processRequest("test.test3", new String[] { "true" })).value);
+        assertEquals(manager.getApiMethodInfo("test.test24"), manager.getApiEntry("test.test24").info);
+    }
 }
@@ -0,0 +1,65 @@
+package net.pocrd.core.test;
+
+import com.alibaba.fastjson.JSON;
+import net.pocrd.annotation.Description;
+import net.pocrd.util.JsonParameterParser;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JsonParameterParserTest {
+
+    @Description("订单项")
+    public static class OrderItem implements Serializable {
+        @Description("商品编号")
+        public long         id;
+        @Description("数量")
+        public int          count;
+        @Description("备注")
+        public String       memo;
+        @Description("子项")
+        public List<String> options;
+    }
+
+    @Test
+    public void testParseObject() {
+        JsonParameterParser parser = JsonParameterParser.getParser(OrderItem.class);
+        assertSame(parser, JsonParameterParser.getParser(OrderItem.class));
+        String json = "{\"id\":123456789012,\"count\":3,\"memo\":\"加急\\\"\",\"options\":[\"a\",\"b\"]}";
+        OrderItem item = (OrderItem)parser.parse(json);
+        OrderItem expected = JSON.parseObject(json, OrderItem.class);
+        assertEquals(JSON.toJSONString(expected), JSON.toJSONString(item));
+        assertEquals(123456789012L, item.id);
+
+        assertNull(parser.parse(null));
+        assertNull(parser.parse("null"));
+        try {
+            parser.parse("{\"id\":");
+            assertTrue(false);
+        } catch (Exception e) {
+            // 非法json
+        }
+    }
+
+    @Test
+    public void testParseList() {
+        JsonParameterParser parser = JsonParameterParser.getListParser(OrderItem.class);
+        assertTrue(parser.isList());
+        String json = "[{\"id\":1,\"count\":2},{\"id\":3,\"memo\":\"m\"}]";
+        List<?> list = (List<?>)parser.parse(json);
+        assertTrue(list instanceof ArrayList);
+        assertEquals(JSON.toJSONString(JSON.parseArray(json, OrderItem.class)), JSON.toJSONString(list));
+        assertEquals(0, ((List<?>)parser.parse("[]")).size());
+        assertNull(parser.parse("null"));
+
+        List<?> longs = (List<?>)JsonParameterParser.getListParser(Long.class).parse("[1,2,3]");
+        assertEquals(JSON.parseArray("[1,2,3]", Long.class), longs);
+    }
+}
@@ -1,11 +1,19 @@
 package net.pocrd.core.test;
 
+import net.pocrd.define.ConstField;
+import net.pocrd.util.DigestUtil;
+import net.pocrd.util.HexStringUtil;
 import net.pocrd.util.Md5Util;
+import net.pocrd.util.SHAUtil;
 import org.junit.Test;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.Arrays;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class Md5UtilTest {
@@ -21,4 +29,27 @@ public class Md5UtilTest {
         Arrays.equals(bs, Md5Util.compute(sb.toString().getBytes("UTF-8")));
     }
 
+    @Test
+    public void testDigestUtil() throws Exception {
+        byte[] content = "abc".getBytes(ConstField.UTF8);
+        assertEquals("900150983cd24fb0d6963f7d28e17f72", Md5Util.computeToHex(content));
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", SHAUtil.computeSHA1ToHex(content));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", HexStringUtil.toHexString(DigestUtil.sha256(content)));
+
+        // 增量计算过程中进行一次性计算互不影响
+        MessageDigest md = DigestUtil.begin(DigestUtil.SHA256);
+        md.update(content, 0, 1);
+        assertArrayEquals(DigestUtil.sha1(content), SHAUtil.computeSHA1(content));
+        md.update(ByteBuffer.wrap(content, 1, 2));
+        assertArrayEquals(DigestUtil.sha256(content), md.digest());
+
+        char[] hex = new char[34];
+        assertEquals(32, DigestUtil.computeToHex(DigestUtil.MD5, content, 0, content.length, hex, 2));
+        assertEquals(Md5Util.computeToHex(content), new String(hex, 2, 32));
+        byte[] base64 = new byte[24];
+        assertEquals(24, DigestUtil.computeToBase64(DigestUtil.MD5, content, 0, content.length, base64, 0));
+        assertEquals(Md5Util.computeToBase64(content), new String(base64, ConstField.UTF8));
+        assertArrayEquals(DigestUtil.md5(content), DigestUtil.compute(DigestUtil.MD5, ByteBuffer.wrap(content)));
+    }
+
 }
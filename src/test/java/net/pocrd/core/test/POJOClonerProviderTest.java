@@ -0,0 +1,183 @@
+package net.pocrd.core.test;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import net.pocrd.annotation.Description;
+import net.pocrd.define.Cloner;
+import net.pocrd.util.POJOClonerProvider;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class POJOClonerProviderTest {
+
+    public enum Level {
+        LOW,
+        HIGH
+    }
+
+    @Description("地址")
+    public static class Address {
+        @Description("城市")
+        public String city;
+        @Description("邮编")
+        public int    zip;
+    }
+
+    @Description("用户")
+    public static class User {
+        @Description("编号")
+        public long                 id;
+        @Description("名称")
+        public String               name;
+        @Description("等级")
+        public Level                level;
+        @Description("积分")
+        public Integer              score;
+        @Description("地址")
+        public Address              address;
+        @Description("历史地址")
+        public List<Address>        history;
+        @Description("标签")
+        public String[]             tags;
+        @Description("数据")
+        public int[]                data;
+        @Description("属性")
+        public Map<String, Address> attributes;
+        @Description("扩展")
+        public JSONObject           ext;
+        @Description("创建时间")
+        public Date                 created;
+    }
+
+    @Description("非public无参构造函数")
+    public static class Point {
+        @Description("x")
+        public int x;
+
+        Point() {
+        }
+
+        public Point(int x) {
+            this.x = x;
+        }
+    }
+
+    private static User user() {
+        User user = new User();
+        user.id = 1;
+        user.name = "rendong";
+        user.level = Level.HIGH;
+        user.score = 10;
+        user.address = new Address();
+        user.address.city = "杭州";
+        user.address.zip = 310000;
+        user.history = new ArrayList<Address>();
+        user.history.add(new Address());
+        user.tags = new String[] { "a", "b" };
+        user.data = new int[] { 1, 2, 3 };
+        user.attributes = new HashMap<String, Address>();
+        user.attributes.put("home", new Address());
+        user.ext = new JSONObject();
+        user.ext.put("k", new ArrayList<String>());
+        user.created = new Date(1000);
+        return user;
+    }
+
+    @Test
+    public void testCopy() {
+        Cloner<User> cloner = POJOClonerProvider.getCloner(User.class);
+        assertSame(cloner, POJOClonerProvider.getCloner(User.class));
+        User user = user();
+        String json = JSON.toJSONString(user);
+        User copy = cloner.copy(user);
+        assertEquals(json, JSON.toJSONString(copy));
+        assertSame(user.name, copy.name);
+        assertSame(user.level, copy.level);
+        assertNotSame(user.address, copy.address);
+        assertNotSame(user.history, copy.history);
+        assertNotSame(user.history.get(0), copy.history.get(0));
+        assertNotSame(user.tags, copy.tags);
+        assertNotSame(user.data, copy.data);
+        assertNotSame(user.attributes.get("home"), copy.attributes.get("home"));
+        assertTrue(copy.ext instanceof JSONObject);
+        assertNotSame(user.ext.get("k"), copy.ext.get("k"));
+        assertNotSame(user.created, copy.created);
+
+        // 修改复制结果不影响原对象
+        copy.address.city = "北京";
+        copy.history.clear();
+        copy.tags[0] = "c";
+        copy.data[0] = 0;
+        copy.attributes.clear();
+        copy.created.setTime(0);
+        assertEquals(json, JSON.toJSONString(user));
+
+        assertNull(cloner.copy(null));
+        assertNull(POJOClonerProvider.copy(null));
+    }
+
+    @Test
+    public void testCopyByRuntimeType() {
+        List<User> list = new ArrayList<User>();
+        list.add(user());
+        list.add(null);
+        List<User> copy = (List<User>)POJOClonerProvider.copy(list);
+        assertNotSame(list, copy);
+        assertNotSame(list.get(0), copy.get(0));
+        assertNull(copy.get(1));
+        assertEquals(JSON.toJSONString(list), JSON.toJSONString(copy));
+
+        String[] array = new String[] { "x", "y" };
+        assertArrayEquals(array, (String[])POJOClonerProvider.copy(array));
+        assertNotSame(array, POJOClonerProvider.copy(array));
+        assertSame("s", POJOClonerProvider.copy("s"));
+    }
+
+    @Test
+    public void testParameterCloner() {
+        assertSame(POJOClonerProvider.getCloner(User.class), POJOClonerProvider.getParameterCloner(User.class, null));
+
+        Cloner<List<User>> listCloner = (Cloner<List<User>>)POJOClonerProvider.getParameterCloner(List.class, User.class);
+        List<User> list = new ArrayList<User>();
+        list.add(user());
+        list.add(null);
+        List<User> copy = listCloner.copy(list);
+        assertNotSame(list, copy);
+        assertNotSame(list.get(0), copy.get(0));
+        assertNull(copy.get(1));
+        assertEquals(JSON.toJSONString(list), JSON.toJSONString(copy));
+        assertNull(listCloner.copy(null));
+
+        Cloner<List<String>> stringsCloner = (Cloner<List<String>>)POJOClonerProvider.getParameterCloner(List.class, String.class);
+        List<String> strings = new ArrayList<String>();
+        strings.add("a");
+        assertNotSame(strings, stringsCloner.copy(strings));
+        assertEquals(strings, stringsCloner.copy(strings));
+
+        String[] array = new String[] { "x", "y" };
+        Cloner<String[]> arrayCloner = (Cloner<String[]>)POJOClonerProvider.getParameterCloner(String[].class, null);
+        assertNotSame(array, arrayCloner.copy(array));
+        assertArrayEquals(array, arrayCloner.copy(array));
+    }
+
+    @Test
+    public void testJsonFallback() {
+        Cloner<Point> cloner = POJOClonerProvider.getCloner(Point.class);
+        Point p = new Point(3);
+        Point copy = cloner.copy(p);
+        assertNotSame(p, copy);
+        assertEquals(3, copy.x);
+    }
+}
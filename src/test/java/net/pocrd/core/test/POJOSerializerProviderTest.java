@@ -1,14 +1,18 @@
 package net.pocrd.core.test;
 
+import com.alibaba.fastjson.JSON;
 import net.pocrd.core.test.model.KVData;
 import net.pocrd.core.test.model.TestObj2;
 import net.pocrd.define.ConstField;
+import net.pocrd.define.Serializer;
 import net.pocrd.util.POJOSerializerProvider;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 
+import static org.junit.Assert.assertEquals;
+
 public class POJOSerializerProviderTest {
     @Test
     public void test() {
@@ -88,4 +92,31 @@ public class POJOSerializerProviderTest {
         //        end = System.currentTimeMillis();
         //        System.out.println("tojson cost:" + (end - start) + " jsonStr:" + jsonObj.toString());
     }
+
+    @Test
+    public void testJsonCompatibleWithFastJson() {
+        TestObj2 t = new TestObj2();
+        t.c = '\n';
+        t.bs = new boolean[]{false, true};
+        t.d = -0.5D;
+        t.ds = new double[]{1.25D, Double.NaN};
+        t.f = 2.0f;
+        t.fs = new float[0];
+        t.i = Integer.MIN_VALUE;
+        t.is = new int[]{-1, 1000, 1234567};
+        t.l = 9876543210L;
+        t.s = "\"quote\" \\ tab\t 中文 \ud83d\ude00";
+        t.ss = new ArrayList<String>();
+        t.ss.add("a");
+        t.ss.add(null);
+        t.t2s = new ArrayList<TestObj2>();
+        t.t2s.add(new TestObj2());
+        t.t2s.add(null);
+        t.t2 = new TestObj2();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        POJOSerializerProvider.getSerializer(TestObj2.class).toJson(t, out, true);
+        String json = new String(out.toByteArray(), ConstField.UTF8);
+        assertEquals(JSON.parseObject(JSON.toJSONString(t, Serializer.ApiSerializerFeature.SERIALIZER_FEATURES)), JSON.parseObject(json));
+    }
 }
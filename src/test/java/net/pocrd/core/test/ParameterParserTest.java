@@ -0,0 +1,189 @@
+package net.pocrd.core.test;
+
+import net.pocrd.annotation.ApiGroup;
+import net.pocrd.annotation.ApiParameter;
+import net.pocrd.annotation.HttpApi;
+import net.pocrd.core.ApiManager;
+import net.pocrd.define.SecurityType;
+import net.pocrd.entity.AbstractReturnCode;
+import net.pocrd.entity.ApiReturnCode;
+import net.pocrd.entity.ReturnCodeException;
+import net.pocrd.responseEntity.LongResp;
+import net.pocrd.util.ParameterParser;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ParameterParserTest {
+    private static final String[] SAMPLES = { "0", "-0", "+0", "1", "-1", "+1", "127", "128", "-128", "-129", "32767", "32768", "-32768",
+            "-32769", "2147483647", "2147483648", "-2147483648", "-2147483649", "9223372036854775807", "9223372036854775808",
+            "-9223372036854775808", "-9223372036854775809", "00000000000000000000001", "99999999999999999999", "", "-", "+", "--1", "+-1",
+            "1-", " 1", "1 ", "1.0", "1e3", "0x10", "abc", "\u0661\u0662", "\uff11\uff12", "\u00b2" };
+
+    private static String jdkByte(String s) {
+        try {
+            return String.valueOf(Byte.parseByte(s));
+        } catch (NumberFormatException e) {
+            return "error";
+        }
+    }
+
+    private static String jdkShort(String s) {
+        try {
+            return String.valueOf(Short.parseShort(s));
+        } catch (NumberFormatException e) {
+            return "error";
+        }
+    }
+
+    private static String jdkInt(String s) {
+        try {
+            return String.valueOf(Integer.parseInt(s));
+        } catch (NumberFormatException e) {
+            return "error";
+        }
+    }
+
+    private static String jdkLong(String s) {
+        try {
+            return String.valueOf(Long.parseLong(s));
+        } catch (NumberFormatException e) {
+            return "error";
+        }
+    }
+
+    private static void check(String s) {
+        String r;
+        try {
+            r = String.valueOf(ParameterParser.parseByte(s));
+        } catch (NumberFormatException e) {
+            r = "error";
+        }
+        assertEquals(s, jdkByte(s), r);
+        try {
+            r = String.valueOf(ParameterParser.parseShort(s));
+        } catch (NumberFormatException e) {
+            r = "error";
+        }
+        assertEquals(s, jdkShort(s), r);
+        try {
+            r = String.valueOf(ParameterParser.parseInt(s));
+        } catch (NumberFormatException e) {
+            r = "error";
+        }
+        assertEquals(s, jdkInt(s), r);
+        try {
+            r = String.valueOf(ParameterParser.parseLong(new StringBuilder(s)));
+        } catch (NumberFormatException e) {
+            r = "error";
+        }
+        assertEquals(s, jdkLong(s), r);
+    }
+
+    @Test
+    public void testSameAsJdk() {
+        for (String s : SAMPLES) {
+            check(s);
+        }
+        Random random = new Random();
+        for (int i = 0; i < 100000; i++) {
+            long v = random.nextLong() >> random.nextInt(64);
+            check(String.valueOf(v));
+            char[] cs = new char[1 + random.nextInt(6)];
+            for (int j = 0; j < cs.length; j++) {
+                cs[j] = "0123456789+-a ".charAt(random.nextInt(14));
+            }
+            check(new String(cs));
+        }
+    }
+
+    @Test
+    public void testRange() {
+        assertEquals(5, ParameterParser.parseInt("5", 1, 10));
+        assertEquals(0, ParameterParser.parseInt("0", 0, 10));
+        assertEquals(-3L, ParameterParser.parseLong("-3", -5, -1));
+        String[] outOfRange = { "0", "11", "-1", "99999999999" };
+        for (String s : outOfRange) {
+            try {
+                ParameterParser.parseInt(s, 1, 10);
+                assertTrue(s, false);
+            } catch (NumberFormatException e) {
+                // 超出范围
+            }
+        }
+        try {
+            ParameterParser.parseLong("0", -5, -1);
+            assertTrue(false);
+        } catch (NumberFormatException e) {
+            // 超出范围
+        }
+    }
+
+    public static class RC extends AbstractReturnCode {
+        protected RC(String desc, int code) {
+            super(desc, code);
+        }
+    }
+
+    @ApiGroup(name = "range", minCode = 0, maxCode = 100, codeDefine = RC.class, owner = "range")
+    public static class RangeApi {
+        @HttpApi(name = "range.sum", desc = "取值范围", security = SecurityType.None, owner = "range")
+        public long sum(
+                @ApiParameter(required = true, name = "b", min = -10, max = 10, desc = "b")
+                byte b,
+                @ApiParameter(required = false, name = "s", defaultValue = "1", min = 1, desc = "s")
+                short s,
+                @ApiParameter(required = true, name = "i", min = 0, max = 100000000000L, desc = "i")
+                int i,
+                @ApiParameter(required = true, name = "l", max = -1, desc = "l")
+                long l) {
+            return (long)b + s + i + l;
+        }
+    }
+
+    @Test
+    public void testDeclaredRange() {
+        ApiManager manager = new ApiManager();
+        manager.register(ApiManager.parseApi(RangeApi.class, new RangeApi()));
+        assertEquals(-10L + 1 + 0 - 1, ((LongResp)manager.processRequest("range.sum", new String[] { "-10", null, "0", "-1" })).value);
+        assertEquals(10L + 32767 + Integer.MAX_VALUE + Long.MIN_VALUE,
+                ((LongResp)manager.processRequest("range.sum", new String[] { "10", "32767", "2147483647", "-9223372036854775808" })).value);
+        String[][] outOfRange = { { "11", null, "0", "-1" }, { "0", "0", "0", "-1" }, { "0", null, "-1", "-1" }, { "0", null, "0", "0" },
+                { "0", "32768", "0", "-1" } };
+        for (String[] params : outOfRange) {
+            try {
+                manager.processRequest("range.sum", params);
+                assertTrue(false);
+            } catch (ReturnCodeException e) {
+                assertEquals(ApiReturnCode.PARAMETER_ERROR, e.getCode());
+            }
+        }
+    }
+
+    @ApiGroup(name = "badrange", minCode = 0, maxCode = 100, codeDefine = RC.class, owner = "range")
+    public static class BadRangeApi {
+        @HttpApi(name = "badrange.get", desc = "默认值超出取值范围", security = SecurityType.None, owner = "range")
+        public int get(
+                @ApiParameter(required = false, name = "i", min = 1, max = 10, desc = "i")
+                int i) {
+            return i;
+        }
+    }
+
+    @Test
+    public void testDefaultValueOutOfRange() {
+        assertNull(ApiManager.parseApi(BadRangeApi.class, new BadRangeApi()));
+    }
+
+    @Test
+    public void testBoolean() {
+        String[] samples = { "true", "TRUE", "True", "tRuE", "false", "1", "", "truee", "tru", "t\u0152ue", null };
+        for (String s : samples) {
+            assertEquals(s, Boolean.parseBoolean(s), ParameterParser.parseBoolean(s));
+        }
+    }
+}
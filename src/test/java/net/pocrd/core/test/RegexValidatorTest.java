@@ -0,0 +1,76 @@
+package net.pocrd.core.test;
+
+import net.pocrd.util.RegexValidator;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RegexValidatorTest {
+    private static final String[] COMPILED = { "^\\d+$", "^-?\\d+$", "^\\+?\\d+$", "^-?\\d+\\.\\d+$", "^(true)|(false)$", "^[a-z]+$",
+            "^1[3-9]\\d{9}$", "[0-9a-fA-F]{32}", "^[a-zA-Z][a-zA-Z0-9_]{3,15}$", ".{1,5}", "^(?:red|green|blue)$", "(a|bc|def)",
+            "[^,;]*", "\\w{2,}@\\w+", "[\\u4e00-\\u9fa5]{2,4}", "\\s*", "\\S+", "[a-c-]+?", "x{0,3}y", "", "^$", "[\\\\.$]+", "a\\|b" };
+
+    private static final String[] FALLBACK = { "^[a-z]+[a-z0-9]*$", "(?i)abc", "(ab)+", "a|(b|c)d", "\\bword\\b", "\\p{Alpha}+", "(a)\\1",
+            "\\d{2,3}\\d", "[a-z&&[^e]]+", "a.*b" };
+
+    private static final String ALPHABET = "abcdefxyz019-+._,; @|$\\\n\r\t一龥\u0085 😀ACF";
+
+    private static String random(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int len = random.nextInt(12);
+        for (int i = 0; i < len; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+    private static void compare(String regex, boolean compiled) {
+        RegexValidator validator = RegexValidator.compile(regex);
+        assertEquals(regex, compiled, validator.isCompiled());
+        Pattern pattern = Pattern.compile(regex);
+        Random random = new Random();
+        for (int i = 0; i < 20000; i++) {
+            String input = random(random);
+            assertEquals(regex + " : " + input, pattern.matcher(input).matches(), validator.matches(input));
+        }
+    }
+
+    @Test
+    public void testSameAsPattern() {
+        for (String regex : COMPILED) {
+            compare(regex, true);
+        }
+        for (String regex : FALLBACK) {
+            compare(regex, false);
+        }
+    }
+
+    @Test
+    public void testCommonPatterns() {
+        RegexValidator mobile = RegexValidator.compile("^1[3-9]\\d{9}$");
+        assertTrue(mobile.matches("13812345678"));
+        assertFalse(mobile.matches("12812345678"));
+        assertFalse(mobile.matches("1381234567"));
+        assertFalse(mobile.matches("138123456789"));
+
+        RegexValidator decimal = RegexValidator.compile("^-?\\d+\\.\\d+$");
+        assertTrue(decimal.matches("-3.14"));
+        assertFalse(decimal.matches("3."));
+        assertFalse(decimal.matches("--3.1"));
+
+        RegexValidator bool = RegexValidator.compile("^(true)|(false)$");
+        assertTrue(bool.matches("true"));
+        assertTrue(bool.matches("false"));
+        assertFalse(bool.matches("truefalse"));
+
+        // 代理对字符由Pattern按码点验证
+        RegexValidator any = RegexValidator.compile(".{1,2}");
+        assertTrue(any.matches("😀😀"));
+        assertFalse(any.matches("😀😀a"));
+    }
+}
@@ -10,11 +10,11 @@ import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
-//TODO:add multi-thread testing
 public class RsaHelperTest {
 
     @Test
@@ -104,4 +104,26 @@ public class RsaHelperTest {
             throw new RuntimeException(e);
         }
     }
+
+    @Test
+    public void testMultithread() throws Exception {
+        KeyPairGenerator keygen = KeyPairGenerator.getInstance("RSA");
+        keygen.initialize(1024, new SecureRandom());
+        KeyPair kp = keygen.generateKeyPair();
+        final RsaHelper rsa = new RsaHelper(kp.getPublic().getEncoded(), kp.getPrivate().getEncoded());
+        final byte[] content = "multithread rsa content".getBytes(ConstField.UTF8);
+        final AtomicInteger failed = new AtomicInteger();
+        MultithreadTestHelper.runInMultithread(5, 200, new Runnable() {
+            @Override
+            public void run() {
+                byte[] secret = rsa.encrypt(content);
+                if (!new String(rsa.decrypt(secret), ConstField.UTF8).equals("multithread rsa content")
+                        || !rsa.verify(rsa.sign(content), content)) {
+                    failed.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(0, failed.get());
+    }
+
 }